@@ -0,0 +1,19 @@
+/**
+ * A heuristic that guides A* search towards the end node of a path query. Implementations must be
+ * admissible: the estimate for a pair of nodes may never exceed the cost of the shortest path
+ * between them. Graphs whose nodes carry coordinates can, for example, return the straight line
+ * distance divided by the fastest walking speed.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public interface AStarHeuristic<NodeType> {
+
+  /**
+   * Returns a lower bound on the cost of the shortest path from one node to another.
+   *
+   * @param from the data item in the node the path starts from
+   * @param to   the data item in the destination node for the path
+   * @return a non-negative estimate that is never more than the true shortest path cost
+   */
+  public double estimate(NodeType from, NodeType to);
+}
@@ -0,0 +1,20 @@
+/**
+ * A node that can be reached from some start node, along with the cost of the cheapest path to it
+ * (such as the walking time in seconds).
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class Arrival<NodeType> {
+  public final NodeType data; // the data item in the reached node
+  public final double cost; // the cost of the shortest path to that node
+
+  public Arrival(NodeType data, double cost) {
+    this.data = data;
+    this.cost = cost;
+  }
+
+  @Override
+  public String toString() {
+    return data + " (" + cost + ")";
+  }
+}
@@ -1,14 +1,22 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public class BackendImplementation {
 
   private DijkstraGraph<String, Double> graph;
   private List<String> allNodes; // Keep track of all nodes
+  private Executor executor = ForkJoinPool.commonPool(); // Runs searches in parallel
+  // Paths and travel times of recent routes, so that both queries for a route share one search
+  private final RouteCache<String> routeCache = new RouteCache<>();
+
+  // Files of at least this many bytes are loaded by ParallelGraphLoader
+  private static final long PARALLEL_LOAD_THRESHOLD = 64 << 20;
 
   public BackendImplementation(DijkstraGraph<String, Double> dijkstraGraph) {
     this.graph = dijkstraGraph;
@@ -17,33 +25,106 @@ public class BackendImplementation {
 
   @Override
   public void loadGraphData(String filename) throws IOException {
-    try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-      String line;
-      while ((line = reader.readLine()) != null) {
-        if (line.contains("->")) {
-          int sourceStart = line.indexOf('"') + 1;
-          int sourceEnd = line.indexOf('"', sourceStart);
-          String source = line.substring(sourceStart, sourceEnd);
-          int destStart = line.indexOf('"', sourceEnd + 1) + 1;
-          int destEnd = line.indexOf('"', destStart);
-          String destination = line.substring(destStart, destEnd);
-          int weightStart = line.indexOf("seconds=") + "seconds=".length();
-          int weightEnd = line.indexOf("]", weightStart);
-          double weight = Double.parseDouble(line.substring(weightStart, weightEnd));
-          if (!graph.containsNode(source)) {
-            graph.insertNode(source);
-            allNodes.add(source);
-          }
-          if (!graph.containsNode(destination)) {
-            graph.insertNode(destination);
-            allNodes.add(destination);
-          }
-          graph.insertEdge(source, destination, weight);
-        }
+    String snapshotFile = GraphSnapshotFile.snapshotFor(filename);
+    if (graph.getNodeCount() == 0 && GraphSnapshotFile.isFresh(snapshotFile, filename)) {
+      // a snapshot written by GraphSnapshotFile loads without parsing the DOT file again
+      GraphSnapshotFile.Snapshot snapshot = GraphSnapshotFile.load(snapshotFile);
+      graph.adoptSnapshot(snapshot.getGraph(), snapshot.getLandmarks());
+      if (graph instanceof ContractionHierarchyGraph) {
+        // snapshots written without a hierarchy get one built from the adopted graph instead
+        if (snapshot.getHierarchy() != null)
+          ((ContractionHierarchyGraph<String, Double>) graph).setHierarchy(snapshot.getHierarchy());
+        else
+          graph.freeze();
+      }
+      allNodes = snapshot.getNames();
+      return;
+    }
+    // locations from a snapshot are a read only view, so copy them before adding more
+    if (!(allNodes instanceof ArrayList))
+      allNodes = new ArrayList<>(allNodes);
+    if (new File(filename).length() >= PARALLEL_LOAD_THRESHOLD) {
+      // parse large files on every core, then insert their nodes and edges in one pass
+      ParallelGraphLoader.LoadedGraph loaded = null;
+      try {
+        loaded = new ParallelGraphLoader().load(filename);
+      } catch (IOException e) {
+        // a chunk fails to parse on its own when a statement spans lines or an edge relies on an
+        // edge [seconds=...] default from an earlier chunk, so read such files sequentially below,
+        // which also reports any real syntax error
+      }
+      if (loaded != null) {
+        loaded.insertInto(graph);
+        for (String location : loaded.getNames())
+          allNodes.add(location);
+        graph.freeze();
+        return;
+      }
+    }
+    new DotReader("seconds").read(filename, new DotReader.Listener() {
+      @Override
+      public void node(String name) {
+        addLocation(name);
       }
+
+      @Override
+      public void edge(String source, String destination, double weight) {
+        addLocation(source);
+        addLocation(destination);
+        graph.insertEdge(source, destination, weight);
+      }
+    });
+    // path queries run against a compact CSR snapshot of the loaded graph
+    graph.freeze();
+  }
+
+  // Inserts a node for a location the first time it is seen
+  private void addLocation(String location) {
+    if (graph.insertNode(location)) {
+      allNodes.add(location);
     }
   }
 
+  /**
+   * Sets the executor that runs the searches of bulk queries like getTravelTimeMatrix in parallel.
+   *
+   * @param executor the executor to run searches on
+   */
+  public void setExecutor(Executor executor) {
+    if (executor == null)
+      throw new NullPointerException("Executor cannot be null");
+    this.executor = executor;
+  }
+
+  /**
+   * Computes the walking time in seconds from every start location to every end location, with
+   * one search per start location running in parallel on this backend's executor.
+   *
+   * @param startLocations the locations of the rows
+   * @param endLocations   the locations of the columns
+   * @return the matrix of walking times, where -1 marks pairs without a path
+   * @throws NoSuchElementException if any location is not on the map
+   */
+  public TravelTimeMatrix<String> getTravelTimeMatrix(List<String> startLocations,
+      List<String> endLocations) {
+    return graph.travelTimeMatrix(startLocations, endLocations, executor);
+  }
+
+  /**
+   * Finds the shortest paths for many routes at once, such as all of the requests that arrive at
+   * class change time. Routes with the same start location share a single search, which stops once
+   * all of their end locations are reached, and searches from different start locations run in
+   * parallel on this backend's executor. This answers the same as calling findShortestPath for each
+   * route, but without searching again from a start location that was already searched.
+   *
+   * @param routes the start and end location of each route
+   * @return the path of each route, in the order of routes, where a route has a null path when one
+   *         of its locations is not on the map or its end cannot be reached from its start
+   */
+  public List<List<String>> findShortestPaths(List<? extends Map.Entry<String, String>> routes) {
+    return graph.shortestPathsData(routes, executor);
+  }
+
   @Override
   public List<String> getListOfAllLocations() {
     return new ArrayList<>(allNodes);
@@ -51,41 +132,46 @@ public class BackendImplementation {
 
   @Override
   public List<String> findShortestPath(String startLocation, String endLocation) {
-    return graph.shortestPathData(startLocation, endLocation);
+    return new ArrayList<>(route(startLocation, endLocation).getPath());
   }
 
   @Override
   public List<Double> getTravelTimesOnPath(String startLocation, String endLocation) {
-    List<String> shortestPath = findShortestPath(startLocation, endLocation);
-    List<Double> travelTimes = new ArrayList<>();
-    for (int i = 0; i < shortestPath.size() - 1; i++) {
-      String source = shortestPath.get(i);
-      String destination = shortestPath.get(i + 1);
-      try {
-        double weight = graph.getEdge(source, destination);
-        travelTimes.add(weight);
-      } catch (NoSuchElementException e) {
-        e.printStackTrace();
-      }
-    }
-    return travelTimes;
+    return new ArrayList<>(route(startLocation, endLocation).getLegCosts());
+  }
+
+  /**
+   * Return the cache that holds the routes found by findShortestPath and getTravelTimesOnPath, for
+   * example to read its hit and miss counts.
+   *
+   * @return the route cache of this backend
+   */
+  public RouteCache<String> getRouteCache() {
+    return routeCache;
+  }
+
+  // Return the route between two locations, from the cache unless the map changed since it was
+  // found
+  private RouteCache.Route<String> route(String startLocation, String endLocation) {
+    return routeCache.get(startLocation, endLocation, graph.getModificationCount(),
+        this::computeRoute);
+  }
+
+  // Searches for the shortest path between two locations, with the time of each leg from the same
+  // search
+  private RouteCache.Route<String> computeRoute(String startLocation, String endLocation) {
+    return graph.shortestRoute(startLocation, endLocation);
   }
 
   @Override
   public List<String> getReachableLocations(String startLocation, double timesInSec) {
     List<String> reachableLocations = new ArrayList<>();
-    for (String location : allNodes) {
-      Double travelTime = null;
-      if (!(location.equals(startLocation))) {
-        try {
-          travelTime = graph.getEdge(startLocation, location);
-        } catch (NoSuchElementException e) {
-          continue;
-        }
-        if (travelTime <= timesInSec) {
-          reachableLocations.add(location);
-        }
-      }
+    try {
+      // every location within walking time, not just direct neighbours, ordered by arrival time
+      for (Arrival<String> arrival : graph.reachableWithin(startLocation, timesInSec))
+        reachableLocations.add(arrival.data);
+    } catch (NoSuchElementException e) {
+      // nothing is reachable from a location that is not on the map
     }
     return reachableLocations;
   }
@@ -1,5 +1,4 @@
-import java.util.List;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.NoSuchElementException;
 
 /**
@@ -8,11 +7,16 @@ import java.util.NoSuchElementException;
  */
 public class BaseGraph<NodeType, EdgeType extends Number> {
 
-    // Each node contains unique data along with two lists of directed edges
+    // Each node contains unique data along with two lists of directed edges.
+    // Each edge remembers its position in both lists, so that it can be removed
+    // in constant time by moving the last edge of a list into its position.
     protected class Node {
         public NodeType data;
-        public List<Edge> edgesLeaving = new LinkedList<>();
-        public List<Edge> edgesEntering = new LinkedList<>();
+        public int id; // dense index of this node within nodeList
+        public ArrayList<Edge> edgesLeaving = new ArrayList<>();
+        public ArrayList<Edge> edgesEntering = new ArrayList<>();
+        // leaving edges by successor, created once this node has many leaving edges
+        public OpenAddressingMap<Node, Edge> edgeIndex = null;
 
         public Node(NodeType data) {
             this.data = data;
@@ -22,11 +26,16 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
     // Nodes can be retrieved from this map by their unique data
     protected MapADT<NodeType, Node> nodes = null;
 
+    // Nodes are also kept in a dense list, so that node.id == nodeList.indexOf(node)
+    protected ArrayList<Node> nodeList = new ArrayList<>();
+
     // Each edge contains data/weight, and two nodes that it connects
     protected class Edge {
         public EdgeType data; // the weight or cost of this edge
         public Node predecessor;
         public Node successor;
+        public int leavingIndex; // position of this edge in predecessor.edgesLeaving
+        public int enteringIndex; // position of this edge in successor.edgesEntering
 
         public Edge(EdgeType data, Node pred, Node succ) {
             this.data = data;
@@ -36,6 +45,14 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
     }
 
     protected int edgeCount = 0;
+
+    // Counts the changes made to this graph, so that results computed from it
+    // can tell whether the graph changed since
+    protected volatile long modificationCount = 0;
+
+    // Out-degree above which a node indexes its leaving edges by successor,
+    // so that finding one of them no longer scans the whole list
+    protected static final int EDGE_INDEX_THRESHOLD = 8;
     // Edges can be retrieved through the edge lists in either connected node
 
     /**
@@ -59,7 +76,11 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
     public boolean insertNode(NodeType data) {
         if (nodes.containsKey(data))
             return false; // throws NPE when data's null
-        nodes.put(data, new Node(data));
+        Node newNode = new Node(data);
+        newNode.id = nodeList.size();
+        nodes.put(data, newNode);
+        nodeList.add(newNode);
+        modificationCount++;
         return true;
     }
 
@@ -77,12 +98,27 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
         if (!nodes.containsKey(data))
             return false; // throws NPE when data==null
         Node oldNode = nodes.remove(data);
+        // keep ids dense by moving the last node into the removed node's slot
+        Node lastNode = nodeList.remove(nodeList.size() - 1);
+        if (lastNode != oldNode) {
+            lastNode.id = oldNode.id;
+            nodeList.set(lastNode.id, lastNode);
+        }
         // remove all edges entering neighboring nodes from this one
-        for (Edge edge : oldNode.edgesLeaving)
-            edge.successor.edgesEntering.remove(edge);
-        // remove all edges leaving neighboring nodes toward this one
-        for (Edge edge : oldNode.edgesEntering)
-            edge.predecessor.edgesLeaving.remove(edge);
+        for (Edge edge : oldNode.edgesLeaving) {
+            if (edge.successor != oldNode)
+                removeEntering(edge);
+            this.edgeCount--;
+        }
+        // remove all edges leaving neighboring nodes toward this one (self
+        // loops were already counted among the leaving edges)
+        for (Edge edge : oldNode.edgesEntering) {
+            if (edge.predecessor != oldNode) {
+                removeLeaving(edge);
+                this.edgeCount--;
+            }
+        }
+        modificationCount++;
         return true;
     }
 
@@ -119,22 +155,34 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
      */
     public boolean insertEdge(NodeType pred, NodeType succ, EdgeType weight) {
         // find nodes associated with node data, and return false when not found
-        Node predNode = nodes.get(pred);
-        Node succNode = nodes.get(succ);
+        Node predNode = findNode(pred);
+        Node succNode = findNode(succ);
         if (predNode == null || succNode == null)
             return false;
-        try {
+        Edge existingEdge = findEdge(predNode, succNode);
+        if (existingEdge != null) {
             // when an edge alread exists within the graph, update its weight
-            Edge existingEdge = getEdgeHelper(pred, succ);
             existingEdge.data = weight;
-        } catch (NoSuchElementException e) {
-            // otherwise create a new edges
-            Edge newEdge = new Edge(weight, predNode, succNode);
-            this.edgeCount++;
-            // and insert it into each of its adjacent nodes' respective lists
-            predNode.edgesLeaving.add(newEdge);
-            succNode.edgesEntering.add(newEdge);
+            modificationCount++;
+            return true;
+        }
+        // otherwise create a new edges
+        Edge newEdge = new Edge(weight, predNode, succNode);
+        this.edgeCount++;
+        // and insert it into each of its adjacent nodes' respective lists
+        newEdge.leavingIndex = predNode.edgesLeaving.size();
+        predNode.edgesLeaving.add(newEdge);
+        newEdge.enteringIndex = succNode.edgesEntering.size();
+        succNode.edgesEntering.add(newEdge);
+        if (predNode.edgeIndex != null) {
+            predNode.edgeIndex.put(succNode, newEdge);
+        } else if (predNode.edgesLeaving.size() > EDGE_INDEX_THRESHOLD) {
+            // this node now has enough leaving edges to index them
+            predNode.edgeIndex = new OpenAddressingMap<>(4 * EDGE_INDEX_THRESHOLD);
+            for (Edge edge : predNode.edgesLeaving)
+                predNode.edgeIndex.put(edge.successor, edge);
         }
+        modificationCount++;
         return true;
     }
 
@@ -147,19 +195,17 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
      *         false if such an edge is not found in the graph
      */
     public boolean removeEdge(NodeType pred, NodeType succ) {
-        try {
-            // when an edge exists
-            Edge oldEdge = getEdgeHelper(pred, succ);
-            // remove it from the edge lists of each adjacent node
-            oldEdge.predecessor.edgesLeaving.remove(oldEdge);
-            oldEdge.successor.edgesEntering.remove(oldEdge);
-            // and decrement the edge count before removing
-            this.edgeCount--;
-            return true;
-        } catch (NoSuchElementException e) {
-            // when no such edge exists, return false instead
+        Edge oldEdge = findEdge(pred, succ);
+        // when no such edge exists, return false instead
+        if (oldEdge == null)
             return false;
-        }
+        // remove it from the edge lists of each adjacent node
+        removeLeaving(oldEdge);
+        removeEntering(oldEdge);
+        // and decrement the edge count before removing
+        this.edgeCount--;
+        modificationCount++;
+        return true;
     }
 
     /**
@@ -170,12 +216,7 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
      * @return true if the edge is found in the graph, or false other
      */
     public boolean containsEdge(NodeType pred, NodeType succ) {
-        try {
-            getEdgeHelper(pred, succ);
-            return true;
-        } catch (NoSuchElementException e) {
-            return false;
-        }
+        return findEdge(pred, succ) != null;
     }
 
     /**
@@ -192,15 +233,88 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
     }
 
     protected Edge getEdgeHelper(NodeType pred, NodeType succ) {
-        Node predNode = nodes.get(pred);
-        // search for edge through the predecessor's list of leaving edges
+        Edge edge = findEdge(pred, succ);
+        // when no such edge can be found, throw NSE
+        if (edge == null)
+            throw new NoSuchElementException("No edge from " + pred + " to " + succ);
+        return edge;
+    }
+
+    /**
+     * Remove an edge from its predecessor's list of leaving edges (and index)
+     * in constant time, by moving the last edge of that list into its place.
+     * 
+     * @param edge the edge to remove
+     */
+    protected void removeLeaving(Edge edge) {
+        ArrayList<Edge> list = edge.predecessor.edgesLeaving;
+        Edge last = list.remove(list.size() - 1);
+        if (last != edge) {
+            last.leavingIndex = edge.leavingIndex;
+            list.set(last.leavingIndex, last);
+        }
+        if (edge.predecessor.edgeIndex != null)
+            edge.predecessor.edgeIndex.remove(edge.successor);
+    }
+
+    /**
+     * Remove an edge from its successor's list of entering edges in constant
+     * time, by moving the last edge of that list into its place.
+     * 
+     * @param edge the edge to remove
+     */
+    protected void removeEntering(Edge edge) {
+        ArrayList<Edge> list = edge.successor.edgesEntering;
+        Edge last = list.remove(list.size() - 1);
+        if (last != edge) {
+            last.enteringIndex = edge.enteringIndex;
+            list.set(last.enteringIndex, last);
+        }
+    }
+
+    /**
+     * Find the edge between two nodes, without throwing when it is missing.
+     * 
+     * @param pred the data item contained in the source node for the edge
+     * @param succ the data item contained in the target node for the edge
+     * @return the edge between those nodes, or null if either node or the
+     *         edge between them are not found within this graph
+     */
+    protected Edge findEdge(NodeType pred, NodeType succ) {
+        Node predNode = findNode(pred);
+        Node succNode = findNode(succ);
+        if (predNode == null || succNode == null)
+            return null;
+        return findEdge(predNode, succNode);
+    }
+
+    /**
+     * Find the edge between two nodes of this graph, through the
+     * predecessor's index when it has one, or by scanning its (short) list of
+     * leaving edges otherwise.
+     * 
+     * @param predNode the source node for the edge
+     * @param succNode the target node for the edge
+     * @return the edge between those nodes, or null if there is no such edge
+     */
+    protected Edge findEdge(Node predNode, Node succNode) {
+        if (predNode.edgeIndex != null)
+            return predNode.edgeIndex.getOrDefault(succNode, null);
         for (Edge edge : predNode.edgesLeaving)
-            // compare succ to the data in each leaving edge's successor
-            if (edge.successor.data.equals(succ))
+            if (edge.successor == succNode)
                 return edge;
-        // when no such edge can be found, throw NSE
-        throw new NoSuchElementException("No edge from " + pred.toString() + " to " +
-                succ.toString());
+        return null;
+    }
+
+    /**
+     * Find the node that stores some data, without throwing when it is
+     * missing.
+     * 
+     * @param data the node contents to look for
+     * @return the node storing data, or null if there is no such node
+     */
+    protected Node findNode(NodeType data) {
+        return data != null && nodes.containsKey(data) ? nodes.get(data) : null;
     }
 
     /**
@@ -212,4 +326,15 @@ public class BaseGraph<NodeType, EdgeType extends Number> {
         return this.edgeCount;
     }
 
+    /**
+     * Return the number of changes made to this graph so far. Every successful
+     * insertion, removal or weight update increases it, so two equal counts
+     * mean that the graph did not change in between.
+     * 
+     * @return the number of changes made to this graph
+     */
+    public long getModificationCount() {
+        return modificationCount;
+    }
+
 }
@@ -0,0 +1,89 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Simulates dynamic closures (closed buildings and construction sites) on a large synthetic graph:
+ * random nodes are removed along with all of their edges and then restored, and random edges are
+ * removed and restored. A few hub nodes with hundreds of edges stand in for large buildings, which
+ * are the expensive case when removing an edge costs time proportional to the degree of its nodes.
+ * Prints the average time of each kind of closure, and checks that the node and edge counts are
+ * still exact afterwards.
+ *
+ * Usage: java ClosureChurnBenchmark [nodes] [closures] [hubDegree]
+ */
+public class ClosureChurnBenchmark {
+
+  public static void main(String[] args) {
+    int nodeCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+    int closures = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+    int hubDegree = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+    int hubCount = Math.max(1, nodeCount / 1000);
+
+    long start = System.nanoTime();
+    DijkstraGraph<Integer, Double> graph = SyntheticGraphs.randomGeometric(nodeCount, 8, 42);
+    Random rng = new Random(7);
+    for (int hub = nodeCount; hub < nodeCount + hubCount; hub++) {
+      graph.insertNode(hub);
+      for (int i = 0; i < hubDegree; i++) {
+        int other = rng.nextInt(nodeCount);
+        graph.insertEdge(hub, other, 1.0);
+        graph.insertEdge(other, hub, 1.0);
+      }
+    }
+    int totalNodes = nodeCount + hubCount;
+    int edgeCount = graph.getEdgeCount();
+    System.out.printf("built %d nodes and %d edges in %.1f ms%n", graph.getNodeCount(), edgeCount,
+        (System.nanoTime() - start) / 1e6);
+
+    for (int round = 0; round < 3; round++) {
+      long nodeTime = 0;
+      long edgeTime = 0;
+      long removedEdges = 0;
+      for (int i = 0; i < closures; i++) {
+        // close a node, with one in ten closures hitting a hub
+        int closed = rng.nextInt(10) == 0 ? nodeCount + rng.nextInt(hubCount)
+            : rng.nextInt(nodeCount);
+        ArrayList<BaseGraph<Integer, Double>.Edge> leaving =
+            new ArrayList<>(graph.nodes.get(closed).edgesLeaving);
+        ArrayList<BaseGraph<Integer, Double>.Edge> entering =
+            new ArrayList<>(graph.nodes.get(closed).edgesEntering);
+        long t = System.nanoTime();
+        graph.removeNode(closed);
+        nodeTime += System.nanoTime() - t;
+        removedEdges += leaving.size() + entering.size();
+        // reopen it
+        graph.insertNode(closed);
+        for (BaseGraph<Integer, Double>.Edge edge : leaving)
+          graph.insertEdge(closed, edge.successor.data, edge.data);
+        for (BaseGraph<Integer, Double>.Edge edge : entering)
+          graph.insertEdge(edge.predecessor.data, closed, edge.data);
+
+        // close and reopen one leaving edge of a random node
+        BaseGraph<Integer, Double>.Node node = graph.nodeList.get(rng.nextInt(totalNodes));
+        if (!node.edgesLeaving.isEmpty()) {
+          BaseGraph<Integer, Double>.Edge edge =
+              node.edgesLeaving.get(rng.nextInt(node.edgesLeaving.size()));
+          Integer succ = edge.successor.data;
+          Double weight = edge.data;
+          t = System.nanoTime();
+          graph.removeEdge(node.data, succ);
+          edgeTime += System.nanoTime() - t;
+          graph.insertEdge(node.data, succ, weight);
+        }
+      }
+      System.out.printf("round %d: node closure %.0f ns (%.1f edges each), edge closure %.0f ns%n",
+          round, (double) nodeTime / closures, (double) removedEdges / closures,
+          (double) edgeTime / closures);
+    }
+
+    // every closure was reopened, so the counts must match the original graph exactly
+    long listed = 0;
+    for (BaseGraph<Integer, Double>.Node node : graph.nodeList)
+      listed += node.edgesLeaving.size();
+    if (graph.getNodeCount() != totalNodes || graph.getEdgeCount() != edgeCount
+        || listed != edgeCount)
+      throw new IllegalStateException("Counts drifted: " + graph.getNodeCount() + " nodes, "
+          + graph.getEdgeCount() + " edges counted, " + listed + " edges listed");
+    System.out.println("node and edge counts are exact");
+  }
+}
@@ -0,0 +1,312 @@
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A MapADT that many threads can use at once without any locks. Like HashtableMap it chains the
+ * keys of each bucket (bin), but every chain is immutable: a write builds a new chain for its bin
+ * and publishes it with a single compare-and-set on that bin, retrying if another thread changed
+ * the bin first. Reads just follow the current chain of a bin, so they never block or retry.
+ *
+ * Growing the table is shared between threads. The thread that starts a resize allocates a table
+ * twice as large, and bins are then moved over in strides claimed by any writer that runs into the
+ * resize. Each moved bin is replaced by a forwarding entry that points readers and writers at the
+ * new table, so the map stays usable while the resize is underway.
+ *
+ * @param KeyType   is the type of the keys, which must not be null
+ * @param ValueType is the type of the values
+ */
+public class ConcurrentHashtableMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+  // grow once the number of keys reaches three quarters of the number of bins
+  private static final double MAX_LOAD = 0.75;
+  // number of bins a thread claims at a time when helping to move bins into a new table
+  private static final int TRANSFER_STRIDE = 16;
+
+  // One link of the immutable chain of keys in a bin
+  protected static class Entry {
+    public final Object key;
+    public final int hash;
+    public final Object value;
+    public final Entry next;
+
+    public Entry(Object key, int hash, Object value, Entry next) {
+      this.key = key;
+      this.hash = hash;
+      this.value = value;
+      this.next = next;
+    }
+  }
+
+  // Replaces a bin of the old table once its keys have been moved into resize.next
+  protected static class Forward extends Entry {
+    public final Resize resize;
+
+    public Forward(Resize resize) {
+      super(null, 0, null, null);
+      this.resize = resize;
+    }
+  }
+
+  // The state of one resize, shared by every thread that helps with it
+  protected static class Resize {
+    public final AtomicReferenceArray<Entry> old;
+    public final AtomicReferenceArray<Entry> next;
+    public final AtomicInteger transferIndex; // bins below this index have not been claimed yet
+    public final AtomicInteger moved = new AtomicInteger(); // number of bins moved so far
+
+    public Resize(AtomicReferenceArray<Entry> old) {
+      this.old = old;
+      this.next = new AtomicReferenceArray<>(old.length() << 1);
+      this.transferIndex = new AtomicInteger(old.length());
+    }
+  }
+
+  protected volatile AtomicReferenceArray<Entry> table;
+  protected final AtomicReference<Resize> resizing = new AtomicReference<>();
+  protected final LongAdder size = new LongAdder();
+
+  // Constructor with default capacity = 64
+  public ConcurrentHashtableMap() {
+    this(64);
+  }
+
+  /**
+   * Creates a map whose table has at least the specified number of bins, rounded up to a power of
+   * two.
+   *
+   * @param capacity the minimum number of bins in the initial table
+   */
+  public ConcurrentHashtableMap(int capacity) {
+    if (capacity < 0)
+      throw new IllegalArgumentException("Capacity cannot be negative: " + capacity);
+    int bins = 2;
+    while (bins < capacity)
+      bins <<= 1;
+    table = new AtomicReferenceArray<>(bins);
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection. When several threads put the same key at
+   * once, exactly one of them succeeds and the others throw.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   * @throws NullPointerException     if key is null
+   */
+  @Override
+  public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+    if (key == null)
+      throw new NullPointerException("Key cannot be null");
+    int hash = spread(key.hashCode());
+    AtomicReferenceArray<Entry> tab = table;
+    while (true) {
+      int index = hash & (tab.length() - 1);
+      Entry head = tab.get(index);
+      if (head instanceof Forward) {
+        tab = helpResize(((Forward) head).resize);
+        continue;
+      }
+      if (find(head, key, hash) != null)
+        throw new IllegalArgumentException("Key already exists");
+      if (tab.compareAndSet(index, head, new Entry(key, hash, value, head)))
+        break;
+    }
+    size.increment();
+    if (size.sum() >= (long) (tab.length() * MAX_LOAD))
+      startResize(tab);
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  @Override
+  public boolean containsKey(KeyType key) {
+    return key != null && lookup(key) != null;
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public ValueType get(KeyType key) throws NoSuchElementException {
+    Entry entry = key == null ? null : lookup(key);
+    if (entry == null)
+      throw new NoSuchElementException("Key not found");
+    return (ValueType) entry.value;
+  }
+
+  /**
+   * Remove the mapping for a key from this collection.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public ValueType remove(KeyType key) throws NoSuchElementException {
+    if (key == null)
+      throw new NoSuchElementException("Key cannot be null");
+    int hash = spread(key.hashCode());
+    AtomicReferenceArray<Entry> tab = table;
+    while (true) {
+      int index = hash & (tab.length() - 1);
+      Entry head = tab.get(index);
+      if (head instanceof Forward) {
+        tab = helpResize(((Forward) head).resize);
+        continue;
+      }
+      Entry removed = find(head, key, hash);
+      if (removed == null)
+        throw new NoSuchElementException("Key not found");
+      // copy the links in front of the removed key, and share the ones after it
+      Entry chain = removed.next;
+      for (Entry e = head; e != removed; e = e.next)
+        chain = new Entry(e.key, e.hash, e.value, chain);
+      if (tab.compareAndSet(index, head, chain)) {
+        size.decrement();
+        return (ValueType) removed.value;
+      }
+    }
+  }
+
+  /**
+   * Removes all key,value pairs from this collection. Keys that other threads put while the map is
+   * being cleared may or may not remain afterwards.
+   */
+  @Override
+  public void clear() {
+    AtomicReferenceArray<Entry> tab = table;
+    for (int index = 0; index < tab.length(); index++) {
+      Entry head = tab.get(index);
+      if (head instanceof Forward) {
+        // finish the resize, then clear the new table from its first bin
+        tab = helpResize(((Forward) head).resize);
+        index = -1;
+      } else if (head != null && tab.compareAndSet(index, head, null)) {
+        for (Entry e = head; e != null; e = e.next)
+          size.decrement();
+      } else if (head != null) {
+        index--; // the bin changed, so try it again
+      }
+    }
+  }
+
+  /**
+   * Retrieves the number of keys stored in this collection. While other threads are modifying the
+   * map, this is only an estimate.
+   *
+   * @return the number of keys stored in this collection
+   */
+  @Override
+  public int getSize() {
+    return (int) size.sum();
+  }
+
+  /**
+   * Retrieves this collection's capacity.
+   *
+   * @return the number of bins in the current table of this collection
+   */
+  @Override
+  public int getCapacity() {
+    return table.length();
+  }
+
+  // Mixes the high bits of a hash code into the low bits that select a bin
+  private static int spread(int hashCode) {
+    int h = hashCode * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  // Return the entry for key in the chain starting at head, or null if it is not there
+  private static Entry find(Entry head, Object key, int hash) {
+    for (Entry e = head; e != null; e = e.next)
+      if (e.hash == hash && e.key.equals(key))
+        return e;
+    return null;
+  }
+
+  // Return the entry for key, following forwarding entries into newer tables without helping
+  private Entry lookup(Object key) {
+    int hash = spread(key.hashCode());
+    AtomicReferenceArray<Entry> tab = table;
+    while (true) {
+      Entry head = tab.get(hash & (tab.length() - 1));
+      if (!(head instanceof Forward))
+        return find(head, key, hash);
+      tab = ((Forward) head).resize.next;
+    }
+  }
+
+  // Starts moving the keys of tab into a table twice its size, unless another resize is underway
+  private void startResize(AtomicReferenceArray<Entry> tab) {
+    Resize resize = new Resize(tab);
+    if (!resizing.compareAndSet(null, resize))
+      return;
+    if (table != tab) {
+      // tab has already been replaced by a resize that finished since it was read
+      resizing.set(null);
+      return;
+    }
+    helpResize(resize);
+  }
+
+  // Moves bins of a resize until no unclaimed bins are left, and return the new table
+  private AtomicReferenceArray<Entry> helpResize(Resize resize) {
+    AtomicReferenceArray<Entry> old = resize.old;
+    while (true) {
+      int end = resize.transferIndex.get();
+      if (end <= 0)
+        break;
+      int start = Math.max(0, end - TRANSFER_STRIDE);
+      if (!resize.transferIndex.compareAndSet(end, start))
+        continue;
+      for (int index = start; index < end; index++)
+        moveBin(resize, index);
+      if (resize.moved.addAndGet(end - start) == old.length()) {
+        // the last bin has moved: publish the new table before allowing another resize to start
+        table = resize.next;
+        resizing.set(null);
+        if (size.sum() >= (long) (resize.next.length() * MAX_LOAD))
+          startResize(resize.next);
+      }
+    }
+    return resize.next;
+  }
+
+  // Copies the chain of one old bin into the two new bins it splits into, then forwards the old bin
+  private static void moveBin(Resize resize, int index) {
+    AtomicReferenceArray<Entry> old = resize.old;
+    int bit = old.length(); // keys with this hash bit set move to the upper half of the new table
+    Forward forward = new Forward(resize);
+    while (true) {
+      Entry head = old.get(index);
+      Entry low = null;
+      Entry high = null;
+      for (Entry e = head; e != null; e = e.next) {
+        if ((e.hash & bit) == 0)
+          low = new Entry(e.key, e.hash, e.value, low);
+        else
+          high = new Entry(e.key, e.hash, e.value, high);
+      }
+      // only this thread writes these two new bins until the old bin is forwarded
+      resize.next.set(index, low);
+      resize.next.set(index + bit, high);
+      if (old.compareAndSet(index, head, forward))
+        return;
+    }
+  }
+}
@@ -0,0 +1,121 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for ConcurrentHashtableMap, from a single thread and from racing reader and writer threads
+ * that resize the map many times along the way.
+ */
+public class ConcurrentHashtableMapTests {
+
+  /**
+   * Tests put, get, containsKey and remove from a single thread, including duplicate and null keys
+   * and growth through several resizes.
+   */
+  @Test
+  public void testSingleThreaded() {
+    ConcurrentHashtableMap<Integer, Integer> map = new ConcurrentHashtableMap<>(2);
+    for (int i = 0; i < 1000; i++)
+      map.put(i, -i);
+    Assertions.assertEquals(1000, map.getSize());
+    Assertions.assertEquals(2048, map.getCapacity());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(7, 7));
+    Assertions.assertThrows(NullPointerException.class, () -> map.put(null, 7));
+    for (int i = 0; i < 1000; i += 2)
+      Assertions.assertEquals(-i, map.remove(i).intValue());
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.remove(0));
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.get(0));
+    for (int i = 0; i < 1000; i++)
+      Assertions.assertEquals(i % 2 == 1, map.containsKey(i));
+    map.clear();
+    Assertions.assertEquals(0, map.getSize());
+    Assertions.assertFalse(map.containsKey(1));
+  }
+
+  /**
+   * Stress test for lost updates: writer threads race to put the same keys into a small map, which
+   * resizes many times along the way, while reader threads keep looking up keys that were put
+   * before the race began. Exactly one put of each key must succeed, every key must be present
+   * afterwards, and the pre-existing keys must never go missing.
+   */
+  @Test
+  public void testNoLostUpdates() throws InterruptedException {
+    ConcurrentHashtableMap<Integer, Integer> map = new ConcurrentHashtableMap<>(2);
+    int writers = 8;
+    int readers = 4;
+    int keys = 50000;
+    for (int i = -100; i < 0; i++)
+      map.put(i, i);
+    AtomicInteger successes = new AtomicInteger();
+    AtomicInteger misses = new AtomicInteger();
+    AtomicInteger finishedWriters = new AtomicInteger();
+    CountDownLatch start = new CountDownLatch(1);
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < writers; t++) {
+      int offset = t * keys / writers; // start each writer at a different key to spread contention
+      threads.add(new Thread(() -> {
+        awaitQuietly(start);
+        for (int i = 0; i < keys; i++) {
+          int key = (offset + i) % keys;
+          try {
+            map.put(key, key);
+            successes.incrementAndGet();
+          } catch (IllegalArgumentException e) {
+            // another writer put this key first
+          }
+        }
+        finishedWriters.incrementAndGet();
+      }));
+    }
+    for (int t = 0; t < readers; t++) {
+      threads.add(new Thread(() -> {
+        awaitQuietly(start);
+        while (finishedWriters.get() < writers)
+          for (int i = -100; i < 0; i++)
+            if (!map.containsKey(i))
+              misses.incrementAndGet();
+      }));
+    }
+    for (Thread thread : threads)
+      thread.start();
+    start.countDown();
+    for (Thread thread : threads)
+      thread.join();
+    Assertions.assertEquals(keys, successes.get());
+    Assertions.assertEquals(0, misses.get());
+    Assertions.assertEquals(keys + 100, map.getSize());
+    for (int i = -100; i < keys; i++)
+      Assertions.assertEquals(i, map.get(i).intValue());
+
+    // concurrent removes of disjoint halves must also leave an exact count
+    threads.clear();
+    for (int t = 0; t < writers; t++) {
+      int first = t;
+      threads.add(new Thread(() -> {
+        for (int i = first; i < keys; i += writers)
+          if (i % 2 == 0)
+            map.remove(i);
+      }));
+    }
+    for (Thread thread : threads)
+      thread.start();
+    for (Thread thread : threads)
+      thread.join();
+    Assertions.assertEquals(keys / 2 + 100, map.getSize());
+    for (int i = 0; i < keys; i++)
+      Assertions.assertEquals(i % 2 == 1, map.containsKey(i));
+  }
+
+  // Waits for a latch, treating an interrupt as the latch opening
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
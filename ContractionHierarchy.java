@@ -0,0 +1,426 @@
+import java.util.Arrays;
+
+/**
+ * A contraction hierarchy over a frozen CSR graph. Preprocessing contracts the nodes one at a time,
+ * from least to most important. Contracting a node v removes it from the remaining graph, and adds
+ * a shortcut edge from u to x for each pair of remaining neighbors whose shortest path runs through
+ * v. Each shortcut records v as its middle node, which identifies the two edges it replaces (u to v
+ * and v to x). A node's rank is its position in the contraction order.
+ *
+ * Any shortest path can then be found by a bidirectional search in which both halves only follow
+ * edges towards higher ranked nodes. This settles very few nodes, even on large graphs, and
+ * shortcuts in the result are unpacked back into the original edges they replace.
+ */
+public class ContractionHierarchy {
+
+  // witness searches stop after settling this many nodes, and then conservatively add the shortcut
+  private static final int WITNESS_SETTLE_LIMIT = 64;
+
+  protected final long graphFingerprint; // fingerprint of the graph this hierarchy was built for
+  protected final int[] rank; // position of each node in the contraction order
+  protected final int shortcutCount;
+
+  // upward edges: from each node u to higher ranked nodes, with the middle node of shortcuts or -1
+  protected final int[] upOffsets;
+  protected final int[] upTargets;
+  protected final double[] upWeights;
+  protected final int[] upMiddle;
+
+  // downward edges reversed: from each node x to the higher ranked nodes u with an edge u to x
+  protected final int[] downOffsets;
+  protected final int[] downSources;
+  protected final double[] downWeights;
+  protected final int[] downMiddle;
+
+  /**
+   * Creates a hierarchy from already laid out arrays, such as arrays read back from a graph
+   * snapshot. The arrays are used directly, and must not be modified after this call.
+   *
+   * @param graphFingerprint fingerprint of the graph this hierarchy was built for
+   * @param rank             position of each node in the contraction order
+   * @param shortcutCount    number of shortcut edges added while contracting
+   * @param upOffsets        index of the first upward edge of each node, then the upward edge count
+   * @param upTargets        the higher ranked node each upward edge enters
+   * @param upWeights        the weight of each upward edge
+   * @param upMiddle         the node each upward shortcut skips, or -1 for original edges
+   * @param downOffsets      index of the first reversed downward edge of each node, then the count
+   * @param downSources      the higher ranked node each downward edge leaves
+   * @param downWeights      the weight of each downward edge
+   * @param downMiddle       the node each downward shortcut skips, or -1 for original edges
+   */
+  protected ContractionHierarchy(long graphFingerprint, int[] rank, int shortcutCount,
+      int[] upOffsets, int[] upTargets, double[] upWeights, int[] upMiddle, int[] downOffsets,
+      int[] downSources, double[] downWeights, int[] downMiddle) {
+    this.graphFingerprint = graphFingerprint;
+    this.rank = rank;
+    this.shortcutCount = shortcutCount;
+    this.upOffsets = upOffsets;
+    this.upTargets = upTargets;
+    this.upWeights = upWeights;
+    this.upMiddle = upMiddle;
+    this.downOffsets = downOffsets;
+    this.downSources = downSources;
+    this.downWeights = downWeights;
+    this.downMiddle = downMiddle;
+  }
+
+  private ContractionHierarchy(long graphFingerprint, int[] rank, int shortcutCount,
+      ArcList[] out, ArcList[] in) {
+    this.graphFingerprint = graphFingerprint;
+    this.rank = rank;
+    this.shortcutCount = shortcutCount;
+    int nodeCount = rank.length;
+    upOffsets = new int[nodeCount + 1];
+    downOffsets = new int[nodeCount + 1];
+    for (int u = 0; u < nodeCount; u++) {
+      upOffsets[u + 1] = upOffsets[u] + out[u].countTowardsRank(rank, rank[u]);
+      downOffsets[u + 1] = downOffsets[u] + in[u].countTowardsRank(rank, rank[u]);
+    }
+    upTargets = new int[upOffsets[nodeCount]];
+    upWeights = new double[upTargets.length];
+    upMiddle = new int[upTargets.length];
+    downSources = new int[downOffsets[nodeCount]];
+    downWeights = new double[downSources.length];
+    downMiddle = new int[downSources.length];
+    for (int u = 0; u < nodeCount; u++) {
+      out[u].copyTowardsRank(rank, rank[u], upTargets, upWeights, upMiddle, upOffsets[u]);
+      in[u].copyTowardsRank(rank, rank[u], downSources, downWeights, downMiddle, downOffsets[u]);
+    }
+  }
+
+  /**
+   * Contracts every node of a graph, and builds the resulting hierarchy. Nodes are ordered lazily
+   * by edge difference (the number of shortcuts contracting a node would add, minus the number of
+   * edges it removes) plus the number of its neighbors that are already contracted, which spreads
+   * the contraction evenly across the graph.
+   *
+   * @param graph the frozen graph to build a hierarchy for
+   * @return the contraction hierarchy of this graph
+   */
+  public static ContractionHierarchy build(CsrGraph<?> graph) {
+    Contractor contractor = new Contractor(graph);
+    int nodeCount = graph.getNodeCount();
+    int[] rank = new int[nodeCount];
+    IndexedMinHeap queue = new IndexedMinHeap(nodeCount);
+    for (int v = 0; v < nodeCount; v++)
+      queue.insertOrDecrease(v, contractor.priority(v));
+    int order = 0;
+    int shortcutCount = 0;
+    while (!queue.isEmpty()) {
+      int v = queue.poll();
+      // priorities go stale as neighbors are contracted, so refresh this one before using it
+      double priority = contractor.priority(v);
+      if (!queue.isEmpty() && priority > queue.peekPriority()) {
+        queue.insertOrDecrease(v, priority);
+        continue;
+      }
+      shortcutCount += contractor.contract(v);
+      rank[v] = order++;
+    }
+    return new ContractionHierarchy(graph.fingerprint(), rank, shortcutCount, contractor.out,
+        contractor.in);
+  }
+
+  /**
+   * Return the number of shortcut edges added while contracting the graph.
+   *
+   * @return the number of shortcuts in this hierarchy
+   */
+  public int getShortcutCount() {
+    return shortcutCount;
+  }
+
+  /**
+   * Check whether this hierarchy was built for the provided graph.
+   *
+   * @param graph the frozen graph to check
+   * @return true if graph has the same nodes, edges and weights as the graph this hierarchy was
+   *         built for, or false otherwise
+   */
+  public boolean matches(CsrGraph<?> graph) {
+    return graph.fingerprint() == graphFingerprint && graph.getNodeCount() == rank.length;
+  }
+
+  /**
+   * Searches for the shortest path from start to end with two upward searches: one from start in
+   * the provided workspace, and one from end over reversed downward edges in its companion. Each
+   * half stops once its lowest queued cost is no less than the cheapest path found through a node
+   * that both halves reached.
+   *
+   * @param start     the id of the starting node for the path
+   * @param end       the id of the destination node for the path
+   * @param workspace the workspace to run the upward search from start in
+   * @return the id of the highest ranked node on the shortest path, where the two halves meet, or
+   *         -1 when no path from start to end is found
+   */
+  public int query(int start, int end, SearchWorkspace workspace) {
+    SearchWorkspace forward = workspace;
+    SearchWorkspace backward = workspace.companion();
+    forward.begin(rank.length);
+    backward.begin(rank.length);
+    forward.reach(start, 0, -1);
+    backward.reach(end, 0, -1);
+    double best = start == end ? 0 : Double.POSITIVE_INFINITY;
+    int meet = start == end ? start : -1;
+    while (true) {
+      boolean forwardActive =
+          !forward.frontier().isEmpty() && forward.frontier().peekPriority() < best;
+      boolean backwardActive =
+          !backward.frontier().isEmpty() && backward.frontier().peekPriority() < best;
+      if (!forwardActive && !backwardActive)
+        break;
+      // take turns, favouring the half with the smaller frontier
+      boolean isForward = forwardActive && (!backwardActive
+          || forward.frontier().getSize() <= backward.frontier().getSize());
+      SearchWorkspace here = isForward ? forward : backward;
+      SearchWorkspace there = isForward ? backward : forward;
+      int[] offsets = isForward ? upOffsets : downOffsets;
+      int[] targets = isForward ? upTargets : downSources;
+      double[] weights = isForward ? upWeights : downWeights;
+      int u = here.frontier().poll();
+      forward.settledCount++; // nodes settled by both halves are counted on the forward workspace
+      double costU = here.dist(u);
+      for (int e = offsets[u], last = offsets[u + 1]; e < last; e++) {
+        int v = targets[e];
+        double cost = costU + weights[e];
+        if (cost < here.dist(v))
+          here.reach(v, cost, u);
+        if (there.isReached(v) && here.dist(v) + there.dist(v) < best) {
+          best = here.dist(v) + there.dist(v);
+          meet = v;
+        }
+      }
+    }
+    return meet;
+  }
+
+  /**
+   * Replaces every shortcut along a path of hierarchy edges with the original edges it stands for.
+   *
+   * @param packed the node ids along a path of upward and downward hierarchy edges
+   * @return the node ids along the same path in the original graph
+   */
+  public int[] unpack(int[] packed) {
+    int[] path = new int[Math.max(16, packed.length * 2)];
+    int length = 0;
+    path[length++] = packed[0];
+    int[] stack = new int[32]; // pairs of node ids for the edges that still need unpacking
+    for (int i = 0; i + 1 < packed.length; i++) {
+      int top = 0;
+      stack[top++] = packed[i];
+      stack[top++] = packed[i + 1];
+      while (top > 0) {
+        int to = stack[--top];
+        int from = stack[--top];
+        int middle = middle(from, to);
+        if (middle < 0) {
+          // an original edge, so its endpoint is the next node on the path
+          if (length == path.length)
+            path = Arrays.copyOf(path, length * 2);
+          path[length++] = to;
+        } else {
+          // unpack the first half (from to middle) before the second half (middle to to)
+          if (top + 4 > stack.length)
+            stack = Arrays.copyOf(stack, stack.length * 2);
+          stack[top++] = middle;
+          stack[top++] = to;
+          stack[top++] = from;
+          stack[top++] = middle;
+        }
+      }
+    }
+    return Arrays.copyOf(path, length);
+  }
+
+  // Return the middle node of the hierarchy edge from one node to another, or -1 if it is original
+  private int middle(int from, int to) {
+    if (rank[from] < rank[to]) {
+      for (int e = upOffsets[from]; e < upOffsets[from + 1]; e++)
+        if (upTargets[e] == to)
+          return upMiddle[e];
+    } else {
+      for (int e = downOffsets[to]; e < downOffsets[to + 1]; e++)
+        if (downSources[e] == from)
+          return downMiddle[e];
+    }
+    throw new IllegalStateException("No hierarchy edge from " + from + " to " + to);
+  }
+
+  /**
+   * The edges leaving (or entering) one node while the graph is being contracted, in parallel
+   * arrays of the other endpoint, the weight and the middle node (-1 for original edges).
+   */
+  private static class ArcList {
+    public int size = 0;
+    public int[] other = new int[4];
+    public double[] weight = new double[4];
+    public int[] middle = new int[4];
+
+    // Add an edge to the provided node, or lower the weight of the existing one
+    public void addOrUpdate(int node, double w, int mid) {
+      for (int i = 0; i < size; i++) {
+        if (other[i] == node) {
+          if (w < weight[i]) {
+            weight[i] = w;
+            middle[i] = mid;
+          }
+          return;
+        }
+      }
+      if (size == other.length) {
+        other = Arrays.copyOf(other, size * 2);
+        weight = Arrays.copyOf(weight, size * 2);
+        middle = Arrays.copyOf(middle, size * 2);
+      }
+      other[size] = node;
+      weight[size] = w;
+      middle[size] = mid;
+      size++;
+    }
+
+    // Count the edges whose other endpoint is ranked higher than minRank
+    public int countTowardsRank(int[] rank, int minRank) {
+      int count = 0;
+      for (int i = 0; i < size; i++)
+        if (rank[other[i]] > minRank)
+          count++;
+      return count;
+    }
+
+    // Copy the edges whose other endpoint is ranked higher than minRank into flat arrays
+    public void copyTowardsRank(int[] rank, int minRank, int[] others, double[] weights,
+        int[] middles, int index) {
+      for (int i = 0; i < size; i++) {
+        if (rank[other[i]] > minRank) {
+          others[index] = other[i];
+          weights[index] = weight[i];
+          middles[index] = middle[i];
+          index++;
+        }
+      }
+    }
+  }
+
+  /**
+   * The mutable state of the graph while it is being contracted.
+   */
+  private static class Contractor {
+    public final ArcList[] out;
+    public final ArcList[] in;
+    public final boolean[] contracted;
+    public final int[] contractedNeighbors;
+    public final SearchWorkspace witness;
+    // shortcuts found for the node being contracted, as sources, targets and weights
+    private int[] shortcutFrom = new int[16];
+    private int[] shortcutTo = new int[16];
+    private double[] shortcutWeight = new double[16];
+    private int shortcutCount = 0;
+
+    public Contractor(CsrGraph<?> graph) {
+      int nodeCount = graph.getNodeCount();
+      out = new ArcList[nodeCount];
+      in = new ArcList[nodeCount];
+      for (int v = 0; v < nodeCount; v++) {
+        out[v] = new ArcList();
+        in[v] = new ArcList();
+      }
+      // copy each edge once, dropping self loops and keeping the cheapest of parallel edges
+      for (int u = 0; u < nodeCount; u++) {
+        for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+          int x = graph.targets[e];
+          if (x != u) {
+            out[u].addOrUpdate(x, graph.weights[e], -1);
+            in[x].addOrUpdate(u, graph.weights[e], -1);
+          }
+        }
+      }
+      contracted = new boolean[nodeCount];
+      contractedNeighbors = new int[nodeCount];
+      witness = new SearchWorkspace(nodeCount);
+    }
+
+    // Return the contraction priority of v, where lower priorities are contracted first
+    public double priority(int v) {
+      findShortcuts(v);
+      int removedEdges = 0;
+      for (int i = 0; i < in[v].size; i++)
+        if (!contracted[in[v].other[i]])
+          removedEdges++;
+      for (int i = 0; i < out[v].size; i++)
+        if (!contracted[out[v].other[i]])
+          removedEdges++;
+      return shortcutCount - removedEdges + contractedNeighbors[v];
+    }
+
+    // Contract v: add its shortcuts and remove it from the remaining graph
+    public int contract(int v) {
+      findShortcuts(v);
+      for (int i = 0; i < shortcutCount; i++) {
+        out[shortcutFrom[i]].addOrUpdate(shortcutTo[i], shortcutWeight[i], v);
+        in[shortcutTo[i]].addOrUpdate(shortcutFrom[i], shortcutWeight[i], v);
+      }
+      contracted[v] = true;
+      for (int i = 0; i < in[v].size; i++)
+        contractedNeighbors[in[v].other[i]]++;
+      for (int i = 0; i < out[v].size; i++)
+        contractedNeighbors[out[v].other[i]]++;
+      return shortcutCount;
+    }
+
+    // Find the shortcuts needed to contract v, leaving them in the shortcut arrays
+    private void findShortcuts(int v) {
+      shortcutCount = 0;
+      ArcList ins = in[v];
+      ArcList outs = out[v];
+      for (int i = 0; i < ins.size; i++) {
+        int u = ins.other[i];
+        if (contracted[u])
+          continue;
+        double maxCost = -1;
+        for (int j = 0; j < outs.size; j++)
+          if (!contracted[outs.other[j]] && outs.other[j] != u)
+            maxCost = Math.max(maxCost, ins.weight[i] + outs.weight[j]);
+        if (maxCost < 0)
+          continue; // no remaining successor that could need a shortcut from u
+        witnessSearch(u, v, maxCost);
+        for (int j = 0; j < outs.size; j++) {
+          int x = outs.other[j];
+          double via = ins.weight[i] + outs.weight[j];
+          // a path from u to x avoiding v that is no longer than via makes the shortcut unneeded
+          if (contracted[x] || x == u || witness.dist(x) <= via)
+            continue;
+          if (shortcutCount == shortcutFrom.length) {
+            shortcutFrom = Arrays.copyOf(shortcutFrom, shortcutCount * 2);
+            shortcutTo = Arrays.copyOf(shortcutTo, shortcutCount * 2);
+            shortcutWeight = Arrays.copyOf(shortcutWeight, shortcutCount * 2);
+          }
+          shortcutFrom[shortcutCount] = u;
+          shortcutTo[shortcutCount] = x;
+          shortcutWeight[shortcutCount] = via;
+          shortcutCount++;
+        }
+      }
+    }
+
+    // Run a bounded Dijkstra search from u over the remaining graph without passing through skip
+    private void witnessSearch(int u, int skip, double maxCost) {
+      witness.begin(out.length);
+      witness.reach(u, 0, -1);
+      IndexedMinHeap frontier = witness.frontier();
+      for (int settled = 0; settled < WITNESS_SETTLE_LIMIT && !frontier.isEmpty(); settled++) {
+        if (frontier.peekPriority() > maxCost)
+          break;
+        int a = witness.settle();
+        ArcList arcs = out[a];
+        for (int k = 0; k < arcs.size; k++) {
+          int b = arcs.other[k];
+          if (contracted[b] || b == skip)
+            continue;
+          double cost = witness.dist(a) + arcs.weight[k];
+          if (cost < witness.dist(b))
+            witness.reach(b, cost, a);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,227 @@
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * This class extends DijkstraGraph so that, while frozen, shortest path queries run against a
+ * contraction hierarchy of the graph instead of searching it directly. Freezing the graph contracts
+ * it, which takes much longer than freezing a DijkstraGraph, but each query then only settles a
+ * small number of nodes even on very large graphs. Since it is still a DijkstraGraph (and
+ * GraphADT), it can be passed anywhere a DijkstraGraph is expected, such as to
+ * BackendImplementation.
+ */
+public class ContractionHierarchyGraph<NodeType, EdgeType extends Number>
+    extends DijkstraGraph<NodeType, EdgeType> {
+
+  // hierarchy of the current snapshot, or null until a point-to-point query or freeze builds one
+  protected volatile ContractionHierarchy hierarchy = null;
+
+  /**
+   * Freezes this graph into an immutable CSR snapshot and builds a contraction hierarchy over it,
+   * unless the snapshot already has one. Any change to the graph discards both until freeze is
+   * called again. Queries from one node to many, like reachableWithin, only freeze the snapshot,
+   * and the hierarchy is then built by the first point-to-point query that needs it.
+   */
+  @Override
+  public void freeze() {
+    super.freeze();
+    hierarchyFor(snapshot);
+  }
+
+  /**
+   * Return the contraction hierarchy of a snapshot, contracting it the first time a query needs
+   * one. Concurrent queries contract the snapshot only once, and the hierarchy is only kept while
+   * graph is still the current snapshot.
+   *
+   * @param graph the snapshot being searched
+   * @return the hierarchy to search graph with
+   */
+  protected ContractionHierarchy hierarchyFor(CsrGraph<NodeType> graph) {
+    ContractionHierarchy current = hierarchy;
+    if (current != null)
+      return current;
+    synchronized (this) {
+      current = hierarchy;
+      if (current == null) {
+        current = ContractionHierarchy.build(graph);
+        if (snapshot == graph)
+          hierarchy = current;
+      }
+      return current;
+    }
+  }
+
+  /**
+   * Return the contraction hierarchy that queries currently run against.
+   *
+   * @return the hierarchy of the frozen graph, or null when the graph is not frozen or no query
+   *         has needed a hierarchy since it was frozen
+   */
+  public ContractionHierarchy getHierarchy() {
+    return hierarchy;
+  }
+
+  /**
+   * Restores a hierarchy that was previously built for this graph, for example after loading it
+   * from a GraphSnapshotFile, instead of contracting the graph again.
+   *
+   * @param hierarchy the hierarchy to run queries against
+   * @throws IllegalStateException    if this graph is not frozen
+   * @throws IllegalArgumentException if the hierarchy was built for a different graph
+   */
+  public synchronized void setHierarchy(ContractionHierarchy hierarchy) {
+    if (snapshot == null)
+      throw new IllegalStateException("Graph must be frozen before setting a hierarchy");
+    if (!hierarchy.matches(snapshot))
+      throw new IllegalArgumentException("Hierarchy was built for a different graph");
+    this.hierarchy = hierarchy;
+  }
+
+  @Override
+  protected void graphChanged() {
+    super.graphChanged();
+    hierarchy = null;
+  }
+
+  /**
+   * Finds the shortest path between two nodes of the frozen snapshot in its contraction hierarchy,
+   * building the hierarchy first if the snapshot has none, and unpacks the shortcuts of that path
+   * into the original edges.
+   *
+   * @param graph     the snapshot to search through
+   * @param start     the data item in the starting node for the path
+   * @param end       the data item in the destination node for the path
+   * @param workspace the workspace to run this search in
+   * @return the ids of the nodes along the shortest path, ordered from start to end
+   * @throws NoSuchElementException when no path from start to end is found
+   */
+  @Override
+  protected int[] snapshotPath(CsrGraph<NodeType> graph, NodeType start, NodeType end,
+      SearchWorkspace workspace) {
+    ContractionHierarchy current = hierarchyFor(graph);
+    int startId = graph.idOf(start);
+    int endId = graph.idOf(end);
+    int meet = startId < 0 || endId < 0 ? -1 : current.query(startId, endId, workspace);
+    if (meet < 0)
+      throw new NoSuchElementException("Invalid Path");
+    return current.unpack(snapshotPathIds(workspace, meet, endId));
+  }
+
+  /**
+   * Returns the cost of the shortest path from the node containing the start data to the node
+   * containing the end data. While this graph is frozen, this cost is found in the contraction
+   * hierarchy, which is built first if the snapshot has none.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end   the data item in the destination node for the path
+   * @return the cost of the shortest path between these nodes, or -1 when there is no such path
+   */
+  @Override
+  public double shortestPathCost(NodeType start, NodeType end) {
+    CsrGraph<NodeType> graph = snapshot;
+    if (graph == null)
+      return super.shortestPathCost(start, end);
+    ContractionHierarchy current = hierarchyFor(graph);
+    SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+    int startId = graph.idOf(start);
+    int endId = graph.idOf(end);
+    int meet = startId < 0 || endId < 0 ? -1 : current.query(startId, endId, workspace);
+    if (meet < 0)
+      return -1;
+    return snapshotPathCost(workspace, meet, endId);
+  }
+
+  /**
+   * Tests that the contraction hierarchy finds the same path as DijkstraGraph on the lecture
+   * example, and the same costs between every pair of nodes in a random graph, along unpacked paths
+   * that only use original edges.
+   */
+  @Test
+  public void testMatchesDijkstra() {
+    ContractionHierarchyGraph<String, Integer> test = new ContractionHierarchyGraph<>();
+    for (String data : new String[] {"A", "B", "C", "D", "E"})
+      test.insertNode(data);
+    test.insertEdge("A", "B", 15);
+    test.insertEdge("A", "C", 1);
+    test.insertEdge("A", "D", 4);
+    test.insertEdge("B", "D", 2);
+    test.insertEdge("B", "E", 1);
+    test.insertEdge("C", "E", 10);
+    test.insertEdge("D", "B", 2);
+    test.insertEdge("D", "E", 10);
+    test.freeze();
+    Assertions.assertEquals("[A, D, B, E]", test.shortestPathData("A", "E").toString());
+    Assertions.assertEquals(7, test.shortestPathCost("A", "E"));
+    Assertions.assertEquals(-1, test.shortestPathCost("E", "A"));
+
+    ContractionHierarchyGraph<Integer, Integer> random = new ContractionHierarchyGraph<>();
+    DijkstraGraph<Integer, Integer> expected = new DijkstraGraph<>();
+    Random rng = new Random(3);
+    for (int i = 0; i < 80; i++) {
+      random.insertNode(i);
+      expected.insertNode(i);
+    }
+    for (int i = 0; i < 320; i++) {
+      int pred = rng.nextInt(80);
+      int succ = rng.nextInt(80);
+      int weight = 1 + rng.nextInt(30);
+      random.insertEdge(pred, succ, weight);
+      expected.insertEdge(pred, succ, weight);
+    }
+    random.freeze();
+    Assertions.assertTrue(random.getHierarchy().getShortcutCount() > 0);
+    for (int start = 0; start < 80; start++) {
+      for (int end = 0; end < 80; end++) {
+        double cost = expected.shortestPathCost(start, end);
+        Assertions.assertEquals(cost, random.shortestPathCost(start, end));
+        if (cost < 0)
+          continue;
+        List<Integer> path = random.shortestPathData(start, end);
+        double pathCost = 0;
+        for (int i = 0; i + 1 < path.size(); i++)
+          pathCost += random.getEdge(path.get(i), path.get(i + 1));
+        Assertions.assertEquals(cost, pathCost);
+      }
+    }
+  }
+
+  /**
+   * Tests that changing a frozen graph discards its hierarchy, and that queries see the change.
+   */
+  @Test
+  public void testChangeDiscardsHierarchy() {
+    ContractionHierarchyGraph<String, Double> test = new ContractionHierarchyGraph<>();
+    test.insertNode("A");
+    test.insertNode("B");
+    test.insertNode("C");
+    test.insertEdge("A", "B", 1.0);
+    test.insertEdge("B", "C", 1.0);
+    test.freeze();
+    Assertions.assertEquals("[A, B, C]", test.shortestPathData("A", "C").toString());
+    test.insertEdge("A", "C", 1.5);
+    Assertions.assertNull(test.getHierarchy());
+    Assertions.assertEquals("[A, C]", test.shortestPathData("A", "C").toString());
+  }
+
+  /**
+   * Tests that queries from one node to many freeze only the CSR snapshot, and that the first point
+   * to point query afterwards builds the hierarchy.
+   */
+  @Test
+  public void testOneToManyQueriesSkipHierarchy() {
+    ContractionHierarchyGraph<String, Double> test = new ContractionHierarchyGraph<>();
+    test.insertNode("A");
+    test.insertNode("B");
+    test.insertNode("C");
+    test.insertEdge("A", "B", 1.0);
+    test.insertEdge("B", "C", 2.0);
+    Assertions.assertEquals(2, test.reachableWithin("A", 5).size());
+    Assertions.assertEquals(3.0, test.shortestPathTree("A").costTo("C"));
+    Assertions.assertTrue(test.isFrozen());
+    Assertions.assertNull(test.getHierarchy());
+    Assertions.assertEquals(List.of("A", "B", "C"), test.shortestPathData("A", "C"));
+    Assertions.assertNotNull(test.getHierarchy());
+  }
+}
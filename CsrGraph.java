@@ -0,0 +1,248 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class stores an immutable compressed sparse row (CSR) copy of a directed and weighted graph.
+ * Every node is identified by a dense integer id between 0 and getNodeCount() - 1. The edges
+ * leaving node u are stored at positions offsets[u] through offsets[u + 1] - 1 of the targets and
+ * weights arrays, so that shortest path searches can walk flat primitive arrays instead of chasing
+ * Node and Edge references.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class CsrGraph<NodeType> {
+
+  protected final Object[] nodeData; // data of the node with each id
+  // id + 1 of the node whose data hashes to each slot, or 0 for an empty slot, with collisions
+  // probed linearly, so that looking up a node allocates nothing and each node costs an int or two
+  protected final int[] idTable;
+  protected final int[] offsets; // length nodeCount + 1
+  protected final int[] targets; // successor id of each edge
+  protected final double[] weights; // weight of each edge
+
+  // the transpose of this graph, with every edge reversed, built the first time it is needed
+  private volatile CsrGraph<NodeType> reversed = null;
+  // the graph this one is the transpose of, which answers data and idOf, or null if not a transpose
+  private final CsrGraph<NodeType> forward;
+
+  /**
+   * Creates a CSR graph from already laid out arrays. The arrays are used directly, and must not be
+   * modified after this constructor is called.
+   *
+   * @param nodeData the data item of the node with each id
+   * @param offsets  index of the first edge leaving each node, followed by the total edge count
+   * @param targets  the successor node id of each edge
+   * @param weights  the non-negative weight of each edge
+   * @throws IllegalArgumentException if the array lengths are not consistent with each other, or
+   *                                  two nodes contain equal data
+   */
+  public CsrGraph(Object[] nodeData, int[] offsets, int[] targets, double[] weights) {
+    if (offsets.length != nodeData.length + 1 || targets.length != weights.length
+        || offsets[nodeData.length] != targets.length)
+      throw new IllegalArgumentException("Inconsistent CSR array lengths");
+    this.nodeData = nodeData;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+    this.forward = null;
+    // keep the table at most half full, so that every probe sequence reaches an empty slot
+    int slots = 2;
+    while (slots < 2 * nodeData.length)
+      slots <<= 1;
+    this.idTable = new int[slots];
+    // read nodeData directly, since a subclass is not constructed yet to override data
+    for (int id = 0; id < nodeData.length; id++) {
+      int slot = slotOf(nodeData[id], slots - 1);
+      while (idTable[slot] != 0) {
+        if (nodeData[idTable[slot] - 1].equals(nodeData[id]))
+          throw new IllegalArgumentException("Two nodes contain " + nodeData[id]);
+        slot = (slot + 1) & (slots - 1);
+      }
+      idTable[slot] = id + 1;
+    }
+  }
+
+  /**
+   * Creates a CSR graph whose node data is looked up by a subclass, which must override data and
+   * idOf. The nodeData array starts out empty, so that subclasses can fill it in lazily.
+   *
+   * @param offsets index of the first edge leaving each node, followed by the total edge count
+   * @param targets the successor node id of each edge
+   * @param weights the non-negative weight of each edge
+   * @throws IllegalArgumentException if the array lengths are not consistent with each other
+   */
+  protected CsrGraph(int[] offsets, int[] targets, double[] weights) {
+    if (offsets.length == 0 || targets.length != weights.length
+        || offsets[offsets.length - 1] != targets.length)
+      throw new IllegalArgumentException("Inconsistent CSR array lengths");
+    this.nodeData = new Object[offsets.length - 1];
+    this.idTable = null;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+    this.forward = null;
+  }
+
+  // Creates the transpose of a graph, which shares its node data and id table
+  private CsrGraph(CsrGraph<NodeType> forward, int[] offsets, int[] targets, double[] weights) {
+    this.nodeData = forward.nodeData;
+    this.idTable = forward.idTable;
+    this.offsets = offsets;
+    this.targets = targets;
+    this.weights = weights;
+    this.reversed = forward;
+    this.forward = forward;
+  }
+
+  /**
+   * Return the number of nodes in this graph.
+   *
+   * @return the number of nodes in this graph
+   */
+  public int getNodeCount() {
+    return nodeData.length;
+  }
+
+  /**
+   * Return the number of edges in this graph.
+   *
+   * @return the number of edges in this graph
+   */
+  public int getEdgeCount() {
+    return targets.length;
+  }
+
+  /**
+   * Return the dense id of the node containing the provided data.
+   *
+   * @param data the node contents to look up
+   * @return the id of that node, or -1 when no node contains this data
+   */
+  public int idOf(NodeType data) {
+    if (forward != null)
+      return forward.idOf(data);
+    if (data == null)
+      return -1;
+    int mask = idTable.length - 1;
+    for (int slot = slotOf(data, mask); idTable[slot] != 0; slot = (slot + 1) & mask) {
+      int id = idTable[slot] - 1;
+      if (data.equals(nodeData[id]))
+        return id;
+    }
+    return -1;
+  }
+
+  // Return the home slot of a data item in idTable, mixing the high bits of its hash code into the
+  // low bits that the mask keeps
+  private static int slotOf(Object data, int mask) {
+    int h = data.hashCode() * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  /**
+   * Return the data stored in the node with the provided id.
+   *
+   * @param id the dense id of the node
+   * @return the data item stored in that node
+   */
+  @SuppressWarnings("unchecked")
+  public NodeType data(int id) {
+    if (forward != null)
+      return forward.data(id);
+    return (NodeType) nodeData[id];
+  }
+
+  /**
+   * Return the index of the first edge leaving node u. The edges leaving u are the indexes from
+   * firstEdge(u) up to (but excluding) firstEdge(u + 1).
+   *
+   * @param u the id of the predecessor node
+   * @return the index of the first edge leaving u
+   */
+  public int firstEdge(int u) {
+    return offsets[u];
+  }
+
+  /**
+   * Return the id of the successor node of an edge.
+   *
+   * @param edge the index of the edge
+   * @return the id of the node this edge enters
+   */
+  public int target(int edge) {
+    return targets[edge];
+  }
+
+  /**
+   * Return the weight of an edge.
+   *
+   * @param edge the index of the edge
+   * @return the non-negative weight of this edge
+   */
+  public double weight(int edge) {
+    return weights[edge];
+  }
+
+  /**
+   * Return the transpose of this graph: a CSR graph with the same node ids, where every edge from u
+   * to v with weight w is replaced by an edge from v to u with weight w. Searching the transpose
+   * from a node explores the paths that end at that node in this graph. The transpose is built
+   * once, the first time this method is called.
+   *
+   * @return the reversed copy of this graph
+   */
+  public CsrGraph<NodeType> reversed() {
+    CsrGraph<NodeType> result = reversed;
+    if (result == null) {
+      // count the edges entering each node, then place each edge after its target's offset
+      int nodeCount = getNodeCount();
+      int[] inOffsets = new int[nodeCount + 1];
+      for (int target : targets)
+        inOffsets[target + 1]++;
+      for (int id = 0; id < nodeCount; id++)
+        inOffsets[id + 1] += inOffsets[id];
+      int[] next = Arrays.copyOf(inOffsets, nodeCount);
+      int[] sources = new int[targets.length];
+      double[] inWeights = new double[targets.length];
+      for (int u = 0; u < nodeCount; u++) {
+        for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+          int slot = next[targets[e]]++;
+          sources[slot] = u;
+          inWeights[slot] = weights[e];
+        }
+      }
+      // racing threads may each build a transpose, but they are identical so either can be kept
+      result = new CsrGraph<>(this, inOffsets, sources, inWeights);
+      reversed = result;
+    }
+    return result;
+  }
+
+  /**
+   * Returns a fingerprint of this graph's structure and weights, which is used to check that data
+   * precomputed for one graph (such as landmark distances) is not applied to a different graph.
+   *
+   * @return a hash of this graph's node count, offsets, targets and weights
+   */
+  public long fingerprint() {
+    long hash = getNodeCount();
+    hash = 31 * hash + Arrays.hashCode(offsets);
+    hash = 31 * hash + Arrays.hashCode(targets);
+    hash = 31 * hash + Arrays.hashCode(weights);
+    return hash;
+  }
+
+  /**
+   * Converts a sequence of node ids into the list of data stored in those nodes.
+   *
+   * @param path the ids of the nodes along a path, in order
+   * @return list of data items from nodes along this path
+   */
+  public List<NodeType> pathData(int[] path) {
+    List<NodeType> list = new ArrayList<>(path.length);
+    for (int id : path)
+      list.add(data(id));
+    return list;
+  }
+}
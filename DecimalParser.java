@@ -0,0 +1,167 @@
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses decimal numbers straight from ASCII bytes into doubles, returning exactly the same double
+ * as Double.parseDouble without building a String first. Numbers are split into up to 19
+ * significant digits and a power of ten, and then converted with the Eisel-Lemire algorithm: the
+ * digits are multiplied by a 128-bit approximation of the power of ten, which determines the
+ * correctly rounded double unless the product lies too close to a halfway point between two
+ * doubles. Those rare cases, and numbers with more than 19 significant digits, fall back to
+ * Double.parseDouble.
+ */
+public class DecimalParser {
+
+  private static final int MIN_EXPONENT = -348;
+  private static final int MAX_EXPONENT = 347;
+  // 128-bit mantissas of each power of ten from MIN_EXPONENT to MAX_EXPONENT, rounded down and
+  // normalized so that the high bit of the high half is set: high half at 2 * i, low half after it
+  private static final long[] POWERS_OF_TEN = new long[2 * (MAX_EXPONENT - MIN_EXPONENT + 1)];
+
+  static {
+    BigInteger ten = BigInteger.TEN;
+    BigInteger mask = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+    for (int exponent = MIN_EXPONENT; exponent <= MAX_EXPONENT; exponent++) {
+      BigInteger mantissa;
+      if (exponent >= 0) {
+        BigInteger power = ten.pow(exponent);
+        int shift = 128 - power.bitLength();
+        mantissa = shift >= 0 ? power.shiftLeft(shift) : power.shiftRight(-shift);
+      } else {
+        BigInteger power = ten.pow(-exponent);
+        // 2^(bits + 127) / 10^-exponent lies strictly between 2^127 and 2^128
+        mantissa = BigInteger.ONE.shiftLeft(power.bitLength() + 127).divide(power);
+      }
+      int index = 2 * (exponent - MIN_EXPONENT);
+      POWERS_OF_TEN[index] = mantissa.shiftRight(64).longValue();
+      POWERS_OF_TEN[index + 1] = mantissa.and(mask).longValue();
+    }
+  }
+
+  private DecimalParser() {
+  }
+
+  /**
+   * Parses a decimal number like -12.5, .5, 5. or 1.5e-7 from ASCII bytes.
+   *
+   * @param bytes  the array holding the number
+   * @param offset the index of the number's first byte
+   * @param length the number of bytes in the number
+   * @return the double closest to the number, exactly as Double.parseDouble would return
+   * @throws NumberFormatException if the bytes are not a decimal number
+   */
+  public static double parse(byte[] bytes, int offset, int length) {
+    int end = offset + length;
+    int i = offset;
+    boolean negative = false;
+    if (i < end && (bytes[i] == '-' || bytes[i] == '+'))
+      negative = bytes[i++] == '-';
+    long digits = 0;
+    int digitCount = 0; // significant digits, not counting leading zeros
+    int exponent = 0; // power of ten to scale digits by
+    boolean anyDigits = false;
+    boolean point = false;
+    for (; i < end; i++) {
+      int b = bytes[i];
+      if (b == '.' && !point) {
+        point = true;
+      } else if (b >= '0' && b <= '9') {
+        anyDigits = true;
+        if (digitCount < 19) {
+          // keep at most 19 digits, which always fit in an unsigned long
+          if (digits != 0 || b != '0') {
+            digits = digits * 10 + (b - '0');
+            digitCount++;
+          }
+          if (point)
+            exponent--;
+        } else {
+          // only count the digits that do not fit, so that the caller can fall back
+          digitCount++;
+          if (!point)
+            exponent++;
+        }
+      } else {
+        break;
+      }
+    }
+    if (anyDigits && i < end && (bytes[i] == 'e' || bytes[i] == 'E')) {
+      i++;
+      boolean negativeExponent = false;
+      if (i < end && (bytes[i] == '-' || bytes[i] == '+'))
+        negativeExponent = bytes[i++] == '-';
+      int start = i;
+      int value = 0;
+      for (; i < end && bytes[i] >= '0' && bytes[i] <= '9'; i++)
+        value = Math.min(value * 10 + (bytes[i] - '0'), 100_000);
+      if (i == start)
+        anyDigits = false;
+      exponent += negativeExponent ? -value : value;
+    }
+    if (!anyDigits || i != end)
+      throw new NumberFormatException(
+          "Invalid number: " + new String(bytes, offset, length, StandardCharsets.ISO_8859_1));
+    if (digitCount <= 19) {
+      if (digits == 0)
+        return negative ? -0.0 : 0.0;
+      long bits = eiselLemire(digits, exponent);
+      if (bits >= 0)
+        return Double.longBitsToDouble(negative ? bits | Long.MIN_VALUE : bits);
+    }
+    return Double.parseDouble(new String(bytes, offset, length, StandardCharsets.ISO_8859_1));
+  }
+
+  // Return the bits of the positive double closest to digits * 10^exponent (where digits is a
+  // nonzero unsigned long), or -1 when this algorithm cannot decide how to round
+  private static long eiselLemire(long digits, int exponent) {
+    if (exponent < MIN_EXPONENT || exponent > MAX_EXPONENT)
+      return -1;
+    int index = 2 * (exponent - MIN_EXPONENT);
+    // normalize digits so that its high bit is set
+    int leadingZeros = Long.numberOfLeadingZeros(digits);
+    digits <<= leadingZeros;
+    // 217706 / 2^16 is just above log2(10)
+    long binaryExponent = ((217706L * exponent) >> 16) + 64 + 1023 - leadingZeros;
+
+    // multiply by the high half of the power's mantissa
+    long high = unsignedMultiplyHigh(digits, POWERS_OF_TEN[index]);
+    long low = digits * POWERS_OF_TEN[index];
+    if ((high & 0x1FF) == 0x1FF && Long.compareUnsigned(low + digits, digits) < 0) {
+      // the truncated product is too close to call, so include the low half of the mantissa
+      long lowHigh = unsignedMultiplyHigh(digits, POWERS_OF_TEN[index + 1]);
+      long lowLow = digits * POWERS_OF_TEN[index + 1];
+      long mergedHigh = high;
+      long mergedLow = low + lowHigh;
+      if (Long.compareUnsigned(mergedLow, low) < 0)
+        mergedHigh++;
+      if ((mergedHigh & 0x1FF) == 0x1FF && mergedLow + 1 == 0
+          && Long.compareUnsigned(lowLow + digits, digits) < 0)
+        return -1;
+      high = mergedHigh;
+      low = mergedLow;
+    }
+
+    // keep the top 54 bits of the product
+    long msb = high >>> 63;
+    long mantissa = high >>> (msb + 9);
+    binaryExponent -= 1 ^ msb;
+    if (low == 0 && (high & 0x1FF) == 0 && (mantissa & 3) == 1)
+      return -1; // exactly halfway between two doubles
+
+    // round to 53 bits
+    mantissa += mantissa & 1;
+    mantissa >>>= 1;
+    if ((mantissa >>> 53) > 0) {
+      mantissa >>>= 1;
+      binaryExponent++;
+    }
+    if (binaryExponent <= 0 || binaryExponent >= 0x7FF)
+      return -1; // subnormal or infinite
+    return (binaryExponent << 52) | (mantissa & 0x000FFFFFFFFFFFFFL);
+  }
+
+  // Return the high 64 bits of the 128-bit product of two unsigned longs
+  private static long unsignedMultiplyHigh(long x, long y) {
+    return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+  }
+}
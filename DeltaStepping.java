@@ -0,0 +1,304 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the shortest path cost from one node to every node of a frozen CsrGraph with the
+ * delta-stepping algorithm of Meyer and Sanders, which spreads the work of a one to all search
+ * over the threads of a ForkJoinPool. Where Dijkstra's algorithm settles one node at a time,
+ * delta-stepping keeps its frontier in buckets of width delta, so bucket i holds the nodes whose
+ * best known cost is in [i * delta, (i + 1) * delta), and relaxes all nodes of the lowest nonempty
+ * bucket at once.
+ *
+ * Edges are split into light edges (weight at most delta) and heavy edges. Relaxing a light edge
+ * can put a node back into the bucket being processed, so the light edges of a bucket are relaxed
+ * in rounds until the bucket stays empty. Heavy edges always lead to a later bucket, so they are
+ * relaxed once, from every node the bucket settled. Within a round the nodes are relaxed in
+ * parallel, and costs are lowered with a compare-and-set on their bits, which order the same way as
+ * the costs themselves.
+ *
+ * A small delta makes the search close to Dijkstra's algorithm, with little parallel work per
+ * bucket, while a large delta makes it close to Bellman-Ford, relaxing nodes that are later
+ * improved again. A delta around the average edge weight, times a small factor, is a good start.
+ * The costs found are the same as those of Dijkstra's algorithm.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class DeltaStepping<NodeType> {
+
+  // frontier nodes relaxed by one task, so that small rounds run on the calling thread
+  private static final int GRAIN = 1024;
+  private static final long UNREACHED = Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+
+  private final CsrGraph<NodeType> graph;
+  private final double delta;
+  // edges of each node with a weight of at most delta, and all others, each laid out like CsrGraph
+  private final int[] lightOffsets;
+  private final int[] lightTargets;
+  private final double[] lightWeights;
+  private final int[] heavyOffsets;
+  private final int[] heavyTargets;
+  private final double[] heavyWeights;
+
+  /**
+   * Prepares delta-stepping searches over a graph, with a bucket width of twice the graph's average
+   * edge weight.
+   *
+   * @param graph the frozen graph to search, whose weights must be positive
+   */
+  public DeltaStepping(CsrGraph<NodeType> graph) {
+    this(graph, 2 * averageWeight(graph));
+  }
+
+  /**
+   * Prepares delta-stepping searches over a graph, splitting its edges into light and heavy ones.
+   *
+   * @param graph the frozen graph to search, whose weights must be positive
+   * @param delta the width of each bucket
+   * @throws IllegalArgumentException if delta is not positive
+   */
+  public DeltaStepping(CsrGraph<NodeType> graph, double delta) {
+    if (!(delta > 0) || Double.isInfinite(delta))
+      throw new IllegalArgumentException("Delta must be positive");
+    this.graph = graph;
+    this.delta = delta;
+    int nodeCount = graph.getNodeCount();
+    lightOffsets = new int[nodeCount + 1];
+    heavyOffsets = new int[nodeCount + 1];
+    for (int u = 0; u < nodeCount; u++) {
+      int light = 0;
+      for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++)
+        if (graph.weights[e] <= delta)
+          light++;
+      lightOffsets[u + 1] = lightOffsets[u] + light;
+      heavyOffsets[u + 1] = heavyOffsets[u] + graph.offsets[u + 1] - graph.offsets[u] - light;
+    }
+    lightTargets = new int[lightOffsets[nodeCount]];
+    lightWeights = new double[lightOffsets[nodeCount]];
+    heavyTargets = new int[heavyOffsets[nodeCount]];
+    heavyWeights = new double[heavyOffsets[nodeCount]];
+    for (int u = 0; u < nodeCount; u++) {
+      int light = lightOffsets[u];
+      int heavy = heavyOffsets[u];
+      for (int e = graph.offsets[u]; e < graph.offsets[u + 1]; e++) {
+        if (graph.weights[e] <= delta) {
+          lightTargets[light] = graph.targets[e];
+          lightWeights[light++] = graph.weights[e];
+        } else {
+          heavyTargets[heavy] = graph.targets[e];
+          heavyWeights[heavy++] = graph.weights[e];
+        }
+      }
+    }
+  }
+
+  /**
+   * Return the average weight of the edges of a graph, which delta is best chosen relative to.
+   *
+   * @param graph the graph to average over
+   * @return the average edge weight, or 1 when the graph has no edges of positive weight
+   */
+  public static double averageWeight(CsrGraph<?> graph) {
+    double total = 0;
+    for (double weight : graph.weights)
+      total += weight;
+    return graph.weights.length == 0 || total == 0 ? 1 : total / graph.weights.length;
+  }
+
+  /**
+   * Return the bucket width that these searches use.
+   *
+   * @return delta
+   */
+  public double getDelta() {
+    return delta;
+  }
+
+  /**
+   * Computes the cost of the shortest path from a node to every node of the graph.
+   *
+   * @param source the id of the node that all paths start from
+   * @param pool   the pool whose threads relax the nodes of each bucket
+   * @return the cost to the node with each id, or Double.POSITIVE_INFINITY when it is unreachable
+   */
+  public double[] distances(int source, ForkJoinPool pool) {
+    return new Search(pool).run(source);
+  }
+
+  /**
+   * Computes the shortest path tree from the node containing start, with the predecessor of each
+   * node chosen among the edges entering it whose cost matches the computed costs.
+   *
+   * @param start the data item in the node that all paths start from
+   * @param pool  the pool whose threads relax the nodes of each bucket
+   * @return the shortest path tree rooted at start
+   * @throws NoSuchElementException when start does not correspond to a graph node
+   */
+  public ShortestPathTree<NodeType> shortestPathTree(NodeType start, ForkJoinPool pool) {
+    int source = graph.idOf(start);
+    if (source < 0)
+      throw new NoSuchElementException("No node " + start);
+    double[] dist = distances(source, pool);
+    CsrGraph<NodeType> reversed = graph.reversed();
+    int[] pred = new int[dist.length];
+    // each cost was computed as the cost of some predecessor plus the weight of its edge, and those
+    // sums are repeated exactly here
+    pool.submit(() -> IntStream.range(0, dist.length).parallel().forEach(v -> {
+      pred[v] = -1;
+      if (v == source || dist[v] == Double.POSITIVE_INFINITY)
+        return;
+      for (int e = reversed.offsets[v]; e < reversed.offsets[v + 1]; e++) {
+        int u = reversed.targets[e];
+        if (dist[u] + reversed.weights[e] == dist[v] && dist[u] < dist[v]) {
+          pred[v] = u;
+          return;
+        }
+      }
+    })).join();
+    return new ShortestPathTree<>(graph, source, dist, pred);
+  }
+
+  // A growable list of node ids
+  private static class IdList {
+    private int[] ids = new int[16];
+    private int size = 0;
+
+    private void add(int id) {
+      if (size == ids.length)
+        ids = Arrays.copyOf(ids, 2 * size);
+      ids[size++] = id;
+    }
+  }
+
+  // The state of one search: the cost of every node, and the buckets of its frontier
+  private class Search {
+    private final ForkJoinPool pool;
+    private final AtomicLongArray dist; // bits of the best known cost of each node
+    private final int[] bucketOf; // the bucket each node is queued in, or -1
+    private IdList[] buckets = new IdList[64];
+    private IdList[] improved = new IdList[0]; // nodes whose cost each task lowered
+
+    private Search(ForkJoinPool pool) {
+      this.pool = pool;
+      int nodeCount = graph.getNodeCount();
+      dist = new AtomicLongArray(nodeCount);
+      bucketOf = new int[nodeCount];
+      for (int v = 0; v < nodeCount; v++)
+        dist.set(v, UNREACHED);
+      Arrays.fill(bucketOf, -1);
+    }
+
+    private double[] run(int source) {
+      int nodeCount = graph.getNodeCount();
+      dist.set(source, Double.doubleToRawLongBits(0));
+      queue(source);
+      IdList settled = new IdList(); // nodes settled by the current bucket
+      int[] settledIn = new int[nodeCount]; // one more than the last bucket that settled each node
+      for (int bucket = 0; bucket < buckets.length; bucket++) {
+        settled.size = 0;
+        // relax light edges until no node is left in, or put back into, this bucket
+        while (buckets[bucket] != null && buckets[bucket].size > 0) {
+          IdList frontier = take(bucket);
+          for (int i = 0; i < frontier.size; i++) {
+            int u = frontier.ids[i];
+            if (settledIn[u] != bucket + 1) {
+              settledIn[u] = bucket + 1;
+              settled.add(u);
+            }
+          }
+          relax(frontier, lightOffsets, lightTargets, lightWeights);
+        }
+        // heavy edges lead to later buckets, so they only need to be relaxed once
+        relax(settled, heavyOffsets, heavyTargets, heavyWeights);
+      }
+      double[] costs = new double[nodeCount];
+      for (int v = 0; v < nodeCount; v++)
+        costs[v] = Double.longBitsToDouble(dist.get(v));
+      return costs;
+    }
+
+    private int bucketIndex(int v) {
+      double index = Double.longBitsToDouble(dist.get(v)) / delta;
+      if (index >= Integer.MAX_VALUE - 1)
+        throw new IllegalArgumentException("Delta is too small for the costs of this graph");
+      return (int) index;
+    }
+
+    // Queues a node in the bucket of its current cost, unless it is queued there already
+    private void queue(int v) {
+      int bucket = bucketIndex(v);
+      if (bucketOf[v] == bucket)
+        return;
+      bucketOf[v] = bucket;
+      if (bucket >= buckets.length)
+        buckets = Arrays.copyOf(buckets, Math.max(2 * buckets.length, bucket + 1));
+      if (buckets[bucket] == null)
+        buckets[bucket] = new IdList();
+      buckets[bucket].add(v);
+    }
+
+    // Removes and return the nodes of a bucket, without those that moved to an earlier bucket
+    private IdList take(int bucket) {
+      IdList taken = buckets[bucket];
+      buckets[bucket] = null;
+      int kept = 0;
+      for (int i = 0; i < taken.size; i++) {
+        int v = taken.ids[i];
+        if (bucketOf[v] == bucket) {
+          bucketOf[v] = -1;
+          taken.ids[kept++] = v;
+        }
+      }
+      taken.size = kept;
+      return taken;
+    }
+
+    // Relaxes the provided edges of every node in nodes, in parallel when there are enough nodes,
+    // and then queues every node whose cost was lowered
+    private void relax(IdList nodes, int[] offsets, int[] targets, double[] weights) {
+      int tasks = (nodes.size + GRAIN - 1) / GRAIN;
+      if (improved.length < tasks) {
+        improved = Arrays.copyOf(improved, tasks);
+        for (int task = 0; task < tasks; task++)
+          if (improved[task] == null)
+            improved[task] = new IdList();
+      }
+      if (tasks == 1)
+        relaxRange(nodes, 0, offsets, targets, weights);
+      else if (tasks > 1)
+        pool.submit(() -> IntStream.range(0, tasks).parallel()
+            .forEach(task -> relaxRange(nodes, task, offsets, targets, weights))).join();
+      for (int task = 0; task < tasks; task++) {
+        IdList lowered = improved[task];
+        for (int i = 0; i < lowered.size; i++)
+          queue(lowered.ids[i]);
+        lowered.size = 0;
+      }
+    }
+
+    // Relaxes the edges of the nodes in one task's range of nodes
+    private void relaxRange(IdList nodes, int task, int[] offsets, int[] targets,
+        double[] weights) {
+      IdList lowered = improved[task];
+      for (int i = task * GRAIN, last = Math.min(nodes.size, i + GRAIN); i < last; i++) {
+        int u = nodes.ids[i];
+        double costU = Double.longBitsToDouble(dist.getPlain(u));
+        for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+          int v = targets[e];
+          long cost = Double.doubleToRawLongBits(costU + weights[e]);
+          // lower v's cost unless another task lowered it further first
+          long current = dist.getPlain(v);
+          while (cost < current) {
+            if (dist.compareAndSet(v, current, cost)) {
+              lowered.add(v);
+              break;
+            }
+            current = dist.get(v);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,43 @@
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for DeltaStepping, comparing its parallel searches with DijkstraGraph on a random geometric
+ * graph.
+ */
+public class DeltaSteppingTests {
+
+  /**
+   * Tests that parallel delta-stepping finds the same costs as Dijkstra's algorithm for small and
+   * large bucket widths, and shortest path trees whose paths have those costs.
+   */
+  @Test
+  public void testMatchesDijkstra() {
+    DijkstraGraph<Integer, Double> geometric = SyntheticGraphs.randomGeometric(3000, 6, 25);
+    geometric.freeze();
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (double delta : new double[] {0.01, 0.3, 1, 5, 1000}) {
+        DeltaStepping<Integer> search = new DeltaStepping<>(geometric.snapshot, delta);
+        for (int start = 0; start < 3000; start += 700) {
+          ShortestPathTree<Integer> expected = geometric.shortestPathTree(start);
+          ShortestPathTree<Integer> tree = search.shortestPathTree(start, pool);
+          for (int target = 0; target < 3000; target++) {
+            Assertions.assertEquals(expected.costTo(target), tree.costTo(target));
+            if (tree.isReachable(target) && target % 50 == 0) {
+              List<Integer> path = tree.pathTo(target);
+              double cost = 0;
+              for (int i = 1; i < path.size(); i++)
+                cost += geometric.getEdge(path.get(i - 1), path.get(i));
+              Assertions.assertEquals(expected.costTo(target), cost, 1e-9);
+            }
+          }
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -1,9 +1,21 @@
-import java.util.PriorityQueue;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assertions;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.LinkedList;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
 
 /**
  * This class extends the BaseGraph data structure with additional methods for computing the total
@@ -20,8 +32,9 @@ public class DijkstraGraph<NodeType, EdgeType extends Number> extends BaseGraph<
    * predecessor SearchNode within this path is referened by the predecessor field (this field is
    * null within the SearchNode containing the starting node in its node field).
    *
-   * SearchNodes are Comparable and are sorted by cost so that the lowest cost SearchNode has the
-   * highest priority within a java.util.PriorityQueue.
+   * SearchNodes are Comparable and are sorted by cost. While searching, the frontier is an
+   * IndexedMinHeap of node ids, so each node has at most one SearchNode whose cost and predecessor
+   * are updated in place whenever a cheaper path to that node is found.
    */
   protected class SearchNode implements Comparable<SearchNode> {
     public Node node;
@@ -43,11 +56,631 @@ public class DijkstraGraph<NodeType, EdgeType extends Number> extends BaseGraph<
     }
   }
 
+  /**
+   * The search strategies that path queries on a frozen graph can use.
+   */
+  public enum SearchMode {
+    /** Dijkstra's algorithm from the start node until the end node is settled. */
+    DIJKSTRA,
+    /**
+     * Dijkstra's algorithm from the start node over the graph's edges and from the end node over
+     * reversed edges at the same time, until the two frontiers meet.
+     */
+    BIDIRECTIONAL,
+    /**
+     * A* search guided by the triangle inequality over precomputed landmark costs (ALT). Landmarks
+     * are computed on first use unless prepareLandmarks or setLandmarks is called beforehand.
+     */
+    ALT,
+    /**
+     * A* search guided by the heuristic passed to setHeuristic, such as one based on coordinates.
+     */
+    ASTAR
+  }
+
+  // default number of landmarks computed for ALT search when none were prepared
+  private static final int DEFAULT_LANDMARK_COUNT = 8;
+
+  /**
+   * While this graph is frozen, snapshot holds an immutable CSR copy of its nodes and edges that
+   * path queries run against. Any change to the graph drops this snapshot again (sets it to null).
+   */
+  protected CsrGraph<NodeType> snapshot = null;
+
+  // the search strategy used by path queries while this graph is frozen
+  protected SearchMode searchMode = SearchMode.DIJKSTRA;
+
+  // landmark costs for ALT search over the current snapshot, or null when not yet computed
+  protected volatile Landmarks landmarks = null;
+
+  // false while the nodes and edges of this graph only exist in an adopted snapshot, and their Node
+  // and Edge objects have not been built yet
+  protected volatile boolean materialized = true;
+
+  // heuristic for ASTAR search, or null to search without one
+  protected AStarHeuristic<NodeType> heuristic = null;
+
+  // most recently used shortest path trees by source, guarded by synchronizing on treeCache
+  protected int treeCacheCapacity = 16;
+  protected final LinkedHashMap<NodeType, ShortestPathTree<NodeType>> treeCache =
+      new LinkedHashMap<NodeType, ShortestPathTree<NodeType>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<NodeType, ShortestPathTree<NodeType>> e) {
+          return size() > treeCacheCapacity;
+        }
+      };
+
   /**
    * Constructor that sets the map that the graph uses.
    */
   public DijkstraGraph() {
-    super(new HashtableMap<>());
+    super(new OpenAddressingMap<>());
+  }
+
+  /**
+   * Creates a graph that uses the provided map, such as a HashtableMap, instead of an
+   * OpenAddressingMap. This is a factory rather than a second constructor, since JUnit only runs
+   * the tests in this class while it declares a single constructor.
+   *
+   * @param map the map the graph uses to map a data object to the node object it is stored in
+   * @return a new graph that stores its nodes in the provided map
+   */
+  public static <NodeType, EdgeType extends Number> DijkstraGraph<NodeType, EdgeType> withMap(
+      MapADT<NodeType, DijkstraGraph<NodeType, EdgeType>.Node> map) {
+    DijkstraGraph<NodeType, EdgeType> graph = new DijkstraGraph<>();
+    graph.nodes = map;
+    return graph;
+  }
+
+  /**
+   * Freezes this graph into an immutable CSR snapshot, so that the following shortestPathData and
+   * shortestPathCost queries run over flat primitive arrays instead of Node and Edge objects. The
+   * graph can still be modified after freezing, but any change thaws it (discards the snapshot)
+   * until freeze is called again.
+   */
+  public void freeze() {
+    freezeSnapshot();
+  }
+
+  /**
+   * Builds the CSR snapshot that freeze describes, and nothing that subclasses add to freezing.
+   * Queries from one node to many, like shortestPathTree, freeze the graph through this method,
+   * since they search the plain snapshot and would never use those additions.
+   */
+  protected void freezeSnapshot() {
+    if (!materialized)
+      return; // the adopted snapshot is still current
+    int nodeCount = nodeList.size();
+    Object[] nodeData = new Object[nodeCount];
+    int[] offsets = new int[nodeCount + 1];
+    for (Node node : nodeList) {
+      nodeData[node.id] = node.data;
+      offsets[node.id + 1] = node.edgesLeaving.size();
+    }
+    for (int id = 0; id < nodeCount; id++)
+      offsets[id + 1] += offsets[id];
+    int[] targets = new int[offsets[nodeCount]];
+    double[] weights = new double[offsets[nodeCount]];
+    for (Node node : nodeList) {
+      int edgeIndex = offsets[node.id];
+      for (Edge edge : node.edgesLeaving) {
+        targets[edgeIndex] = edge.successor.id;
+        weights[edgeIndex] = edge.data.doubleValue();
+        edgeIndex++;
+      }
+    }
+    snapshot = new CsrGraph<>(nodeData, offsets, targets, weights);
+  }
+
+  /**
+   * Makes an empty graph frozen with a snapshot that was built elsewhere, such as one loaded from a
+   * GraphSnapshotFile. Path queries run against the snapshot right away, while the Node and Edge
+   * objects of this graph are only built from it the first time the graph is modified; nodes and
+   * edges are read from the snapshot until then. Snapshots store weights as doubles, so EdgeType
+   * must be Double to modify the graph or read its edges.
+   *
+   * @param graph     the snapshot to adopt
+   * @param landmarks the landmarks computed for that snapshot, or null when there are none
+   * @throws IllegalStateException    if this graph is not empty
+   * @throws IllegalArgumentException if the landmarks were computed for a different graph
+   */
+  public void adoptSnapshot(CsrGraph<NodeType> graph, Landmarks landmarks) {
+    if (getNodeCount() != 0)
+      throw new IllegalStateException("Only an empty graph can adopt a snapshot");
+    if (landmarks != null && !landmarks.matches(graph))
+      throw new IllegalArgumentException("Landmarks were computed for a different graph");
+    graphChanged();
+    materialized = false;
+    snapshot = graph;
+    this.landmarks = landmarks;
+    modificationCount++;
+  }
+
+  /**
+   * Builds the Node and Edge objects of a graph that adopted a snapshot, if they are not built yet.
+   * The snapshot stays current, since it already holds exactly these nodes and edges.
+   */
+  @SuppressWarnings("unchecked")
+  protected synchronized void materialize() {
+    if (materialized)
+      return;
+    CsrGraph<NodeType> graph = snapshot;
+    long modifications = modificationCount; // building the same graph again is not a change
+    for (int id = 0; id < graph.getNodeCount(); id++)
+      super.insertNode(graph.data(id));
+    for (int u = 0; u < graph.getNodeCount(); u++)
+      for (int e = graph.firstEdge(u); e < graph.firstEdge(u + 1); e++)
+        super.insertEdge(graph.data(u), graph.data(graph.target(e)),
+            (EdgeType) Double.valueOf(graph.weight(e)));
+    modificationCount = modifications;
+    materialized = true;
+  }
+
+  /**
+   * Check whether path queries currently run against a frozen CSR snapshot of this graph.
+   *
+   * @return true if this graph is frozen and has not been modified since, or false otherwise
+   */
+  public boolean isFrozen() {
+    return snapshot != null;
+  }
+
+  /**
+   * Sets the search strategy that path queries use while this graph is frozen. Queries on a graph
+   * that is not frozen always search its Node and Edge objects with Dijkstra's algorithm.
+   *
+   * @param searchMode the search strategy to use
+   */
+  public void setSearchMode(SearchMode searchMode) {
+    if (searchMode == null)
+      throw new NullPointerException("Search mode cannot be null");
+    this.searchMode = searchMode;
+  }
+
+  /**
+   * Return the search strategy that path queries use while this graph is frozen.
+   *
+   * @return the current search strategy
+   */
+  public SearchMode getSearchMode() {
+    return searchMode;
+  }
+
+  /**
+   * Picks count landmarks in the frozen snapshot of this graph and precomputes the costs to and
+   * from them, for use by ALT search. This freezes the graph first when it is not frozen. Landmarks
+   * are discarded whenever the graph changes.
+   *
+   * @param count the number of landmarks, where more landmarks give tighter estimates but take more
+   *              memory (two doubles per node and landmark) and time per settled node
+   * @return the computed landmarks, which can be saved and later restored with setLandmarks
+   */
+  public Landmarks prepareLandmarks(int count) {
+    if (snapshot == null)
+      freezeSnapshot();
+    CsrGraph<NodeType> graph = snapshot;
+    Landmarks selected = Landmarks.select(graph, count);
+    synchronized (this) {
+      if (snapshot == graph)
+        landmarks = selected;
+    }
+    return selected;
+  }
+
+  /**
+   * Return the landmarks of a snapshot of this graph, selecting DEFAULT_LANDMARK_COUNT of them the
+   * first time an ALT search needs them. Concurrent searches select them only once, and they are
+   * only kept while graph is still the current snapshot.
+   *
+   * @param graph the snapshot being searched
+   * @return the landmarks to search graph with
+   */
+  protected Landmarks landmarksFor(CsrGraph<NodeType> graph) {
+    Landmarks current = landmarks;
+    if (current != null)
+      return current;
+    synchronized (this) {
+      current = landmarks;
+      if (current == null) {
+        current = Landmarks.select(graph, DEFAULT_LANDMARK_COUNT);
+        if (snapshot == graph)
+          landmarks = current;
+      }
+      return current;
+    }
+  }
+
+  /**
+   * Restores landmarks that were previously computed for this graph, for example after reading them
+   * from a file with Landmarks.readFrom.
+   *
+   * @param landmarks the landmarks to use for ALT search
+   * @throws IllegalStateException    if this graph is not frozen
+   * @throws IllegalArgumentException if the landmarks were computed for a different graph
+   */
+  public synchronized void setLandmarks(Landmarks landmarks) {
+    CsrGraph<NodeType> graph = snapshot;
+    if (graph == null)
+      throw new IllegalStateException("Graph must be frozen before setting landmarks");
+    if (!landmarks.matches(graph))
+      throw new IllegalArgumentException("Landmarks were computed for a different graph");
+    this.landmarks = landmarks;
+  }
+
+  /**
+   * Return the landmarks used by ALT search.
+   *
+   * @return the current landmarks, or null when none have been computed for the current snapshot
+   */
+  public Landmarks getLandmarks() {
+    return landmarks;
+  }
+
+  /**
+   * Sets the heuristic that guides the ASTAR search mode.
+   *
+   * @param heuristic an admissible heuristic, or null to make ASTAR search behave like Dijkstra's
+   */
+  public void setHeuristic(AStarHeuristic<NodeType> heuristic) {
+    this.heuristic = heuristic;
+  }
+
+  /**
+   * Returns the number of nodes settled by the most recent shortestPathData or shortestPathCost
+   * query made by the calling thread. Running the same query once in DIJKSTRA mode and once in
+   * another mode shows how much work the faster mode saves.
+   *
+   * @return the number of nodes settled by this thread's last query
+   */
+  public int getLastSettledCount() {
+    return SearchWorkspace.forCurrentThread().getSettledCount();
+  }
+
+  /**
+   * Returns the tree of shortest paths from one node to every other node, computed by a single
+   * complete run of Dijkstra's algorithm over the frozen snapshot of this graph (the graph is
+   * frozen first when it is not). The most recently used trees are cached by source, so later
+   * queries from the same source reuse them, until any change to the graph clears the cache.
+   *
+   * @param start the data item in the source node of the tree
+   * @return the shortest path tree rooted at start
+   * @throws NoSuchElementException when start does not correspond to a graph node
+   */
+  public ShortestPathTree<NodeType> shortestPathTree(NodeType start) {
+    synchronized (treeCache) {
+      ShortestPathTree<NodeType> tree = treeCache.get(start);
+      if (tree != null)
+        return tree;
+    }
+    if (snapshot == null)
+      freezeSnapshot();
+    CsrGraph<NodeType> graph = snapshot;
+    int source = graph.idOf(start);
+    if (source < 0)
+      throw new NoSuchElementException("No node " + start);
+    int nodeCount = graph.getNodeCount();
+    double[] dist = new double[nodeCount];
+    int[] pred = new int[nodeCount];
+    Arrays.fill(dist, Double.POSITIVE_INFINITY);
+    Arrays.fill(pred, -1);
+    // only the frontier of the workspace is needed, the tree keeps its own dist and pred arrays
+    SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+    workspace.begin(nodeCount);
+    IndexedMinHeap frontier = workspace.frontier();
+    dist[source] = 0;
+    frontier.insertOrDecrease(source, 0);
+    while (!frontier.isEmpty()) {
+      int u = workspace.settle();
+      for (int e = graph.offsets[u], last = graph.offsets[u + 1]; e < last; e++) {
+        int v = graph.targets[e];
+        double cost = dist[u] + graph.weights[e];
+        if (cost < dist[v]) {
+          dist[v] = cost;
+          pred[v] = u;
+          frontier.insertOrDecrease(v, cost);
+        }
+      }
+    }
+    ShortestPathTree<NodeType> tree = new ShortestPathTree<>(graph, source, dist, pred);
+    synchronized (treeCache) {
+      // only cache trees of the current snapshot, in case the graph changed during this search
+      if (graph == snapshot)
+        treeCache.put(start, tree);
+    }
+    return tree;
+  }
+
+  /**
+   * Returns every node that can be reached from the start node by a path whose cost is within the
+   * provided budget, along with the cost of the cheapest such path, in order of increasing cost.
+   * This runs Dijkstra's algorithm over the frozen snapshot of this graph (freezing it first when
+   * needed), and stops as soon as the cheapest queued node is over budget, so its running time
+   * depends on the size of the reachable region rather than on the size of the whole graph.
+   *
+   * @param start  the data item in the node all paths start from
+   * @param budget the maximum cost (inclusive) of a path to a returned node
+   * @return the reachable nodes other than start and their costs, cheapest first
+   * @throws NoSuchElementException when start does not correspond to a graph node
+   */
+  public List<Arrival<NodeType>> reachableWithin(NodeType start, double budget) {
+    if (snapshot == null)
+      freezeSnapshot();
+    CsrGraph<NodeType> graph = snapshot;
+    int source = graph.idOf(start);
+    if (source < 0)
+      throw new NoSuchElementException("No node " + start);
+    List<Arrival<NodeType>> reachable = new ArrayList<>();
+    SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+    workspace.begin(graph.getNodeCount());
+    IndexedMinHeap frontier = workspace.frontier();
+    workspace.reach(source, 0, -1);
+    // nodes are settled in order of increasing cost, so stop at the first one over budget
+    while (!frontier.isEmpty() && frontier.peekPriority() <= budget) {
+      int u = workspace.settle();
+      double costU = workspace.dist(u);
+      if (u != source)
+        reachable.add(new Arrival<>(graph.data(u), costU));
+      for (int e = graph.offsets[u], last = graph.offsets[u + 1]; e < last; e++) {
+        int v = graph.targets[e];
+        double cost = costU + graph.weights[e];
+        // paths that are already over budget are never queued
+        if (cost <= budget && cost < workspace.dist(v))
+          workspace.reach(v, cost, u);
+      }
+    }
+    return reachable;
+  }
+
+  /**
+   * Computes the shortest path cost from every source node to every target node. Each source runs
+   * one search over the frozen snapshot of this graph (freezing it first when needed), which stops
+   * once all of the targets are settled. The searches for different sources run in parallel as
+   * tasks of the provided executor, each in the pooled workspace of the thread that runs it.
+   *
+   * @param sources  the data items in the source nodes, one per row
+   * @param targets  the data items in the target nodes, one per column
+   * @param executor runs the search for each source, such as ForkJoinPool.commonPool()
+   * @return the matrix of costs, where pairs with no path between them have a cost of -1
+   * @throws NoSuchElementException when any source or target does not correspond to a graph node
+   */
+  public TravelTimeMatrix<NodeType> travelTimeMatrix(List<NodeType> sources,
+      List<NodeType> targets, Executor executor) {
+    if (snapshot == null)
+      freezeSnapshot();
+    CsrGraph<NodeType> graph = snapshot;
+    int[] sourceIds = idsOf(graph, sources);
+    int[] targetIds = idsOf(graph, targets);
+    double[][] values = new double[sourceIds.length][];
+    CompletableFuture<?>[] tasks = new CompletableFuture<?>[sourceIds.length];
+    for (int i = 0; i < sourceIds.length; i++) {
+      int row = i;
+      tasks[row] = CompletableFuture.runAsync(() -> {
+        SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+        computeToTargets(graph, sourceIds[row], targetIds, workspace);
+        double[] costs = new double[targetIds.length];
+        for (int column = 0; column < targetIds.length; column++)
+          costs[column] = workspace.isReached(targetIds[column])
+              ? workspace.dist(targetIds[column]) : -1;
+        values[row] = costs;
+      }, executor);
+    }
+    CompletableFuture.allOf(tasks).join();
+    return new TravelTimeMatrix<>(sources, targets, values);
+  }
+
+  /**
+   * Runs Dijkstra's algorithm over a frozen CSR snapshot from the node with id start, until every
+   * node in targets is settled (or no more nodes can be reached). Afterwards, each target is
+   * reached in the workspace exactly when there is a path to it, and its dist is the cost of the
+   * shortest one.
+   *
+   * @param graph     the snapshot to search through
+   * @param start     the id of the starting node for all paths
+   * @param targets   the ids of the destination nodes
+   * @param workspace the workspace to run this search in
+   */
+  protected void computeToTargets(CsrGraph<NodeType> graph, int start, int[] targets,
+      SearchWorkspace workspace) {
+    int[] offsets = graph.offsets;
+    int[] ids = graph.targets;
+    double[] weights = graph.weights;
+    workspace.begin(graph.getNodeCount());
+    IndexedMinHeap frontier = workspace.frontier();
+    workspace.reach(start, 0, -1);
+    int pending = 0; // targets before this index are known to be settled
+    while (!frontier.isEmpty()) {
+      // a node is settled once it has been reached and is no longer queued
+      while (pending < targets.length && workspace.isReached(targets[pending])
+          && !frontier.contains(targets[pending]))
+        pending++;
+      if (pending == targets.length)
+        return;
+      int u = workspace.settle();
+      double costU = workspace.dist(u);
+      for (int e = offsets[u], last = offsets[u + 1]; e < last; e++) {
+        int v = ids[e];
+        double cost = costU + weights[e];
+        if (cost < workspace.dist(v))
+          workspace.reach(v, cost, u);
+      }
+    }
+  }
+
+  /**
+   * Computes the shortest paths between many pairs of nodes at once. Pairs are grouped by their
+   * start node, and each distinct start runs a single search over the frozen snapshot of this graph
+   * (freezing it first when needed) that stops once all of its ends are settled, so pairs sharing a
+   * start share one search. The searches for different starts run in parallel as tasks of the
+   * provided executor, each in the pooled workspace of the thread that runs it.
+   *
+   * @param pairs    the start and end data items of each path
+   * @param executor runs the search for each distinct start, such as ForkJoinPool.commonPool()
+   * @return the path for each pair, in the order of pairs, where the path of a pair is null when
+   *         either of its nodes is missing or there is no path from its start to its end
+   */
+  public List<List<NodeType>> shortestPathsData(
+      List<? extends Map.Entry<NodeType, NodeType>> pairs, Executor executor) {
+    if (snapshot == null)
+      freezeSnapshot();
+    CsrGraph<NodeType> graph = snapshot;
+    // indexes of the pairs that start at each node, in the order their starts first appear
+    Map<Integer, List<Integer>> pairsByStart = new LinkedHashMap<>();
+    int[] endIds = new int[pairs.size()];
+    int index = 0;
+    for (Map.Entry<NodeType, NodeType> pair : pairs) {
+      int startId = graph.idOf(pair.getKey());
+      endIds[index] = graph.idOf(pair.getValue());
+      if (startId >= 0 && endIds[index] >= 0)
+        pairsByStart.computeIfAbsent(startId, id -> new ArrayList<>()).add(index);
+      index++;
+    }
+    List<List<NodeType>> paths = new ArrayList<>(Collections.nCopies(pairs.size(), null));
+    List<CompletableFuture<?>> tasks = new ArrayList<>();
+    for (Map.Entry<Integer, List<Integer>> group : pairsByStart.entrySet()) {
+      tasks.add(CompletableFuture.runAsync(() -> {
+        List<Integer> indexes = group.getValue();
+        int[] targetIds = new int[indexes.size()];
+        for (int i = 0; i < targetIds.length; i++)
+          targetIds[i] = endIds[indexes.get(i)];
+        SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+        computeToTargets(graph, group.getKey(), targetIds, workspace);
+        // each task sets different elements, which allOf publishes to this thread
+        for (int i = 0; i < targetIds.length; i++)
+          if (workspace.isReached(targetIds[i]))
+            paths.set(indexes.get(i),
+                graph.pathData(pathIds(workspace.predecessors(), targetIds[i])));
+      }, executor));
+    }
+    CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+    return paths;
+  }
+
+  // Return the snapshot id of each data item, or throw when one is not in the graph
+  private static <NodeType> int[] idsOf(CsrGraph<NodeType> graph, List<NodeType> data) {
+    int[] ids = new int[data.size()];
+    int index = 0;
+    for (NodeType item : data) {
+      ids[index] = graph.idOf(item);
+      if (ids[index++] < 0)
+        throw new NoSuchElementException("No node " + item);
+    }
+    return ids;
+  }
+
+  /**
+   * Sets how many shortest path trees are cached, evicting the least recently used trees first.
+   *
+   * @param capacity the maximum number of cached trees, or 0 to disable caching
+   */
+  public void setTreeCacheCapacity(int capacity) {
+    if (capacity < 0)
+      throw new IllegalArgumentException("Capacity cannot be negative");
+    synchronized (treeCache) {
+      treeCacheCapacity = capacity;
+      while (treeCache.size() > capacity)
+        treeCache.remove(treeCache.keySet().iterator().next());
+    }
+  }
+
+  /**
+   * Called after every successful change to the nodes or edges of this graph.
+   */
+  protected void graphChanged() {
+    snapshot = null;
+    landmarks = null;
+    synchronized (treeCache) {
+      treeCache.clear();
+    }
+  }
+
+  @Override
+  public boolean containsNode(NodeType data) {
+    if (!materialized)
+      return snapshot.idOf(data) >= 0;
+    return super.containsNode(data);
+  }
+
+  @Override
+  public int getNodeCount() {
+    if (!materialized)
+      return snapshot.getNodeCount();
+    return super.getNodeCount();
+  }
+
+  @Override
+  public int getEdgeCount() {
+    if (!materialized)
+      return snapshot.getEdgeCount();
+    return super.getEdgeCount();
+  }
+
+  @Override
+  public boolean containsEdge(NodeType pred, NodeType succ) {
+    if (!materialized)
+      return snapshotEdge(pred, succ) >= 0;
+    return super.containsEdge(pred, succ);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public EdgeType getEdge(NodeType pred, NodeType succ) {
+    if (!materialized) {
+      int edge = snapshotEdge(pred, succ);
+      if (edge < 0)
+        throw new NoSuchElementException("No edge from " + pred + " to " + succ);
+      return (EdgeType) Double.valueOf(snapshot.weight(edge));
+    }
+    return super.getEdge(pred, succ);
+  }
+
+  // Return the index in the adopted snapshot of the edge from pred to succ, or -1 when there is no
+  // such edge, by scanning the edges leaving pred
+  private int snapshotEdge(NodeType pred, NodeType succ) {
+    CsrGraph<NodeType> graph = snapshot;
+    int u = graph.idOf(pred);
+    int v = graph.idOf(succ);
+    if (u < 0 || v < 0)
+      return -1;
+    for (int e = graph.firstEdge(u); e < graph.firstEdge(u + 1); e++)
+      if (graph.target(e) == v)
+        return e;
+    return -1;
+  }
+
+  @Override
+  public boolean insertNode(NodeType data) {
+    materialize();
+    boolean changed = super.insertNode(data);
+    if (changed)
+      graphChanged();
+    return changed;
+  }
+
+  @Override
+  public boolean removeNode(NodeType data) {
+    materialize();
+    boolean changed = super.removeNode(data);
+    if (changed)
+      graphChanged();
+    return changed;
+  }
+
+  @Override
+  public boolean insertEdge(NodeType pred, NodeType succ, EdgeType weight) {
+    materialize();
+    boolean changed = super.insertEdge(pred, succ, weight);
+    if (changed)
+      graphChanged();
+    return changed;
+  }
+
+  @Override
+  public boolean removeEdge(NodeType pred, NodeType succ) {
+    materialize();
+    boolean changed = super.removeEdge(pred, succ);
+    if (changed)
+      graphChanged();
+    return changed;
   }
 
   /**
@@ -64,42 +697,307 @@ public class DijkstraGraph<NodeType, EdgeType extends Number> extends BaseGraph<
    *                                end data do not correspond to a graph node
    */
   protected SearchNode computeShortestPath(NodeType start, NodeType end) {
-    // Initialize priority queue to store search nodes
-    PriorityQueue<SearchNode> queue = new PriorityQueue<>();
-    // Initialize map to store visited nodes and their corresponding search nodes
-    MapADT<NodeType, SearchNode> visited = new HashtableMap<>();
-    // Create the initial search node for the start node
-    SearchNode startNode = new SearchNode(nodes.get(start), 0, null);
-    queue.add(startNode);
-    // Continue searching until the priority queue is empty
-    while (!queue.isEmpty()) {
-      // Remove the search node with the lowest cost from the priority queue
-      SearchNode current = queue.poll();
+    SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+    int endId = computeShortestPath(nodes.get(start), end, workspace);
+    if (endId < 0)
+      throw new NoSuchElementException("Invalid Path");
+    // Link search nodes along the shortest path only, from the start node towards the end node
+    SearchNode searchNode = null;
+    for (int id : pathIds(workspace.predecessors(), endId))
+      searchNode = new SearchNode(nodeList.get(id), workspace.dist(id), searchNode);
+    return searchNode;
+  }
+
+  /**
+   * Runs Dijkstra's algorithm over the Node and Edge objects of this graph, from the provided start
+   * node until the node containing the end data is settled. The costs and predecessors of all
+   * reached nodes are left in the provided workspace, indexed by node id.
+   *
+   * @param first     the starting node for the path
+   * @param end       the data item in the destination node for the path
+   * @param workspace the workspace to run this search in
+   * @return the id of the end node, or -1 when no path from start to end is found
+   */
+  protected int computeShortestPath(Node first, NodeType end, SearchWorkspace workspace) {
+    workspace.begin(nodeList.size());
+    IndexedMinHeap frontier = workspace.frontier();
+    workspace.reach(first.id, 0, -1);
+    // Continue searching until the frontier is empty
+    while (!frontier.isEmpty()) {
+      // Remove the node with the lowest cost from the frontier, its cost is now final
+      Node current = nodeList.get(workspace.settle());
       // Check if we have reached the end node
-      if (current.node.data.equals(end)) {
-        return current; // Return the search node representing the end of the shortest path
-      }
-      // Check if the current node has already been visited
-      if (visited.containsKey(current.node.data)) {
-        continue; // Skip this node if it has already been visited
-      }
-      // Mark the current node as visited
-      visited.put(current.node.data, current);
+      if (current.data.equals(end))
+        return current.id;
+      double currentCost = workspace.dist(current.id);
       // Explore neighboring nodes (successors of the current node)
-      for (Edge edge : current.node.edgesLeaving) {
-        Node successor = edge.successor;
+      for (Edge edge : current.edgesLeaving) {
         // Calculate the cost of reaching the successor node via the current path
-        double cost = current.cost + edge.data.doubleValue();
-        // Create a new search node for the successor node
-        SearchNode successorNode = new SearchNode(successor, cost, current);
-        // Add the successor node to the priority queue
-        queue.add(successorNode);
+        double cost = currentCost + edge.data.doubleValue();
+        // and record it when it is cheaper than any path to the successor found so far
+        if (cost < workspace.dist(edge.successor.id))
+          workspace.reach(edge.successor.id, cost, current.id);
       }
     }
     // If we reach this point, no path from start to end exists
-    throw new NoSuchElementException("Invalid Path");
+    return -1;
+  }
+
+  /**
+   * Runs Dijkstra's algorithm over a frozen CSR snapshot of this graph, from the node with id start
+   * until the node with id end is settled. The costs and predecessors of all reached nodes are left
+   * in the provided workspace.
+   *
+   * @param graph     the snapshot to search through
+   * @param start     the id of the starting node for the path
+   * @param end       the id of the destination node for the path
+   * @param workspace the workspace to run this search in
+   * @return true if a path from start to end was found, or false otherwise
+   */
+  protected boolean computeSnapshotPath(CsrGraph<NodeType> graph, int start, int end,
+      SearchWorkspace workspace) {
+    int[] offsets = graph.offsets;
+    int[] targets = graph.targets;
+    double[] weights = graph.weights;
+    workspace.begin(graph.getNodeCount());
+    IndexedMinHeap frontier = workspace.frontier();
+    workspace.reach(start, 0, -1);
+    while (!frontier.isEmpty()) {
+      int u = workspace.settle();
+      if (u == end)
+        return true;
+      double costU = workspace.dist(u);
+      // relax every edge leaving u through the flat offsets, targets and weights arrays
+      for (int e = offsets[u], last = offsets[u + 1]; e < last; e++) {
+        int v = targets[e];
+        double cost = costU + weights[e];
+        if (cost < workspace.dist(v))
+          workspace.reach(v, cost, u);
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Runs a bidirectional version of Dijkstra's algorithm over a frozen CSR snapshot: one search
+   * grows from the start node over the graph's edges in the provided workspace, while another grows
+   * from the end node over reversed edges in that workspace's companion. The searches take turns
+   * (always advancing the smaller frontier), and stop once the lowest costs in the two frontiers
+   * add up to no less than the cheapest path found through a node reached by both searches.
+   *
+   * @param graph     the snapshot to search through
+   * @param start     the id of the starting node for the path
+   * @param end       the id of the destination node for the path
+   * @param workspace the workspace to run the forward search in
+   * @return the id of the node where the forward and backward halves of the shortest path meet, or
+   *         -1 when no path from start to end is found
+   */
+  protected int computeBidirectionalPath(CsrGraph<NodeType> graph, int start, int end,
+      SearchWorkspace workspace) {
+    CsrGraph<NodeType> reverse = graph.reversed();
+    SearchWorkspace forward = workspace;
+    SearchWorkspace backward = workspace.companion();
+    forward.begin(graph.getNodeCount());
+    backward.begin(graph.getNodeCount());
+    forward.reach(start, 0, -1);
+    backward.reach(end, 0, -1);
+    double best = start == end ? 0 : Double.POSITIVE_INFINITY;
+    int meet = start == end ? start : -1;
+    IndexedMinHeap forwardFrontier = forward.frontier();
+    IndexedMinHeap backwardFrontier = backward.frontier();
+    while (!forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()
+        && forwardFrontier.peekPriority() + backwardFrontier.peekPriority() < best) {
+      // advance whichever search has the smaller frontier by settling one node
+      boolean isForward = forwardFrontier.getSize() <= backwardFrontier.getSize();
+      CsrGraph<NodeType> side = isForward ? graph : reverse;
+      SearchWorkspace here = isForward ? forward : backward;
+      SearchWorkspace there = isForward ? backward : forward;
+      int u = here.frontier().poll();
+      forward.settledCount++; // nodes settled by both halves are counted on the forward workspace
+      double costU = here.dist(u);
+      for (int e = side.offsets[u], last = side.offsets[u + 1]; e < last; e++) {
+        int v = side.targets[e];
+        double cost = costU + side.weights[e];
+        if (cost < here.dist(v))
+          here.reach(v, cost, u);
+        // whenever both searches have reached v, the paths through v join start to end
+        if (there.isReached(v) && here.dist(v) + there.dist(v) < best) {
+          best = here.dist(v) + there.dist(v);
+          meet = v;
+        }
+      }
+    }
+    return meet;
+  }
+
+  /**
+   * Runs A* search over a frozen CSR snapshot, from the node with id start until the node with id
+   * end is settled. Nodes are prioritized by their cost plus an estimate of their remaining cost to
+   * the end node, taken from the provided landmarks or else from the ASTAR heuristic. A node whose
+   * cost later improves is queued again, so admissible heuristics that are not consistent still
+   * give shortest paths.
+   *
+   * @param graph     the snapshot to search through
+   * @param start     the id of the starting node for the path
+   * @param end       the id of the destination node for the path
+   * @param landmarks the landmarks to estimate remaining costs with, or null to use the heuristic
+   * @param workspace the workspace to run this search in
+   * @return true if a path from start to end was found, or false otherwise
+   */
+  protected boolean computeAStarPath(CsrGraph<NodeType> graph, int start, int end,
+      Landmarks landmarks, SearchWorkspace workspace) {
+    AStarHeuristic<NodeType> heuristic = this.heuristic;
+    NodeType endData = graph.data(end);
+    int[] offsets = graph.offsets;
+    int[] targets = graph.targets;
+    double[] weights = graph.weights;
+    workspace.begin(graph.getNodeCount());
+    IndexedMinHeap frontier = workspace.frontier();
+    workspace.reach(start, 0, -1);
+    while (!frontier.isEmpty()) {
+      int u = workspace.settle();
+      if (u == end)
+        return true;
+      double costU = workspace.dist(u);
+      for (int e = offsets[u], last = offsets[u + 1]; e < last; e++) {
+        int v = targets[e];
+        double cost = costU + weights[e];
+        if (cost < workspace.dist(v)) {
+          double estimate = landmarks != null ? landmarks.lowerBound(v, end)
+              : heuristic != null ? heuristic.estimate(graph.data(v), endData) : 0;
+          if (estimate != Double.POSITIVE_INFINITY)
+            workspace.reach(v, cost, u, cost + estimate);
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Searches a frozen CSR snapshot with the current search mode.
+   *
+   * @param graph     the snapshot to search through
+   * @param start     the id of the starting node for the path
+   * @param end       the id of the destination node for the path
+   * @param workspace the workspace to run this search in
+   * @return the id of the node where the forward half of the shortest path (kept in workspace) ends
+   *         and the backward half (kept in its companion) begins, or -1 when no path is found
+   */
+  protected int searchSnapshot(CsrGraph<NodeType> graph, int start, int end,
+      SearchWorkspace workspace) {
+    switch (searchMode) {
+      case BIDIRECTIONAL:
+        return computeBidirectionalPath(graph, start, end, workspace);
+      case ALT:
+        return computeAStarPath(graph, start, end, landmarksFor(graph), workspace) ? end : -1;
+      case ASTAR:
+        return computeAStarPath(graph, start, end, null, workspace) ? end : -1;
+      default:
+        return computeSnapshotPath(graph, start, end, workspace) ? end : -1;
+    }
   }
 
+  // Return the cost of the path found by searchSnapshot, which passes through the node meet
+  protected static double snapshotPathCost(SearchWorkspace workspace, int meet, int end) {
+    if (meet == end)
+      return workspace.dist(end);
+    return workspace.dist(meet) + workspace.companion().dist(meet);
+  }
+
+  // Return the ids along the path found by searchSnapshot, which passes through the node meet
+  protected static int[] snapshotPathIds(SearchWorkspace workspace, int meet, int end) {
+    int[] forwardIds = pathIds(workspace.predecessors(), meet);
+    if (meet == end)
+      return forwardIds;
+    // the companion's predecessors lead from meet towards end along the backward half of the path
+    SearchWorkspace backward = workspace.companion();
+    int length = forwardIds.length;
+    for (int id = meet; id != end; id = backward.pred(id))
+      length++;
+    int[] path = Arrays.copyOf(forwardIds, length);
+    int index = forwardIds.length;
+    for (int id = backward.pred(meet); index < length; id = backward.pred(id))
+      path[index++] = id;
+    return path;
+  }
+
+  // Return the ids along the chain of predecessors that ends at end, ordered from start to end
+  private static int[] pathIds(int[] pred, int end) {
+    int length = 0;
+    for (int id = end; id != -1; id = pred[id])
+      length++;
+    int[] path = new int[length];
+    for (int id = end; id != -1; id = pred[id])
+      path[--length] = id;
+    return path;
+  }
+
+  /**
+   * Finds the shortest path between two nodes of a frozen CSR snapshot, with the current search
+   * mode.
+   *
+   * @param graph     the snapshot to search through
+   * @param start     the data item in the starting node for the path
+   * @param end       the data item in the destination node for the path
+   * @param workspace the workspace to run this search in
+   * @return the ids of the nodes along the shortest path, ordered from start to end
+   * @throws NoSuchElementException when no path from start to end is found or when either start or
+   *                                end data do not correspond to a graph node
+   */
+  protected int[] snapshotPath(CsrGraph<NodeType> graph, NodeType start, NodeType end,
+      SearchWorkspace workspace) {
+    int startId = graph.idOf(start);
+    int endId = graph.idOf(end);
+    int meet = startId < 0 || endId < 0 ? -1 : searchSnapshot(graph, startId, endId, workspace);
+    if (meet < 0)
+      throw new NoSuchElementException("Invalid Path");
+    return snapshotPathIds(workspace, meet, endId);
+  }
+
+  /**
+   * Returns the nodes along the shortest path from start to end together with the cost of each
+   * edge along it, both from a single search. Leg costs are read from the edges of the searched
+   * graph, so a graph that adopted a snapshot does not build its Node and Edge objects for them.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end   the data item in the destination node for the path
+   * @return the path from start to end and the cost of each of its legs
+   * @throws NoSuchElementException when no path from start to end is found or when either start or
+   *                                end data do not correspond to a graph node
+   */
+  public RouteCache.Route<NodeType> shortestRoute(NodeType start, NodeType end) {
+    SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+    CsrGraph<NodeType> graph = snapshot;
+    if (graph != null) {
+      int[] pathIds = snapshotPath(graph, start, end, workspace);
+      List<Double> legCosts = new ArrayList<>(pathIds.length);
+      for (int i = 0; i < pathIds.length - 1; i++) {
+        // the cheapest edge between consecutive nodes is the one the path takes
+        double cost = Double.POSITIVE_INFINITY;
+        for (int e = graph.offsets[pathIds[i]]; e < graph.offsets[pathIds[i] + 1]; e++)
+          if (graph.targets[e] == pathIds[i + 1])
+            cost = Math.min(cost, graph.weights[e]);
+        legCosts.add(cost);
+      }
+      return new RouteCache.Route<>(graph.pathData(pathIds), legCosts);
+    }
+    if (!nodes.containsKey(start))
+      throw new NoSuchElementException("Invalid Path");
+    int endId = computeShortestPath(nodes.get(start), end, workspace);
+    if (endId < 0)
+      throw new NoSuchElementException("Invalid Path");
+    int[] pathIds = pathIds(workspace.predecessors(), endId);
+    List<NodeType> path = new ArrayList<>(pathIds.length);
+    List<Double> legCosts = new ArrayList<>(pathIds.length);
+    for (int i = 0; i < pathIds.length; i++) {
+      path.add(nodeList.get(pathIds[i]).data);
+      if (i > 0)
+        for (Edge edge : nodeList.get(pathIds[i - 1]).edgesLeaving)
+          if (edge.successor.id == pathIds[i])
+            legCosts.add(edge.data.doubleValue());
+    }
+    return new RouteCache.Route<>(path, legCosts);
+  }
 
   /**
    * Returns the list of data values from nodes along the shortest path from the node with the
@@ -113,21 +1011,22 @@ public class DijkstraGraph<NodeType, EdgeType extends Number> extends BaseGraph<
    * @return list of data item from node along this shortest path
    */
   public List<NodeType> shortestPathData(NodeType start, NodeType end) {
+    SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+    // While frozen, search the CSR snapshot instead of the Node and Edge objects
+    CsrGraph<NodeType> graph = snapshot;
+    if (graph != null)
+      return graph.pathData(snapshotPath(graph, start, end, workspace));
     // Compute the shortest path using Dijkstra's algorithm
-    SearchNode endNode = null;
-    try {
-      endNode = computeShortestPath(start, end);
-    } catch (NoSuchElementException e) {
-      // If the end node is null, it means there's no path from start to end
+    if (!nodes.containsKey(start))
       throw new NoSuchElementException("Invalid Path");
-    }
-    // Initialize a list to store the node data along the shortest path
-    List<NodeType> path = new LinkedList<>();
-    // Traverse backwards from the end node to the start node, adding each node's data to the list
-    while (endNode != null) {
-      path.add(0, endNode.node.data);
-      endNode = endNode.predecessor;
-    }
+    int endId = computeShortestPath(nodes.get(start), end, workspace);
+    if (endId < 0)
+      throw new NoSuchElementException("Invalid Path");
+    // Collect the data from each node along the path, in order from the start node to the end node
+    int[] pathIds = pathIds(workspace.predecessors(), endId);
+    List<NodeType> path = new ArrayList<>(pathIds.length);
+    for (int id : pathIds)
+      path.add(nodeList.get(id).data);
     return path;
   }
 
@@ -142,16 +1041,23 @@ public class DijkstraGraph<NodeType, EdgeType extends Number> extends BaseGraph<
    * @return the cost of the shortest path between these nodes
    */
   public double shortestPathCost(NodeType start, NodeType end) {
-    // Compute the shortest path using Dijkstra's algorithm
-    SearchNode endNode = null;
-    try {
-      endNode = computeShortestPath(start, end);
-    } catch (NoSuchElementException e) {
-      // If the end node is null, it means there's no path from start to end
-      return -1;
+    SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+    // While frozen, search the CSR snapshot instead of the Node and Edge objects
+    CsrGraph<NodeType> graph = snapshot;
+    if (graph != null) {
+      int startId = graph.idOf(start);
+      int endId = graph.idOf(end);
+      int meet = startId < 0 || endId < 0 ? -1 : searchSnapshot(graph, startId, endId, workspace);
+      if (meet < 0)
+        return -1;
+      return snapshotPathCost(workspace, meet, endId);
     }
-    // Return the cost of the shortest path, which is stored in the end node
-    return endNode.cost;
+    // Compute the shortest path using Dijkstra's algorithm
+    if (!nodes.containsKey(start))
+      return -1; // there's no path from a node that is not in the graph
+    int endId = computeShortestPath(nodes.get(start), end, workspace);
+    // Return the cost of the shortest path, or -1 when there's no path from start to end
+    return endId < 0 ? -1 : workspace.dist(endId);
   }
 
   // TODO: implement 3+ tests in step 4.1
@@ -183,6 +1089,13 @@ public class DijkstraGraph<NodeType, EdgeType extends Number> extends BaseGraph<
     test.insertEdge("E", "D", 10);
     Assertions.assertEquals(test.shortestPathData("A", "E").toString(), ("[A, D, B, E]"));
     Assertions.assertEquals(test.shortestPathCost("A", "E"), 7);
+    // routes carry the cost of each leg, whether or not the graph is frozen
+    Assertions.assertEquals(List.of(4.0, 2.0, 1.0), test.shortestRoute("A", "E").getLegCosts());
+    test.freeze();
+    RouteCache.Route<String> route = test.shortestRoute("A", "E");
+    Assertions.assertEquals(List.of("A", "D", "B", "E"), route.getPath());
+    Assertions.assertEquals(List.of(4.0, 2.0, 1.0), route.getLegCosts());
+    Assertions.assertEquals(7, route.getTotalCost());
   }
 
   /**
@@ -245,4 +1158,366 @@ public class DijkstraGraph<NodeType, EdgeType extends Number> extends BaseGraph<
     Assertions.assertTrue(expected);
     Assertions.assertEquals(test.shortestPathCost("A", "E"), -1);
   }
+
+  /**
+   * Tests that a frozen graph returns the same paths and costs as the unfrozen graph, and that
+   * modifying a frozen graph thaws it so that queries see the change.
+   */
+  @Test
+  public void testFrozenSnapshot() {
+    DijkstraGraph<String, Integer> test = new DijkstraGraph<String, Integer>();
+    test.insertNode("A");
+    test.insertNode("B");
+    test.insertNode("C");
+    test.insertNode("D");
+    test.insertNode("E");
+    test.insertEdge("A", "B", 15);
+    test.insertEdge("A", "C", 1);
+    test.insertEdge("A", "D", 4);
+    test.insertEdge("B", "D", 2);
+    test.insertEdge("B", "E", 1);
+    test.insertEdge("C", "E", 10);
+    test.insertEdge("D", "B", 2);
+    test.insertEdge("D", "E", 10);
+    test.freeze();
+    Assertions.assertTrue(test.isFrozen());
+    Assertions.assertEquals("[A, D, B, E]", test.shortestPathData("A", "E").toString());
+    Assertions.assertEquals(7, test.shortestPathCost("A", "E"));
+    Assertions.assertEquals(-1, test.shortestPathCost("E", "A"));
+    Assertions.assertEquals(-1, test.shortestPathCost("A", "F"));
+    // removing an edge thaws the graph, and the next query sees the change
+    test.removeEdge("B", "E");
+    Assertions.assertFalse(test.isFrozen());
+    Assertions.assertEquals("[A, C, E]", test.shortestPathData("A", "E").toString());
+    test.removeNode("C");
+    test.freeze();
+    Assertions.assertEquals("[A, D, E]", test.shortestPathData("A", "E").toString());
+    Assertions.assertEquals(14, test.shortestPathCost("A", "E"));
+  }
+
+  /**
+   * Tests that bidirectional search finds paths with the same costs as one-sided Dijkstra, both on
+   * the lecture example and between every pair of nodes in a random graph.
+   */
+  @Test
+  public void testBidirectionalMatchesDijkstra() {
+    DijkstraGraph<String, Integer> test = new DijkstraGraph<String, Integer>();
+    for (String data : new String[] {"A", "B", "C", "D", "E"})
+      test.insertNode(data);
+    test.insertEdge("A", "B", 15);
+    test.insertEdge("A", "C", 1);
+    test.insertEdge("A", "D", 4);
+    test.insertEdge("B", "D", 2);
+    test.insertEdge("B", "E", 1);
+    test.insertEdge("C", "E", 10);
+    test.insertEdge("D", "B", 2);
+    test.insertEdge("D", "E", 10);
+    test.freeze();
+    test.setSearchMode(SearchMode.BIDIRECTIONAL);
+    Assertions.assertEquals("[A, D, B, E]", test.shortestPathData("A", "E").toString());
+    Assertions.assertEquals(7, test.shortestPathCost("A", "E"));
+    Assertions.assertEquals("[B]", test.shortestPathData("B", "B").toString());
+    Assertions.assertEquals(-1, test.shortestPathCost("E", "A"));
+
+    DijkstraGraph<Integer, Integer> random = new DijkstraGraph<Integer, Integer>();
+    Random rng = new Random(42);
+    for (int i = 0; i < 60; i++)
+      random.insertNode(i);
+    for (int i = 0; i < 240; i++)
+      random.insertEdge(rng.nextInt(60), rng.nextInt(60), 1 + rng.nextInt(20));
+    random.freeze();
+    for (int start = 0; start < 60; start++) {
+      for (int end = 0; end < 60; end++) {
+        random.setSearchMode(SearchMode.DIJKSTRA);
+        double expected = random.shortestPathCost(start, end);
+        random.setSearchMode(SearchMode.BIDIRECTIONAL);
+        Assertions.assertEquals(expected, random.shortestPathCost(start, end));
+        if (expected >= 0) {
+          // the returned path must run from start to end along edges that add up to its cost
+          List<Integer> path = random.shortestPathData(start, end);
+          double cost = 0;
+          for (int i = 0; i + 1 < path.size(); i++)
+            cost += random.getEdge(path.get(i), path.get(i + 1));
+          Assertions.assertEquals(start, (int) path.get(0));
+          Assertions.assertEquals(end, (int) path.get(path.size() - 1));
+          Assertions.assertEquals(expected, cost);
+        }
+      }
+    }
+  }
+
+  /**
+   * Tests that ALT search finds paths with the same costs as Dijkstra's algorithm on a grid, while
+   * settling fewer nodes, and that saved landmarks can be restored.
+   */
+  @Test
+  public void testLandmarkSearch() throws IOException {
+    DijkstraGraph<Integer, Integer> grid = new DijkstraGraph<Integer, Integer>();
+    int side = 20;
+    Random rng = new Random(7);
+    for (int i = 0; i < side * side; i++)
+      grid.insertNode(i);
+    for (int row = 0; row < side; row++) {
+      for (int col = 0; col < side; col++) {
+        int id = row * side + col;
+        if (col + 1 < side) {
+          grid.insertEdge(id, id + 1, 1 + rng.nextInt(9));
+          grid.insertEdge(id + 1, id, 1 + rng.nextInt(9));
+        }
+        if (row + 1 < side) {
+          grid.insertEdge(id, id + side, 1 + rng.nextInt(9));
+          grid.insertEdge(id + side, id, 1 + rng.nextInt(9));
+        }
+      }
+    }
+    grid.freeze();
+    Landmarks landmarks = grid.prepareLandmarks(4);
+    Assertions.assertEquals(4, landmarks.getCount());
+    int dijkstraSettled = 0;
+    int altSettled = 0;
+    for (int i = 0; i < 50; i++) {
+      int start = rng.nextInt(side * side);
+      int end = rng.nextInt(side * side);
+      grid.setSearchMode(SearchMode.DIJKSTRA);
+      double expected = grid.shortestPathCost(start, end);
+      dijkstraSettled += grid.getLastSettledCount();
+      grid.setSearchMode(SearchMode.ALT);
+      Assertions.assertEquals(expected, grid.shortestPathCost(start, end));
+      altSettled += grid.getLastSettledCount();
+    }
+    Assertions.assertTrue(altSettled < dijkstraSettled);
+
+    // landmarks written to a stream can be restored into the same frozen graph
+    ByteArrayOutputStream saved = new ByteArrayOutputStream();
+    landmarks.writeTo(saved);
+    grid.setLandmarks(Landmarks.readFrom(new ByteArrayInputStream(saved.toByteArray())));
+    Assertions.assertEquals(landmarks.getLandmark(0), grid.getLandmarks().getLandmark(0));
+    // but are rejected by a graph with different edges
+    grid.insertEdge(0, side * side - 1, 1);
+    grid.freeze();
+    Assertions.assertThrows(IllegalArgumentException.class, () -> grid.setLandmarks(landmarks));
+
+    // concurrent ALT searches share the landmarks that the first of them selects
+    grid.setSearchMode(SearchMode.ALT);
+    Assertions.assertNull(grid.getLandmarks());
+    IntStream.range(0, 8).parallel()
+        .forEach(i -> Assertions.assertEquals(1, grid.shortestPathCost(0, side * side - 1)));
+    Assertions.assertTrue(grid.getLandmarks().matches(grid.snapshot));
+
+    // a heuristic that always estimates zero is admissible, so ASTAR mode matches Dijkstra's
+    grid.setHeuristic((from, to) -> 0.0);
+    grid.setSearchMode(SearchMode.ASTAR);
+    Assertions.assertEquals(1, grid.shortestPathCost(0, side * side - 1));
+  }
+
+  /**
+   * Tests that a shortest path tree gives the same paths and costs as individual queries, that
+   * trees are cached by source, and that changing the graph invalidates cached trees.
+   */
+  @Test
+  public void testShortestPathTree() {
+    DijkstraGraph<String, Integer> test = new DijkstraGraph<String, Integer>();
+    for (String data : new String[] {"A", "B", "C", "D", "E", "F"})
+      test.insertNode(data);
+    test.insertEdge("A", "B", 15);
+    test.insertEdge("A", "C", 1);
+    test.insertEdge("A", "D", 4);
+    test.insertEdge("B", "D", 2);
+    test.insertEdge("B", "E", 1);
+    test.insertEdge("C", "E", 10);
+    test.insertEdge("D", "B", 2);
+    test.insertEdge("D", "E", 10);
+    ShortestPathTree<String> tree = test.shortestPathTree("A");
+    Assertions.assertEquals("A", tree.getSource());
+    for (String target : new String[] {"A", "B", "C", "D", "E"}) {
+      Assertions.assertEquals(test.shortestPathData("A", target), tree.pathTo(target));
+      Assertions.assertEquals(test.shortestPathCost("A", target), tree.costTo(target));
+    }
+    Assertions.assertFalse(tree.isReachable("F"));
+    Assertions.assertEquals(-1, tree.costTo("F"));
+    Assertions.assertThrows(NoSuchElementException.class, () -> tree.pathTo("F"));
+    Assertions.assertSame(tree, test.shortestPathTree("A"));
+    // a change to the graph must not be hidden by the cached tree
+    test.insertEdge("E", "F", 3);
+    ShortestPathTree<String> updated = test.shortestPathTree("A");
+    Assertions.assertNotSame(tree, updated);
+    Assertions.assertEquals("[A, D, B, E, F]", updated.pathTo("F").toString());
+    Assertions.assertEquals(10, updated.costTo("F"));
+  }
+
+  /**
+   * Tests that reachableWithin returns every node within the budget, including those that are
+   * several edges away, ordered by cost, and excludes nodes that are only reachable over budget.
+   */
+  @Test
+  public void testReachableWithin() {
+    DijkstraGraph<String, Integer> test = new DijkstraGraph<String, Integer>();
+    for (String data : new String[] {"A", "B", "C", "D", "E"})
+      test.insertNode(data);
+    test.insertEdge("A", "B", 15);
+    test.insertEdge("A", "C", 1);
+    test.insertEdge("A", "D", 4);
+    test.insertEdge("B", "E", 1);
+    test.insertEdge("C", "E", 10);
+    test.insertEdge("D", "B", 2);
+    test.insertEdge("E", "A", 1);
+    Assertions.assertEquals("[C (1.0), D (4.0), B (6.0), E (7.0)]",
+        test.reachableWithin("A", 7).toString());
+    Assertions.assertEquals("[C (1.0), D (4.0)]", test.reachableWithin("A", 5.5).toString());
+    Assertions.assertEquals("[]", test.reachableWithin("A", 0.5).toString());
+    Assertions.assertThrows(NoSuchElementException.class, () -> test.reachableWithin("F", 10));
+  }
+
+  /**
+   * Tests that a travel time matrix computed on several threads holds the same costs as individual
+   * shortestPathCost queries, including -1 for pairs without a path.
+   */
+  @Test
+  public void testTravelTimeMatrix() {
+    DijkstraGraph<Integer, Integer> random = new DijkstraGraph<Integer, Integer>();
+    Random rng = new Random(11);
+    for (int i = 0; i < 100; i++)
+      random.insertNode(i);
+    for (int i = 0; i < 350; i++)
+      random.insertEdge(rng.nextInt(100), rng.nextInt(100), 1 + rng.nextInt(50));
+    List<Integer> sources = new ArrayList<>();
+    List<Integer> targets = new ArrayList<>();
+    for (int i = 0; i < 100; i += 3)
+      sources.add(i);
+    for (int i = 99; i >= 0; i -= 2)
+      targets.add(i);
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    TravelTimeMatrix<Integer> matrix;
+    try {
+      matrix = random.travelTimeMatrix(sources, targets, pool);
+    } finally {
+      pool.shutdown();
+    }
+    for (int row = 0; row < sources.size(); row++)
+      for (int column = 0; column < targets.size(); column++)
+        Assertions.assertEquals(random.shortestPathCost(sources.get(row), targets.get(column)),
+            matrix.get(row, column));
+    Assertions.assertEquals(matrix.get(3, 5), matrix.get(sources.get(3), targets.get(5)));
+    Assertions.assertThrows(NoSuchElementException.class,
+        () -> random.travelTimeMatrix(List.of(0), List.of(100), Runnable::run));
+  }
+
+  /**
+   * Tests that batched paths computed on several threads match individual shortestPathData
+   * queries in input order, with null for missing nodes and pairs without a path.
+   */
+  @Test
+  public void testShortestPathsData() {
+    DijkstraGraph<Integer, Integer> random = new DijkstraGraph<Integer, Integer>();
+    Random rng = new Random(23);
+    for (int i = 0; i < 100; i++)
+      random.insertNode(i);
+    for (int i = 0; i < 300; i++)
+      random.insertEdge(rng.nextInt(100), rng.nextInt(100), 1 + rng.nextInt(50));
+    List<Map.Entry<Integer, Integer>> pairs = new ArrayList<>();
+    for (int i = 0; i < 400; i++)
+      pairs.add(Map.entry(rng.nextInt(12), rng.nextInt(101))); // 100 is not in the graph
+    ExecutorService pool = Executors.newFixedThreadPool(4);
+    List<List<Integer>> paths;
+    try {
+      paths = random.shortestPathsData(pairs, pool);
+    } finally {
+      pool.shutdown();
+    }
+    Assertions.assertEquals(pairs.size(), paths.size());
+    for (int i = 0; i < pairs.size(); i++) {
+      Map.Entry<Integer, Integer> pair = pairs.get(i);
+      if (random.shortestPathCost(pair.getKey(), pair.getValue()) < 0) {
+        Assertions.assertNull(paths.get(i));
+        continue;
+      }
+      List<Integer> path = paths.get(i);
+      Assertions.assertEquals(pair.getKey(), path.get(0));
+      Assertions.assertEquals(pair.getValue(), path.get(path.size() - 1));
+      // ties may pick a different path than a single query, but never a more expensive one
+      double cost = 0;
+      for (int j = 1; j < path.size(); j++)
+        cost += random.getEdge(path.get(j - 1), path.get(j));
+      Assertions.assertEquals(random.shortestPathCost(pair.getKey(), pair.getValue()), cost);
+    }
+  }
+
+  /**
+   * Tests edge insertion, update, lookup and removal on a node with enough leaving edges to be
+   * indexed, and that missing nodes and edges are reported without exceptions.
+   */
+  @Test
+  public void testEdgeIndex() {
+    DijkstraGraph<Integer, Integer> star = new DijkstraGraph<Integer, Integer>();
+    for (int i = 0; i <= 50; i++)
+      star.insertNode(i);
+    for (int i = 1; i <= 50; i++)
+      Assertions.assertTrue(star.insertEdge(0, i, i));
+    Assertions.assertTrue(star.insertEdge(0, 7, 70)); // updates the existing edge
+    Assertions.assertEquals(50, star.getEdgeCount());
+    Assertions.assertEquals(70, star.getEdge(0, 7).intValue());
+    Assertions.assertTrue(star.containsEdge(0, 50));
+    Assertions.assertFalse(star.containsEdge(50, 0));
+    Assertions.assertFalse(star.containsEdge(0, 51));
+    Assertions.assertFalse(star.insertEdge(0, 51, 1));
+    Assertions.assertThrows(NoSuchElementException.class, () -> star.getEdge(0, 51));
+    Assertions.assertTrue(star.removeEdge(0, 20));
+    Assertions.assertFalse(star.removeEdge(0, 20));
+    Assertions.assertFalse(star.containsEdge(0, 20));
+    Assertions.assertEquals(49, star.getEdgeCount());
+    Assertions.assertTrue(star.removeNode(30));
+    Assertions.assertFalse(star.containsEdge(0, 30));
+    Assertions.assertTrue(star.insertEdge(0, 20, 2));
+    Assertions.assertEquals(2, star.getEdge(0, 20).intValue());
+    Assertions.assertEquals(List.of(0, 20), star.shortestPathData(0, 20));
+  }
+
+  /**
+   * Tests that removing nodes and edges keeps the node and edge counts exact, including for self
+   * loops and for edges in both directions between the removed node and its neighbors.
+   */
+  @Test
+  public void testRemovalCounts() {
+    DijkstraGraph<String, Integer> test = new DijkstraGraph<String, Integer>();
+    for (String data : new String[] {"A", "B", "C", "D"})
+      test.insertNode(data);
+    test.insertEdge("A", "B", 1);
+    test.insertEdge("B", "A", 1);
+    test.insertEdge("B", "B", 1);
+    test.insertEdge("B", "C", 1);
+    test.insertEdge("D", "B", 1);
+    test.insertEdge("C", "D", 1);
+    test.insertEdge("A", "C", 1);
+    Assertions.assertEquals(7, test.getEdgeCount());
+    Assertions.assertTrue(test.removeNode("B"));
+    Assertions.assertEquals(3, test.getNodeCount());
+    Assertions.assertEquals(2, test.getEdgeCount());
+    Assertions.assertFalse(test.containsEdge("A", "B"));
+    Assertions.assertTrue(test.containsEdge("A", "C"));
+    Assertions.assertTrue(test.removeEdge("A", "C"));
+    Assertions.assertTrue(test.removeEdge("C", "D"));
+    Assertions.assertEquals(0, test.getEdgeCount());
+    Assertions.assertTrue(test.insertEdge("D", "A", 4));
+    Assertions.assertEquals(List.of("D", "A"), test.shortestPathData("D", "A"));
+    // every change counts as one modification, and failed changes or queries count as none
+    Assertions.assertEquals(15, test.getModificationCount());
+    Assertions.assertFalse(test.removeEdge("A", "C"));
+    Assertions.assertFalse(test.insertNode("A"));
+    test.freeze();
+    Assertions.assertEquals(15, test.getModificationCount());
+  }
+
+  /**
+   * Tests that a graph created with the withMap factory stores its nodes in the provided map.
+   */
+  @Test
+  public void testWithMap() {
+    HashtableMap<String, DijkstraGraph<String, Integer>.Node> map = new HashtableMap<>();
+    DijkstraGraph<String, Integer> test = DijkstraGraph.withMap(map);
+    test.insertNode("A");
+    test.insertNode("B");
+    test.insertEdge("A", "B", 3);
+    Assertions.assertEquals(2, map.getSize());
+    Assertions.assertEquals(3, test.shortestPathCost("A", "B"));
+  }
 }
@@ -0,0 +1,380 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads the nodes and weighted edges of a graph from a DOT file, like campus.dot, and reports them
+ * to a Listener as they are parsed. Each edge's weight is read from one of its attributes (seconds,
+ * by default), or from the default set by an edge [seconds=...] statement, and all of its other
+ * attributes are skipped. The name of every node is decoded into a String only once, the first time
+ * it appears, and every later mention of that node reports the same String instance.
+ *
+ * Graph headers (digraph name {), subgraph and anonymous blocks, closing braces, node ports and
+ * graph or node attributes are all accepted and skipped, so a reader can also start in the middle
+ * of a file, at the beginning of any statement.
+ */
+public class DotReader {
+
+  /**
+   * Receives the nodes and edges of a DOT file, in the order they appear in the file.
+   */
+  public interface Listener {
+    /**
+     * Called for a node statement, which declares a node without any edges.
+     *
+     * @param name the name of the node
+     */
+    void node(String name);
+
+    /**
+     * Called for each edge, including each step of an edge chain like a -> b -> c.
+     *
+     * @param source the name of the edge's predecessor node
+     * @param target the name of the edge's successor node
+     * @param weight the value of the edge's weight attribute
+     */
+    void edge(String source, String target, double weight);
+  }
+
+  /**
+   * Receives the nodes and edges of a DOT file like a Listener, but identifies each node by the
+   * index of its name in the NameTable the file is read with, instead of by the name itself.
+   */
+  public interface IndexListener {
+    /**
+     * Called for a node statement, which declares a node without any edges.
+     *
+     * @param node the index of the node's name
+     */
+    void node(int node);
+
+    /**
+     * Called for each edge, including each step of an edge chain like a -> b -> c.
+     *
+     * @param source the index of the name of the edge's predecessor node
+     * @param target the index of the name of the edge's successor node
+     * @param weight the value of the edge's weight attribute
+     */
+    void edge(int source, int target, double weight);
+  }
+
+  protected final String weightAttribute;
+
+  /**
+   * Creates a reader that takes edge weights from the seconds attribute.
+   */
+  public DotReader() {
+    this("seconds");
+  }
+
+  /**
+   * Creates a reader that takes edge weights from the provided attribute.
+   *
+   * @param weightAttribute the name of the attribute that holds each edge's weight
+   */
+  public DotReader(String weightAttribute) {
+    this.weightAttribute = weightAttribute;
+  }
+
+  /**
+   * Reads a DOT file.
+   *
+   * @param filename the path of the file to read
+   * @param listener receives the nodes and edges of the file
+   * @throws IOException if the file cannot be read or is not valid DOT
+   */
+  public void read(String filename, Listener listener) throws IOException {
+    try (FileInputStream in = new FileInputStream(filename)) {
+      read(in, listener);
+    }
+  }
+
+  /**
+   * Reads DOT from a stream.
+   *
+   * @param in       the stream to read from, which is not closed afterwards
+   * @param listener receives the nodes and edges that are read
+   * @throws IOException if reading fails or the stream is not valid DOT
+   */
+  public void read(InputStream in, Listener listener) throws IOException {
+    NameTable names = new NameTable();
+    read(new DotTokenizer(in), names, new IndexListener() {
+      @Override
+      public void node(int node) {
+        listener.node(names.getName(node));
+      }
+
+      @Override
+      public void edge(int source, int target, double weight) {
+        listener.edge(names.getName(source), names.getName(target), weight);
+      }
+    });
+  }
+
+  /**
+   * Reads DOT from the remaining bytes of a buffer.
+   *
+   * @param bytes    the bytes to read
+   * @param names    the table to intern node names in, which may be shared between several reads
+   * @param listener receives the nodes and edges that are read, as indexes into names
+   * @throws IOException if the bytes are not valid DOT
+   */
+  public void read(ByteBuffer bytes, NameTable names, IndexListener listener) throws IOException {
+    read(new DotTokenizer(bytes), names, listener);
+  }
+
+  // Reads statements until the end of the input
+  private void read(DotTokenizer tokens, NameTable names, IndexListener listener)
+      throws IOException {
+    int[] chain = new int[2]; // name indexes of the nodes in the current statement
+    int chainLength;
+    boolean hasDefaultWeight = false;
+    double defaultWeight = 0;
+    DotTokenizer.Token token = tokens.next();
+    while (token != DotTokenizer.Token.EOF) {
+      switch (token) {
+        case LEFT_BRACE:
+        case RIGHT_BRACE:
+        case SEMICOLON:
+        case COMMA:
+          // blocks only group statements, and separators are optional
+          token = tokens.next();
+          continue;
+        case ID:
+          break;
+        default:
+          throw unexpected(tokens, token);
+      }
+      if (tokens.isKeyword("strict")) {
+        token = tokens.next();
+      } else if (tokens.isKeyword("digraph") || tokens.isKeyword("graph")
+          || tokens.isKeyword("subgraph")) {
+        // a header like "digraph campus {", or graph attributes like "graph [rankdir=LR]"
+        token = tokens.next();
+        if (token == DotTokenizer.Token.ID)
+          token = tokens.next();
+        token = skipAttributes(tokens, token);
+      } else if (tokens.isKeyword("node")) {
+        token = skipAttributes(tokens, tokens.next());
+      } else if (tokens.isKeyword("edge")) {
+        token = tokens.next();
+        while (token == DotTokenizer.Token.LEFT_BRACKET) {
+          double weight = readWeight(tokens);
+          if (!Double.isNaN(weight)) {
+            hasDefaultWeight = true;
+            defaultWeight = weight;
+          }
+          token = tokens.next();
+        }
+      } else {
+        chain[0] = names.add(tokens.text(), tokens.textLength());
+        chainLength = 1;
+        token = skipPort(tokens, tokens.next());
+        if (token == DotTokenizer.Token.EQUALS) {
+          // a graph attribute like "rankdir = LR"
+          if (tokens.next() != DotTokenizer.Token.ID)
+            throw new IOException("Expected a value after = on line " + tokens.getLine());
+          token = tokens.next();
+          continue;
+        }
+        while (token == DotTokenizer.Token.EDGE_OP) {
+          if (tokens.next() != DotTokenizer.Token.ID)
+            throw new IOException("Expected a node name after an edge operator on line "
+                + tokens.getLine() + " (edges to subgraphs are not supported)");
+          if (chainLength == chain.length)
+            chain = Arrays.copyOf(chain, chainLength * 2);
+          chain[chainLength++] = names.add(tokens.text(), tokens.textLength());
+          token = skipPort(tokens, tokens.next());
+        }
+        double weight = Double.NaN;
+        while (token == DotTokenizer.Token.LEFT_BRACKET) {
+          double listed = readWeight(tokens);
+          if (!Double.isNaN(listed))
+            weight = listed;
+          token = tokens.next();
+        }
+        if (chainLength == 1) {
+          listener.node(chain[0]);
+          continue;
+        }
+        if (Double.isNaN(weight)) {
+          if (!hasDefaultWeight)
+            throw new IOException("Edge without a " + weightAttribute + " attribute on line "
+                + tokens.getLine());
+          weight = defaultWeight;
+        }
+        for (int i = 1; i < chainLength; i++)
+          listener.edge(chain[i - 1], chain[i], weight);
+      }
+    }
+  }
+
+  // Reads the rest of an attribute list after its [, and return the value of the weight attribute
+  // in it, or NaN if it has none
+  private double readWeight(DotTokenizer tokens) throws IOException {
+    double weight = Double.NaN;
+    for (DotTokenizer.Token token = tokens.next(); token != DotTokenizer.Token.RIGHT_BRACKET;
+        token = tokens.next()) {
+      if (token == DotTokenizer.Token.SEMICOLON || token == DotTokenizer.Token.COMMA)
+        continue;
+      if (token != DotTokenizer.Token.ID)
+        throw unexpected(tokens, token);
+      boolean isWeight = tokens.textEquals(weightAttribute);
+      if (tokens.next() != DotTokenizer.Token.EQUALS || tokens.next() != DotTokenizer.Token.ID)
+        throw new IOException("Expected name=value in attribute list on line " + tokens.getLine());
+      if (isWeight)
+        weight = tokens.number();
+    }
+    return weight;
+  }
+
+  // Skips attribute lists starting at token, and return the token after them
+  private static DotTokenizer.Token skipAttributes(DotTokenizer tokens, DotTokenizer.Token token)
+      throws IOException {
+    while (token == DotTokenizer.Token.LEFT_BRACKET) {
+      do {
+        token = tokens.next();
+        if (token == DotTokenizer.Token.EOF)
+          throw new IOException("Unterminated attribute list on line " + tokens.getLine());
+      } while (token != DotTokenizer.Token.RIGHT_BRACKET);
+      token = tokens.next();
+    }
+    return token;
+  }
+
+  // Skips a node port like :n or :port:sw starting at token, and return the token after it
+  private static DotTokenizer.Token skipPort(DotTokenizer tokens, DotTokenizer.Token token)
+      throws IOException {
+    while (token == DotTokenizer.Token.COLON) {
+      if (tokens.next() != DotTokenizer.Token.ID)
+        throw new IOException("Expected a port after : on line " + tokens.getLine());
+      token = tokens.next();
+    }
+    return token;
+  }
+
+  private static IOException unexpected(DotTokenizer tokens, DotTokenizer.Token token) {
+    return new IOException("Unexpected " + token + " on line " + tokens.getLine());
+  }
+
+  /**
+   * Interns node names straight from their UTF-8 bytes: the first lookup of each name decodes it
+   * into a String, and every later lookup of the same bytes returns that same String without
+   * decoding or allocating anything.
+   */
+  public static class NameTable {
+    // (hash << 32) | (index + 1) of the name in each slot, or 0 when the slot is empty
+    private long[] slots = new long[64];
+    private byte[] pool = new byte[1024]; // the bytes of every name, back to back
+    private int poolLength = 0;
+    // name i's bytes are in pool from starts[i] to starts[i + 1]
+    private int[] starts = new int[33];
+    private String[] names = new String[32];
+    private int size = 0;
+    private int last = -1; // index of the most recently returned name
+
+    /**
+     * Return the String for a name.
+     *
+     * @param bytes  the array holding the UTF-8 bytes of the name
+     * @param length the number of bytes in the name, starting from index 0
+     * @return the interned String for those bytes
+     */
+    public String intern(byte[] bytes, int length) {
+      int index = add(bytes, length); // may grow names, so it must be called first
+      return names[index];
+    }
+
+    /**
+     * Return the index of a name, adding it to this table if it is new. Names are numbered from 0
+     * in the order they were first added.
+     *
+     * @param bytes  the array holding the UTF-8 bytes of the name
+     * @param length the number of bytes in the name, starting from index 0
+     * @return the index of the name
+     */
+    public int add(byte[] bytes, int length) {
+      // exported graphs usually list all edges leaving a node together, so check the last name
+      // first
+      if (last >= 0 && starts[last + 1] - starts[last] == length
+          && Arrays.equals(pool, starts[last], starts[last + 1], bytes, 0, length))
+        return last;
+      int hash = hash(bytes, length);
+      int mask = slots.length - 1;
+      int slot = hash & mask;
+      for (long entry = slots[slot]; entry != 0; entry = slots[slot]) {
+        if ((int) (entry >>> 32) == hash) {
+          int index = (int) entry - 1;
+          int start = starts[index];
+          if (starts[index + 1] - start == length
+              && Arrays.equals(pool, start, start + length, bytes, 0, length)) {
+            last = index;
+            return index;
+          }
+        }
+        slot = (slot + 1) & mask;
+      }
+      // a new name: decode it once, and copy its bytes into the pool
+      if (size == names.length) {
+        names = Arrays.copyOf(names, size * 2);
+        starts = Arrays.copyOf(starts, size * 2 + 1);
+      }
+      if (poolLength + length > pool.length)
+        pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolLength + length));
+      System.arraycopy(bytes, 0, pool, poolLength, length);
+      poolLength += length;
+      String name = new String(bytes, 0, length, StandardCharsets.UTF_8);
+      names[size] = name;
+      last = size;
+      starts[++size] = poolLength;
+      slots[slot] = ((long) hash << 32) | size;
+      if (size * 2 > slots.length)
+        grow();
+      return last;
+    }
+
+    /**
+     * Return the name with an index.
+     *
+     * @param index the index of a name in this table
+     * @return the String for that name
+     */
+    public String getName(int index) {
+      return names[index];
+    }
+
+    /**
+     * Return the number of distinct names interned so far.
+     *
+     * @return the number of names in this table
+     */
+    public int getSize() {
+      return size;
+    }
+
+    // FNV-1a hash of the bytes, with its bits mixed so that the low bits pick good slots
+    private static int hash(byte[] bytes, int length) {
+      int h = 0x811c9dc5;
+      for (int i = 0; i < length; i++)
+        h = (h ^ bytes[i]) * 0x01000193;
+      return h ^ (h >>> 16);
+    }
+
+    private void grow() {
+      long[] old = slots;
+      slots = new long[old.length * 2];
+      int mask = slots.length - 1;
+      for (long entry : old) {
+        if (entry == 0)
+          continue;
+        int slot = (int) (entry >>> 32) & mask;
+        while (slots[slot] != 0)
+          slot = (slot + 1) & mask;
+        slots[slot] = entry;
+      }
+    }
+  }
+}
@@ -0,0 +1,106 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for DotReader and its NameTable, on DOT syntax that campus.dot does not use and on numbers
+ * that must parse exactly like Double.parseDouble.
+ */
+public class DotReaderTests {
+
+  // Reads a DOT string into lists of "source->target=weight" edges and declared nodes
+  private static List<String> readAll(String dot, String weightAttribute) throws IOException {
+    List<String> read = new ArrayList<>();
+    new DotReader(weightAttribute).read(
+        new ByteArrayInputStream(dot.getBytes(StandardCharsets.UTF_8)), new DotReader.Listener() {
+          @Override
+          public void node(String name) {
+            read.add(name);
+          }
+
+          @Override
+          public void edge(String source, String target, double weight) {
+            read.add(source + "->" + target + "=" + weight);
+          }
+        });
+    return read;
+  }
+
+  /**
+   * Tests quoted names with escapes and concatenation, comments, multiple attributes in any order,
+   * edge chains, ports, default edge weights and the statements that are skipped.
+   */
+  @Test
+  public void testSyntax() throws IOException {
+    String dot = "/* exported map */\n"
+        + "# preprocessor line\n"
+        + "strict digraph \"campus\" {\n"
+        + "  graph [rankdir=LR]; rankdir = LR\n"
+        + "  node [shape=box]\n"
+        + "  \"Memorial Union\" -> \"Science Hall\" [color=red, seconds=105.8 label=\"a]b\"];\n"
+        + "  \"Say \\\"Cheese\\\"\" -> Bascom [style=dashed][seconds=-2.5e1] // trailing comment\n"
+        + "  \"Long \" + \"Name\":n -> \"Mem\\\n"
+        + "orial Union\":sw\n"
+        + "    [seconds=.5]\n"
+        + "  Lonely\n"
+        + "  subgraph cluster_0 { edge [seconds=7] a -> b -> \"c\"; }\n"
+        + "  \"Caf\u00e9\" -> 42 [seconds=1]\n"
+        + "  \"C:\\\\\" -> \"b\" [seconds=1];\n"
+        + "}\n";
+    Assertions.assertEquals(List.of("Memorial Union->Science Hall=105.8",
+        "Say \"Cheese\"->Bascom=-25.0", "Long Name->Memorial Union=0.5", "Lonely", "a->b=7.0",
+        "b->c=7.0", "Caf\u00e9->42=1.0", "C:\\\\->b=1.0"), readAll(dot, "seconds"));
+    // backslashes other than \" and line continuations are kept as written
+    Assertions.assertEquals(List.of("a\\nb->c=1.0"),
+        readAll("\"a\\nb\" -> c [seconds=1]", "seconds"));
+    Assertions.assertThrows(IOException.class, () -> readAll("a -> b [color=red]", "seconds"));
+    Assertions.assertThrows(IOException.class, () -> readAll("a -> b [seconds=x]", "seconds"));
+    Assertions.assertThrows(IOException.class, () -> readAll("\"a -> b", "seconds"));
+    Assertions.assertEquals(List.of("a->b=3.0"), readAll("a -> b [seconds=1 time=3]", "time"));
+  }
+
+  /**
+   * Tests that names are interned once, and that numbers parse to exactly the same doubles as
+   * Double.parseDouble, both on and off the allocation-free fast path.
+   */
+  @Test
+  public void testNamesAndNumbers() throws IOException {
+    DotReader.NameTable names = new DotReader.NameTable();
+    byte[] bytes = "Union South".getBytes(StandardCharsets.UTF_8);
+    String first = names.intern(bytes, bytes.length);
+    for (int i = 0; i < 200; i++) {
+      byte[] other = ("node" + i).getBytes(StandardCharsets.UTF_8);
+      names.intern(other, other.length);
+    }
+    Assertions.assertTrue(first == names.intern(bytes.clone(), bytes.length));
+    Assertions.assertEquals(201, names.getSize());
+
+    Random rng = new Random(3);
+    List<String> numbers = new ArrayList<>(List.of("0", "-0", "0.0", "007", "1e22", "1e23",
+        "123456789012345678901234", "0.000001234", "9007199254740993", "156.49999999999997",
+        "1E-5", "-3.25", ".5", "5.", "1e400", "2.4703282292062328e-324", "4.9e-324",
+        "1.7976931348623157e308", "1.7976931348623159e308", "2.2250738585072014E-308",
+        "9007199254740992.5", "0.30000000000000004", "1234567890123456789e-10"));
+    for (int i = 0; i < 20000; i++) {
+      numbers.add(Double.toString(rng.nextDouble() * Math.pow(10, rng.nextInt(40) - 20)));
+      double random = Double.longBitsToDouble(rng.nextLong() & Long.MAX_VALUE);
+      if (Double.isFinite(random))
+        numbers.add(Double.toString(random));
+      numbers.add((rng.nextInt(2000000) - 1000000) / 100.0 + "");
+      // 19 random digits with a random decimal point and exponent
+      numbers.add(String.format("%019d", rng.nextLong() & Long.MAX_VALUE).replaceFirst(
+          "^(\\d{" + rng.nextInt(19) + "})", "$1.") + "e" + (rng.nextInt(600) - 300));
+    }
+    StringBuilder dot = new StringBuilder();
+    for (String number : numbers)
+      dot.append("a -> b [seconds=").append(number).append("]\n");
+    List<String> read = readAll(dot.toString(), "seconds");
+    for (int i = 0; i < numbers.size(); i++)
+      Assertions.assertEquals("a->b=" + Double.parseDouble(numbers.get(i)), read.get(i));
+  }
+}
@@ -0,0 +1,402 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Splits a DOT file into tokens, reading its bytes through a fixed-size buffer so that files of any
+ * size stream through without being decoded into Strings. The text of each identifier is collected
+ * into a reusable byte array, with the quotes of quoted identifiers removed and their escapes
+ * resolved, so callers can compare it, intern it or parse it as a number without allocating.
+ *
+ * Follows the lexical rules of the DOT language: identifiers may be bare words, numerals, quoted
+ * strings (where \" is an escaped quote, a backslash before a newline continues the line, every
+ * other backslash is kept as written, and quoted strings joined by + are concatenated) or HTML
+ * strings in angle brackets. Whitespace, C and C++ style comments, and lines starting with # are
+ * skipped.
+ */
+public class DotTokenizer {
+
+  /** The kinds of tokens in a DOT file. */
+  public enum Token {
+    ID, // a bare word, numeral, quoted string or HTML string, whose text is in text()
+    EDGE_OP, // -> or --
+    LEFT_BRACE, RIGHT_BRACE, LEFT_BRACKET, RIGHT_BRACKET, EQUALS, SEMICOLON, COMMA, COLON, EOF
+  }
+
+  private final InputStream in; // source of bytes, or null when reading from source
+  private final ByteBuffer source; // source of bytes, or null when reading from in
+  private final byte[] buffer;
+  private int position = 0; // index of the next unread byte in buffer
+  private int limit = 0; // number of valid bytes in buffer
+
+  private byte[] text = new byte[64]; // text of the current ID token
+  private int textLength = 0;
+  private boolean quoted = false; // whether the current ID token was quoted
+  private int line = 1;
+  private boolean lineStart = true; // whether only whitespace precedes the next byte on its line
+
+  /**
+   * Creates a tokenizer that reads from a stream. The tokenizer buffers the stream itself.
+   *
+   * @param in the stream to read the DOT file from
+   */
+  public DotTokenizer(InputStream in) {
+    this.in = in;
+    this.source = null;
+    this.buffer = new byte[1 << 16];
+  }
+
+  /**
+   * Creates a tokenizer that reads the remaining bytes of a buffer, such as a memory mapped file.
+   *
+   * @param source the bytes to read the DOT file from
+   */
+  public DotTokenizer(ByteBuffer source) {
+    this.in = null;
+    this.source = source;
+    this.buffer = new byte[1 << 16];
+  }
+
+  /**
+   * Reads the next token.
+   *
+   * @return the kind of the next token, or EOF at the end of the input
+   * @throws IOException if reading fails, or a quoted or HTML string is not closed
+   */
+  public Token next() throws IOException {
+    skipWhitespaceAndComments();
+    int b = read();
+    switch (b) {
+      case -1:
+        return Token.EOF;
+      case '{':
+        return Token.LEFT_BRACE;
+      case '}':
+        return Token.RIGHT_BRACE;
+      case '[':
+        return Token.LEFT_BRACKET;
+      case ']':
+        return Token.RIGHT_BRACKET;
+      case '=':
+        return Token.EQUALS;
+      case ';':
+        return Token.SEMICOLON;
+      case ',':
+        return Token.COMMA;
+      case ':':
+        return Token.COLON;
+      case '"':
+        textLength = 0;
+        quoted = true;
+        readQuoted();
+        return Token.ID;
+      case '<':
+        textLength = 0;
+        quoted = true;
+        readHtml();
+        return Token.ID;
+      case '-':
+        if (peek() == '>' || peek() == '-') {
+          read();
+          return Token.EDGE_OP;
+        }
+        break;
+      default:
+        if (!isIdByte(b) && b != '.')
+          throw new IOException("Unexpected character '" + (char) b + "' on line " + line);
+    }
+    // a bare word or numeral
+    textLength = 0;
+    quoted = false;
+    append(b);
+    while (true) {
+      // copy the rest of the word straight from the buffer
+      int end = position;
+      while (end < limit && (isIdByte(buffer[end] & 0xff) || buffer[end] == '.'))
+        end++;
+      append(position, end);
+      int next = peek();
+      if (isIdByte(next) || next == '.' || (isExponentSign(next) && endsWithExponent()))
+        append(read());
+      else
+        return Token.ID;
+    }
+  }
+
+  /**
+   * Return the bytes of the current ID token's text. Only the first textLength() bytes are part of
+   * the text, and the array is reused by the following tokens.
+   *
+   * @return the array holding the current token's text
+   */
+  public byte[] text() {
+    return text;
+  }
+
+  /**
+   * Return the length of the current ID token's text.
+   *
+   * @return the number of bytes in the current token's text
+   */
+  public int textLength() {
+    return textLength;
+  }
+
+  /**
+   * Check whether the current ID token was a quoted or HTML string.
+   *
+   * @return true if the current token was quoted, or false for a bare word or numeral
+   */
+  public boolean isQuoted() {
+    return quoted;
+  }
+
+  /**
+   * Return the current ID token's text as a new String.
+   *
+   * @return the text of the current token, decoded as UTF-8
+   */
+  public String textString() {
+    return new String(text, 0, textLength, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Check whether the current ID token is an unquoted DOT keyword, ignoring case.
+   *
+   * @param keyword the keyword to compare to, in lower case
+   * @return true if the current token is that keyword, or false otherwise
+   */
+  public boolean isKeyword(String keyword) {
+    if (quoted || textLength != keyword.length())
+      return false;
+    for (int i = 0; i < textLength; i++)
+      if (Character.toLowerCase(text[i]) != keyword.charAt(i))
+        return false;
+    return true;
+  }
+
+  /**
+   * Check whether the current ID token's text equals a String of ASCII characters.
+   *
+   * @param ascii the text to compare to
+   * @return true if the current token's text is ascii, or false otherwise
+   */
+  public boolean textEquals(String ascii) {
+    if (textLength != ascii.length())
+      return false;
+    for (int i = 0; i < textLength; i++)
+      if (text[i] != ascii.charAt(i))
+        return false;
+    return true;
+  }
+
+  /**
+   * Parses the current ID token as a decimal number, without decoding it into a String first.
+   *
+   * @return the value of the current token, exactly as Double.parseDouble would return it
+   * @throws IOException if the current token is not a decimal number
+   */
+  public double number() throws IOException {
+    try {
+      return DecimalParser.parse(text, 0, textLength);
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid number '" + textString() + "' on line " + line);
+    }
+  }
+
+  /**
+   * Return the line number of the most recently read byte, for error messages.
+   *
+   * @return the current line number, starting from 1
+   */
+  public int getLine() {
+    return line;
+  }
+
+  // Reads the rest of a quoted string, after its opening quote, along with any quoted strings that
+  // are joined to it by +
+  private void readQuoted() throws IOException {
+    while (true) {
+      // copy plain bytes straight from the buffer, up to the next quote, backslash or line break
+      int end = position;
+      while (end < limit && buffer[end] != '"' && buffer[end] != '\\' && buffer[end] != '\n')
+        end++;
+      if (end > position) {
+        append(position, end);
+        lineStart = false;
+        continue;
+      }
+      int b = read();
+      if (b == -1)
+        throw new IOException("Unterminated quoted string on line " + line);
+      if (b == '"') {
+        // "a" + "b" is the same identifier as "ab"
+        skipWhitespaceAndComments();
+        if (peek() != '+')
+          return;
+        read();
+        skipWhitespaceAndComments();
+        if (read() != '"')
+          throw new IOException("Expected a quoted string after + on line " + line);
+      } else if (b == '\\' && peek() == '"') {
+        // an escaped quote is the only escape Graphviz unescapes
+        append(read());
+      } else if (b == '\\' && peek() == '\\') {
+        // a backslash pair is kept as written, but read as one unit so that "C:\\" ends at its
+        // last quote
+        append(b);
+        append(read());
+      } else if (b == '\\' && (peek() == '\n' || peek() == '\r')) {
+        // a backslash before a line break continues the string on the next line
+        if (read() == '\r' && peek() == '\n')
+          read();
+      } else {
+        append(b);
+      }
+    }
+  }
+
+  // Reads the rest of an HTML string, after its opening <, up to the matching >
+  private void readHtml() throws IOException {
+    int depth = 1;
+    while (true) {
+      int b = read();
+      if (b == -1)
+        throw new IOException("Unterminated HTML string on line " + line);
+      if (b == '<')
+        depth++;
+      else if (b == '>' && --depth == 0)
+        return;
+      append(b);
+    }
+  }
+
+  private void skipWhitespaceAndComments() throws IOException {
+    while (true) {
+      // spaces and tabs never change the line, so skip them straight from the buffer
+      while (position < limit && (buffer[position] == ' ' || buffer[position] == '\t'))
+        position++;
+      int b = peek();
+      if (b == ' ' || b == '\t' || b == '\r' || b == '\n' || b == '\f') {
+        read();
+      } else if (b == '#' && lineStart) {
+        skipLine();
+      } else if (b == '/' && peekSecond() == '/') {
+        skipLine();
+      } else if (b == '/' && peekSecond() == '*') {
+        read();
+        read();
+        int previous = 0;
+        for (int c = read(); !(previous == '*' && c == '/'); c = read()) {
+          if (c == -1)
+            throw new IOException("Unterminated comment on line " + line);
+          previous = c;
+        }
+      } else {
+        return;
+      }
+    }
+  }
+
+  private void skipLine() throws IOException {
+    for (int b = peek(); b != '\n' && b != -1; b = peek())
+      read();
+  }
+
+  // Check whether the bare word read so far is a numeral ending in an exponent marker, like 1.5e
+  private boolean endsWithExponent() {
+    int last = text[textLength - 1];
+    int first = text[0];
+    return (last == 'e' || last == 'E')
+        && ((first >= '0' && first <= '9') || first == '-' || first == '.');
+  }
+
+  private static boolean isExponentSign(int b) {
+    return b == '-' || b == '+';
+  }
+
+  // Letters, digits, underscores and all non-ASCII bytes (parts of UTF-8 characters) may be in IDs
+  private static boolean isIdByte(int b) {
+    return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_'
+        || b >= 0x80;
+  }
+
+  private void append(int b) {
+    if (textLength == text.length) {
+      byte[] larger = new byte[text.length * 2];
+      System.arraycopy(text, 0, larger, 0, textLength);
+      text = larger;
+    }
+    text[textLength++] = (byte) b;
+  }
+
+  // Appends the bytes of the buffer from position to end to the text, and consumes them
+  private void append(int start, int end) {
+    int count = end - start;
+    if (textLength + count > text.length) {
+      byte[] larger = new byte[Math.max(text.length * 2, textLength + count)];
+      System.arraycopy(text, 0, larger, 0, textLength);
+      text = larger;
+    }
+    System.arraycopy(buffer, start, text, textLength, count);
+    textLength += count;
+    position = end;
+  }
+
+  // Consumes and returns the next byte (0 to 255), or -1 at the end of the input
+  private int read() throws IOException {
+    if (position == limit && !fill())
+      return -1;
+    int b = buffer[position++] & 0xff;
+    if (b == '\n') {
+      line++;
+      lineStart = true;
+    } else if (b != ' ' && b != '\t' && b != '\r') {
+      lineStart = false;
+    }
+    return b;
+  }
+
+  // Return the next byte without consuming it, or -1 at the end of the input
+  private int peek() throws IOException {
+    if (position == limit && !fill())
+      return -1;
+    return buffer[position] & 0xff;
+  }
+
+  // Return the byte after the next one without consuming either, or -1 at the end of the input
+  private int peekSecond() throws IOException {
+    if (limit - position < 2) {
+      // move the unread byte to the front of the buffer and read more after it
+      int remaining = limit - position;
+      System.arraycopy(buffer, position, buffer, 0, remaining);
+      position = 0;
+      limit = remaining;
+      int read = readInto(remaining);
+      if (read > 0)
+        limit += read;
+      if (limit < 2)
+        return -1;
+    }
+    return buffer[position + 1] & 0xff;
+  }
+
+  // Replaces the (fully consumed) buffer with the next bytes of the input
+  private boolean fill() throws IOException {
+    position = 0;
+    limit = Math.max(0, readInto(0));
+    return limit > 0;
+  }
+
+  // Reads bytes into the buffer starting at offset, and return how many were read or -1 at the end
+  private int readInto(int offset) throws IOException {
+    if (in != null)
+      return in.read(buffer, offset, buffer.length - offset);
+    int count = Math.min(source.remaining(), buffer.length - offset);
+    if (count == 0)
+      return -1;
+    source.get(buffer, offset, count);
+    return count;
+  }
+}
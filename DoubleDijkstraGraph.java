@@ -0,0 +1,408 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A directed graph with primitive double edge weights, for graphs like the campus map where every
+ * weight is a Double anyway. Instead of an Edge object holding a boxed Double for every edge, the
+ * edges leaving each node are stored in a pair of parallel arrays of successor ids and weights, and
+ * the edges entering each node in an array of predecessor ids. Dijkstra's algorithm then reads
+ * weights straight from a double array, without calling Number.doubleValue on every relaxation.
+ *
+ * Nodes are identified by dense ids like the nodes of BaseGraph: removing a node moves the node
+ * with the highest id into its place. The graph still implements GraphADT with Double edges, so it
+ * can be used wherever the generic view is needed, while insertEdgeWeight and getEdgeWeight take
+ * and return primitive weights.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class DoubleDijkstraGraph<NodeType> implements GraphADT<NodeType, Double> {
+
+  protected MapADT<NodeType, Integer> ids; // id of the node containing each data item
+  protected Object[] nodeData = new Object[16]; // data of the node with each id
+  protected int nodeCount = 0;
+  protected int edgeCount = 0;
+
+  // successors and weights of the edges leaving each node, in the first outDegree[u] slots
+  protected int[][] successors = new int[16][];
+  protected double[][] weights = new double[16][];
+  protected int[] outDegree = new int[16];
+  // predecessors of the edges entering each node, in the first inDegree[v] slots
+  protected int[][] predecessors = new int[16][];
+  protected int[] inDegree = new int[16];
+
+  private static final int[] NO_IDS = new int[0];
+  private static final double[] NO_WEIGHTS = new double[0];
+
+  /**
+   * Constructor that sets the map that the graph uses.
+   */
+  public DoubleDijkstraGraph() {
+    this.ids = new OpenAddressingMap<>();
+  }
+
+  /**
+   * Creates a graph that uses the provided map, such as a HashtableMap, like DijkstraGraph.withMap.
+   *
+   * @param map the (empty) map the graph uses to map a data object to the id of its node
+   * @return a new graph that finds the ids of its nodes in the provided map
+   */
+  public static <NodeType> DoubleDijkstraGraph<NodeType> withMap(MapADT<NodeType, Integer> map) {
+    DoubleDijkstraGraph<NodeType> graph = new DoubleDijkstraGraph<>();
+    graph.ids = map;
+    return graph;
+  }
+
+  /**
+   * Return the dense id of the node containing the provided data.
+   *
+   * @param data the node contents to look up
+   * @return the id of that node, or -1 when no node contains this data
+   */
+  public int idOf(NodeType data) {
+    if (data == null || !ids.containsKey(data))
+      return -1;
+    return ids.get(data);
+  }
+
+  /**
+   * Return the data stored in the node with the provided id.
+   *
+   * @param id the dense id of the node
+   * @return the data item stored in that node
+   */
+  @SuppressWarnings("unchecked")
+  public NodeType data(int id) {
+    return (NodeType) nodeData[id];
+  }
+
+  @Override
+  public boolean insertNode(NodeType data) {
+    if (data == null)
+      throw new NullPointerException("Cannot insert null data into graph");
+    if (ids.containsKey(data))
+      return false;
+    if (nodeCount == nodeData.length) {
+      int capacity = 2 * nodeData.length;
+      nodeData = Arrays.copyOf(nodeData, capacity);
+      successors = Arrays.copyOf(successors, capacity);
+      weights = Arrays.copyOf(weights, capacity);
+      outDegree = Arrays.copyOf(outDegree, capacity);
+      predecessors = Arrays.copyOf(predecessors, capacity);
+      inDegree = Arrays.copyOf(inDegree, capacity);
+    }
+    int id = nodeCount++;
+    nodeData[id] = data;
+    successors[id] = NO_IDS;
+    weights[id] = NO_WEIGHTS;
+    predecessors[id] = NO_IDS;
+    outDegree[id] = 0;
+    inDegree[id] = 0;
+    ids.put(data, id);
+    return true;
+  }
+
+  @Override
+  public boolean removeNode(NodeType data) {
+    int v = idOf(data);
+    if (v < 0)
+      return false;
+    // remove the edges leaving v from the predecessors of their successors, and the edges entering
+    // v from the successors of their predecessors (self loops are only counted once)
+    for (int i = 0; i < outDegree[v]; i++)
+      if (successors[v][i] != v)
+        removeId(predecessors, inDegree, successors[v][i], v);
+    for (int i = 0; i < inDegree[v]; i++)
+      if (predecessors[v][i] != v)
+        removeSuccessor(predecessors[v][i], v);
+    edgeCount -= outDegree[v] + inDegree[v];
+    for (int i = 0; i < outDegree[v]; i++)
+      if (successors[v][i] == v)
+        edgeCount++;
+    ids.remove(data);
+
+    // move the last node into the freed id, and renumber it in its neighbors' arrays
+    int last = --nodeCount;
+    if (last != v) {
+      for (int i = 0; i < outDegree[last]; i++)
+        if (successors[last][i] != last)
+          replaceId(predecessors[successors[last][i]], inDegree[successors[last][i]], last, v);
+      for (int i = 0; i < inDegree[last]; i++)
+        if (predecessors[last][i] != last)
+          replaceId(successors[predecessors[last][i]], outDegree[predecessors[last][i]], last, v);
+      replaceId(successors[last], outDegree[last], last, v);
+      replaceId(predecessors[last], inDegree[last], last, v);
+      nodeData[v] = nodeData[last];
+      successors[v] = successors[last];
+      weights[v] = weights[last];
+      outDegree[v] = outDegree[last];
+      predecessors[v] = predecessors[last];
+      inDegree[v] = inDegree[last];
+      ids.remove(data(v));
+      ids.put(data(v), v);
+    }
+    nodeData[last] = null;
+    successors[last] = null;
+    weights[last] = null;
+    predecessors[last] = null;
+    return true;
+  }
+
+  @Override
+  public boolean containsNode(NodeType data) {
+    return idOf(data) >= 0;
+  }
+
+  @Override
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  @Override
+  public boolean insertEdge(NodeType pred, NodeType succ, Double weight) {
+    return insertEdgeWeight(pred, succ, weight.doubleValue());
+  }
+
+  /**
+   * Insert a new directed edge with a primitive weight, or update the weight of an existing edge.
+   *
+   * @param pred   the data item contained in the source node for the edge
+   * @param succ   the data item contained in the destination node for the edge
+   * @param weight the weight for the edge (has to be a positive value)
+   * @return true if the edge could be inserted or its weight updated, and false if the pred or succ
+   *         data are not found in any graph nodes
+   */
+  public boolean insertEdgeWeight(NodeType pred, NodeType succ, double weight) {
+    int u = idOf(pred);
+    int v = idOf(succ);
+    if (u < 0 || v < 0)
+      return false;
+    int edge = findEdge(u, v);
+    if (edge >= 0) {
+      weights[u][edge] = weight;
+      return true;
+    }
+    if (outDegree[u] == successors[u].length) {
+      int capacity = Math.max(4, 2 * outDegree[u]);
+      successors[u] = Arrays.copyOf(successors[u], capacity);
+      weights[u] = Arrays.copyOf(weights[u], capacity);
+    }
+    successors[u][outDegree[u]] = v;
+    weights[u][outDegree[u]++] = weight;
+    if (inDegree[v] == predecessors[v].length)
+      predecessors[v] = Arrays.copyOf(predecessors[v], Math.max(4, 2 * inDegree[v]));
+    predecessors[v][inDegree[v]++] = u;
+    edgeCount++;
+    return true;
+  }
+
+  @Override
+  public boolean removeEdge(NodeType pred, NodeType succ) {
+    int u = idOf(pred);
+    int v = idOf(succ);
+    if (u < 0 || v < 0 || findEdge(u, v) < 0)
+      return false;
+    removeSuccessor(u, v);
+    removeId(predecessors, inDegree, v, u);
+    edgeCount--;
+    return true;
+  }
+
+  @Override
+  public boolean containsEdge(NodeType pred, NodeType succ) {
+    int u = idOf(pred);
+    return u >= 0 && findEdge(u, idOf(succ)) >= 0;
+  }
+
+  @Override
+  public Double getEdge(NodeType pred, NodeType succ) {
+    return getEdgeWeight(pred, succ);
+  }
+
+  /**
+   * Return the primitive weight of the edge between the provided nodes.
+   *
+   * @param pred the data item contained in the source node for the edge
+   * @param succ the data item contained in the destination node for the edge
+   * @return the weight of the edge between those nodes
+   * @throws NoSuchElementException if either node or the directed edge between them does not exist
+   */
+  public double getEdgeWeight(NodeType pred, NodeType succ) {
+    int u = idOf(pred);
+    int edge = u < 0 ? -1 : findEdge(u, idOf(succ));
+    if (edge < 0)
+      throw new NoSuchElementException("No edge from " + pred + " to " + succ);
+    return weights[u][edge];
+  }
+
+  @Override
+  public int getEdgeCount() {
+    return edgeCount;
+  }
+
+  // Return the position of the edge from u to v among the edges leaving u, or -1 if there is none
+  private int findEdge(int u, int v) {
+    int[] targets = successors[u];
+    for (int i = 0, degree = outDegree[u]; i < degree; i++)
+      if (targets[i] == v)
+        return i;
+    return -1;
+  }
+
+  // Removes the edge from u to v from the edges leaving u, by moving u's last edge into its place
+  private void removeSuccessor(int u, int v) {
+    int edge = findEdge(u, v);
+    int last = --outDegree[u];
+    successors[u][edge] = successors[u][last];
+    weights[u][edge] = weights[u][last];
+  }
+
+  // Removes one occurrence of id from the first counts[node] entries of arrays[node]
+  private static void removeId(int[][] arrays, int[] counts, int node, int id) {
+    int[] array = arrays[node];
+    for (int i = 0; i < counts[node]; i++) {
+      if (array[i] == id) {
+        array[i] = array[--counts[node]];
+        return;
+      }
+    }
+  }
+
+  // Replaces every occurrence of from with to in the first count entries of array
+  private static void replaceId(int[] array, int count, int from, int to) {
+    for (int i = 0; i < count; i++)
+      if (array[i] == from)
+        array[i] = to;
+  }
+
+  /**
+   * Returns the list of data values from nodes along the shortest path from the node with the
+   * provided start value through the node with the provided end value.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end   the data item in the destination node for the path
+   * @return list of data item from node along this shortest path
+   * @throws NoSuchElementException when no path from start to end is found or when either start or
+   *                                end data do not correspond to a graph node
+   */
+  @Override
+  public List<NodeType> shortestPathData(NodeType start, NodeType end) {
+    SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+    int endId = computeShortestPath(idOf(start), idOf(end), workspace);
+    if (endId < 0)
+      throw new NoSuchElementException("Invalid Path");
+    List<NodeType> path = new ArrayList<>();
+    for (int id = endId; id != -1; id = workspace.pred(id))
+      path.add(data(id));
+    Collections.reverse(path);
+    return path;
+  }
+
+  /**
+   * Returns the cost of the path (sum over edge weights) of the shortest path from the node
+   * containing the start data to the node containing the end data.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end   the data item in the destination node for the path
+   * @return the cost of the shortest path between these nodes, or -1 when there is no such path
+   */
+  @Override
+  public double shortestPathCost(NodeType start, NodeType end) {
+    SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+    int endId = computeShortestPath(idOf(start), idOf(end), workspace);
+    return endId < 0 ? -1 : workspace.dist(endId);
+  }
+
+  /**
+   * Runs Dijkstra's algorithm over the primitive edge arrays, from the node with id start until the
+   * node with id end is settled.
+   *
+   * @param start     the id of the starting node for the path, or -1 if it does not exist
+   * @param end       the id of the destination node for the path, or -1 if it does not exist
+   * @param workspace the workspace to run this search in
+   * @return end, or -1 when either node does not exist or no path from start to end is found
+   */
+  protected int computeShortestPath(int start, int end, SearchWorkspace workspace) {
+    if (start < 0 || end < 0)
+      return -1;
+    workspace.begin(nodeCount);
+    IndexedMinHeap frontier = workspace.frontier();
+    workspace.reach(start, 0, -1);
+    while (!frontier.isEmpty()) {
+      int u = workspace.settle();
+      if (u == end)
+        return end;
+      double costU = workspace.dist(u);
+      int[] targets = successors[u];
+      double[] costs = weights[u];
+      for (int i = 0, degree = outDegree[u]; i < degree; i++) {
+        double cost = costU + costs[i];
+        if (cost < workspace.dist(targets[i]))
+          workspace.reach(targets[i], cost, u);
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Tests that random insertions and removals leave this graph with the same nodes, edges and
+   * shortest paths as a DijkstraGraph that receives the same changes.
+   */
+  @Test
+  public void testMatchesDijkstraGraph() {
+    DoubleDijkstraGraph<Integer> graph = new DoubleDijkstraGraph<>();
+    DijkstraGraph<Integer, Double> expected = new DijkstraGraph<>();
+    Random rng = new Random(5);
+    for (int round = 0; round < 3000; round++) {
+      int a = rng.nextInt(60);
+      int b = rng.nextInt(60);
+      int action = rng.nextInt(10);
+      if (action < 2) {
+        Assertions.assertEquals(expected.insertNode(a), graph.insertNode(a));
+      } else if (action < 3) {
+        Assertions.assertEquals(expected.removeNode(a), graph.removeNode(a));
+      } else if (action < 8) {
+        double weight = rng.nextInt(100) / 4.0;
+        Assertions.assertEquals(expected.insertEdge(a, b, weight), graph.insertEdge(a, b, weight));
+      } else {
+        Assertions.assertEquals(expected.removeEdge(a, b), graph.removeEdge(a, b));
+      }
+      Assertions.assertEquals(expected.getNodeCount(), graph.getNodeCount());
+      Assertions.assertEquals(expected.getEdgeCount(), graph.getEdgeCount());
+      Assertions.assertEquals(expected.containsEdge(a, b), graph.containsEdge(a, b));
+      if (expected.containsEdge(a, b))
+        Assertions.assertEquals(expected.getEdge(a, b), graph.getEdge(a, b));
+      Assertions.assertEquals(expected.shortestPathCost(a, b), graph.shortestPathCost(a, b));
+    }
+    for (int id = 0; id < graph.getNodeCount(); id++)
+      Assertions.assertEquals(id, graph.idOf(graph.data(id)));
+
+    // a small graph whose shortest path from A to L is known, with its ids in a HashtableMap
+    DoubleDijkstraGraph<String> lecture = DoubleDijkstraGraph.withMap(new HashtableMap<>());
+    for (String node : new String[] {"A", "B", "D", "E", "F", "G", "H", "I", "L", "M"})
+      lecture.insertNode(node);
+    lecture.insertEdge("A", "B", 1.0);
+    lecture.insertEdge("A", "H", 8.0);
+    lecture.insertEdge("A", "M", 5.0);
+    lecture.insertEdge("B", "M", 3.0);
+    lecture.insertEdge("D", "A", 7.0);
+    lecture.insertEdge("D", "G", 2.0);
+    lecture.insertEdge("F", "G", 9.0);
+    lecture.insertEdge("G", "L", 7.0);
+    lecture.insertEdge("H", "B", 6.0);
+    lecture.insertEdge("H", "I", 2.0);
+    lecture.insertEdge("I", "D", 1.0);
+    lecture.insertEdge("I", "L", 5.0);
+    lecture.insertEdge("I", "H", 2.0);
+    lecture.insertEdge("M", "E", 3.0);
+    lecture.insertEdge("M", "F", 4.0);
+    Assertions.assertEquals(List.of("A", "H", "I", "L"), lecture.shortestPathData("A", "L"));
+    Assertions.assertEquals(15.0, lecture.shortestPathCost("A", "L"));
+    Assertions.assertThrows(NoSuchElementException.class, () -> lecture.shortestPathData("L", "A"));
+  }
+}
@@ -55,7 +55,9 @@ public class Frontend extends Application {
 
 	public void start(Stage stage) {
 		try{back.loadGraphData("./campus.dot");}
-		catch(Exception e){}
+		catch(Exception e){
+			System.err.println("Could not load ./campus.dot: " + e.getMessage());
+		}
 		locList = back.getListOfAllLocations();
 		Pane root = new Pane();
 		root.setId("root");
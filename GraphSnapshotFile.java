@@ -0,0 +1,806 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Reads and writes binary snapshots of a frozen graph, so that a large graph can be loaded at
+ * startup without parsing its DOT file again. A snapshot holds the graph's CSR arrays, a string
+ * table with the name of every node, and optionally the landmarks and contraction hierarchy that
+ * were computed for it. The file is memory mapped when it is loaded: the CSR arrays are copied out
+ * in bulk, and node names stay in the mapped string table until they are first needed, so loading
+ * creates no objects per node or edge.
+ *
+ * Every snapshot starts with a 48-byte header, followed by its sections in this order (all numbers
+ * are little endian, and every section starts at a multiple of 8 bytes):
+ *
+ * <pre>
+ * header:    int magic, int version, int flags, int nodeCount, int edgeCount, int nameBytes,
+ *            long sourceLength, long sourceModified, long checksum (CRC32 of all following bytes)
+ * names:     int[nodeCount + 1] nameOffsets, int[nodeCount] sortedIds, byte[nameBytes] utf8
+ * edges:     int[nodeCount + 1] offsets, int[edgeCount] targets, double[edgeCount] weights
+ * landmarks: long fingerprint, int count, int[count] ids, then double[nodeCount] costs from and
+ *            to each landmark in turn (only when flags has HAS_LANDMARKS)
+ * hierarchy: long fingerprint, int shortcutCount, int upCount, int downCount, int[nodeCount] rank,
+ *            then upward and downward offsets, ends, middle nodes and weights (only when flags has
+ *            HAS_HIERARCHY)
+ * </pre>
+ *
+ * The length and modification time of the DOT file a snapshot was made from are stored in its
+ * header, so that a snapshot is only preferred over its source while the source has not changed.
+ *
+ * Usage: java GraphSnapshotFile source.dot [snapshot] [landmarkCount] [hierarchy]
+ */
+public class GraphSnapshotFile {
+
+  private static final int MAGIC = 0x50414E53; // "SNAP" in little endian
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 48;
+  private static final int HAS_LANDMARKS = 1;
+  private static final int HAS_HIERARCHY = 2;
+  private static final int WINDOW_BITS = 30; // sections are mapped in windows of 1 GB
+
+  /**
+   * The graph, names and precomputed search data loaded from a snapshot.
+   */
+  public static class Snapshot {
+    private final MappedGraph graph;
+    private final Landmarks landmarks;
+    private final ContractionHierarchy hierarchy;
+
+    private Snapshot(MappedGraph graph, Landmarks landmarks, ContractionHierarchy hierarchy) {
+      this.graph = graph;
+      this.landmarks = landmarks;
+      this.hierarchy = hierarchy;
+    }
+
+    /**
+     * Return the frozen graph stored in this snapshot.
+     *
+     * @return the CSR graph, whose node data are the node names
+     */
+    public CsrGraph<String> getGraph() {
+      return graph;
+    }
+
+    /**
+     * Return the name of every node, in id order. Names are decoded as they are read.
+     *
+     * @return a read only list of the node names
+     */
+    public List<String> getNames() {
+      return new AbstractList<String>() {
+        @Override
+        public String get(int index) {
+          return graph.data(index);
+        }
+
+        @Override
+        public int size() {
+          return graph.getNodeCount();
+        }
+      };
+    }
+
+    /**
+     * Return the landmarks stored with the graph.
+     *
+     * @return the landmarks for ALT search, or null when the snapshot has none
+     */
+    public Landmarks getLandmarks() {
+      return landmarks;
+    }
+
+    /**
+     * Return the contraction hierarchy stored with the graph.
+     *
+     * @return the hierarchy of the graph, or null when the snapshot has none
+     */
+    public ContractionHierarchy getHierarchy() {
+      return hierarchy;
+    }
+  }
+
+  // A CSR graph whose node names are decoded from the mapped string table the first time they are
+  // needed, and looked up by binary search over the node ids sorted by name
+  private static class MappedGraph extends CsrGraph<String> {
+    private final Section names; // UTF-8 bytes of every name, one after the other
+    private final int[] nameOffsets; // position of each node's name in names, then the total length
+    private final int[] sortedIds; // node ids in order of their names' unsigned bytes
+
+    private MappedGraph(Section names, int[] nameOffsets, int[] sortedIds, int[] offsets,
+        int[] targets, double[] weights) {
+      super(offsets, targets, weights);
+      this.names = names;
+      this.nameOffsets = nameOffsets;
+      this.sortedIds = sortedIds;
+    }
+
+    @Override
+    public String data(int id) {
+      // racing threads may both decode a name, but the two Strings are equal so either can be kept
+      String name = (String) nodeData[id];
+      if (name == null) {
+        byte[] bytes = new byte[nameOffsets[id + 1] - nameOffsets[id]];
+        names.get(nameOffsets[id], bytes);
+        name = new String(bytes, StandardCharsets.UTF_8);
+        nodeData[id] = name;
+      }
+      return name;
+    }
+
+    @Override
+    public int idOf(String data) {
+      if (data == null)
+        return -1;
+      byte[] key = data.getBytes(StandardCharsets.UTF_8);
+      int low = 0;
+      int high = sortedIds.length - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int comparison = compareName(sortedIds[middle], key);
+        if (comparison < 0)
+          low = middle + 1;
+        else if (comparison > 0)
+          high = middle - 1;
+        else
+          return sortedIds[middle];
+      }
+      return -1;
+    }
+
+    // Compares the name of node id to key, by their unsigned bytes
+    private int compareName(int id, byte[] key) {
+      int start = nameOffsets[id];
+      int length = nameOffsets[id + 1] - start;
+      for (int i = 0, shared = Math.min(length, key.length); i < shared; i++) {
+        int comparison = (names.get(start + i) & 0xff) - (key[i] & 0xff);
+        if (comparison != 0)
+          return comparison;
+      }
+      return length - key.length;
+    }
+  }
+
+  /**
+   * Return the name of the snapshot file that belongs to a DOT file, like campus.dot.snap for
+   * campus.dot.
+   *
+   * @param source the name of the DOT file
+   * @return the name of its snapshot file
+   */
+  public static String snapshotFor(String source) {
+    return source + ".snap";
+  }
+
+  /**
+   * Writes a snapshot of a frozen graph, along with the landmarks and contraction hierarchy that
+   * were computed for it.
+   *
+   * @param filename  the file to write the snapshot to, which is replaced if it exists
+   * @param source    the DOT file the graph was read from, whose length and modification time are
+   *                  recorded so that the snapshot can later be checked for freshness
+   * @param graph     the frozen graph, whose node data are the node names
+   * @param landmarks the landmarks of this graph, or null to store none
+   * @param hierarchy the contraction hierarchy of this graph, or null to store none
+   * @throws IOException              if writing the file fails
+   * @throws IllegalArgumentException if the landmarks or hierarchy were built for another graph
+   */
+  public static void write(String filename, String source, CsrGraph<String> graph,
+      Landmarks landmarks, ContractionHierarchy hierarchy) throws IOException {
+    if (landmarks != null && !landmarks.matches(graph))
+      throw new IllegalArgumentException("Landmarks were computed for a different graph");
+    if (hierarchy != null && !hierarchy.matches(graph))
+      throw new IllegalArgumentException("Hierarchy was built for a different graph");
+    int nodeCount = graph.getNodeCount();
+
+    // lay out the string table, and sort the node ids by name for binary search
+    byte[][] names = new byte[nodeCount][];
+    int[] nameOffsets = new int[nodeCount + 1];
+    Integer[] byName = new Integer[nodeCount];
+    for (int id = 0; id < nodeCount; id++) {
+      names[id] = graph.data(id).getBytes(StandardCharsets.UTF_8);
+      nameOffsets[id + 1] = nameOffsets[id] + names[id].length;
+      byName[id] = id;
+    }
+    Arrays.sort(byName, (a, b) -> Arrays.compareUnsigned(names[a], names[b]));
+    int[] sortedIds = new int[nodeCount];
+    for (int i = 0; i < nodeCount; i++)
+      sortedIds[i] = byName[i];
+
+    File sourceFile = new File(source);
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      SectionWriter out = new SectionWriter(channel);
+      out.putInts(nameOffsets);
+      out.align();
+      out.putInts(sortedIds);
+      out.align();
+      for (byte[] name : names)
+        out.putBytes(name);
+      out.align();
+      out.putInts(graph.offsets);
+      out.align();
+      out.putInts(graph.targets);
+      out.align();
+      out.putDoubles(graph.weights);
+      int flags = 0;
+      if (landmarks != null) {
+        flags |= HAS_LANDMARKS;
+        out.putLong(landmarks.graphFingerprint);
+        out.putInt(landmarks.landmarks.length);
+        out.putInts(landmarks.landmarks);
+        out.align();
+        for (int i = 0; i < landmarks.landmarks.length; i++) {
+          out.putDoubles(landmarks.fromLandmark[i]);
+          out.putDoubles(landmarks.toLandmark[i]);
+        }
+      }
+      if (hierarchy != null) {
+        flags |= HAS_HIERARCHY;
+        out.putLong(hierarchy.graphFingerprint);
+        out.putInt(hierarchy.shortcutCount);
+        out.putInt(hierarchy.upTargets.length);
+        out.putInt(hierarchy.downSources.length);
+        out.putInts(hierarchy.rank);
+        out.putInts(hierarchy.upOffsets);
+        out.putInts(hierarchy.upTargets);
+        out.putInts(hierarchy.upMiddle);
+        out.align();
+        out.putDoubles(hierarchy.upWeights);
+        out.putInts(hierarchy.downOffsets);
+        out.putInts(hierarchy.downSources);
+        out.putInts(hierarchy.downMiddle);
+        out.align();
+        out.putDoubles(hierarchy.downWeights);
+      }
+      out.flush();
+
+      // the header goes in last, once the checksum of everything after it is known
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      header.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(nodeCount)
+          .putInt(graph.getEdgeCount()).putInt(nameOffsets[nodeCount]);
+      header.putLong(sourceFile.length()).putLong(sourceFile.lastModified());
+      header.putLong(out.checksum.getValue());
+      header.flip();
+      channel.write(header, 0);
+    }
+  }
+
+  /**
+   * Check whether a snapshot exists and was made from the current version of its DOT file, by
+   * comparing the length and modification time recorded in its header to those of the DOT file.
+   *
+   * @param filename the snapshot file to check
+   * @param source   the DOT file the snapshot should have been made from
+   * @return true if the snapshot can be loaded in place of its source, or false otherwise
+   */
+  public static boolean isFresh(String filename, String source) {
+    File file = new File(filename);
+    File sourceFile = new File(source);
+    if (!file.isFile() || file.length() < HEADER_SIZE || !sourceFile.isFile())
+      return false;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      while (header.hasRemaining() && channel.read(header) >= 0) {
+      }
+      header.flip();
+      return header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+          && header.getLong(24) == sourceFile.length()
+          && header.getLong(32) == sourceFile.lastModified();
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  /**
+   * One section of a memory mapped snapshot, read with long byte offsets from its start. Since one
+   * ByteBuffer maps at most 2 GB, a section is mapped in windows of a power of two bytes (1 GB
+   * unless a test asks for less). Sections start at multiples of 8 bytes, so no int or double is
+   * ever split between two windows.
+   */
+  public static class Section {
+    private final ByteBuffer[] windows;
+    private final int windowBits;
+    private final long length;
+
+    private Section(FileChannel channel, long start, long length, int windowBits)
+        throws IOException {
+      this.windowBits = windowBits;
+      this.length = length;
+      long windowSize = 1L << windowBits;
+      windows = new ByteBuffer[(int) ((length + windowSize - 1) >>> windowBits)];
+      for (int i = 0; i < windows.length; i++) {
+        long offset = (long) i << windowBits;
+        windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start + offset,
+            Math.min(windowSize, length - offset)).order(ByteOrder.LITTLE_ENDIAN);
+      }
+    }
+
+    /**
+     * Return the number of bytes in this section.
+     *
+     * @return the length of this section
+     */
+    public long length() {
+      return length;
+    }
+
+    /**
+     * Return the byte at an offset of this section.
+     *
+     * @param position the offset of the byte from the start of this section
+     * @return the byte at that offset
+     */
+    public byte get(long position) {
+      return windowAt(position).get(offsetIn(position));
+    }
+
+    /**
+     * Return the int at an offset of this section, which must be a multiple of 4.
+     *
+     * @param position the offset of the int from the start of this section
+     * @return the little endian int at that offset
+     */
+    public int getInt(long position) {
+      return windowAt(position).getInt(offsetIn(position));
+    }
+
+    /**
+     * Return the long at an offset of this section, which must be a multiple of 8.
+     *
+     * @param position the offset of the long from the start of this section
+     * @return the little endian long at that offset
+     */
+    public long getLong(long position) {
+      return windowAt(position).getLong(offsetIn(position));
+    }
+
+    /**
+     * Return the double at an offset of this section, which must be a multiple of 8.
+     *
+     * @param position the offset of the double from the start of this section
+     * @return the little endian double at that offset
+     */
+    public double getDouble(long position) {
+      return windowAt(position).getDouble(offsetIn(position));
+    }
+
+    /**
+     * Copies bytes out of this section, across windows when needed.
+     *
+     * @param position the offset of the first byte to copy
+     * @param bytes    the array to fill with the bytes from position on
+     */
+    public void get(long position, byte[] bytes) {
+      for (int copied = 0; copied < bytes.length;) {
+        ByteBuffer window = windowAt(position);
+        int offset = offsetIn(position);
+        int count = Math.min(bytes.length - copied, window.limit() - offset);
+        window.get(offset, bytes, copied, count);
+        copied += count;
+        position += count;
+      }
+    }
+
+    // Copies count ints from position on in bulk, one window at a time
+    private int[] getInts(long position, int count) {
+      int[] values = new int[count];
+      for (int copied = 0; copied < count;) {
+        ByteBuffer window = windowAt(position);
+        int offset = offsetIn(position);
+        int run = Math.min(count - copied, (window.limit() - offset) / 4);
+        if (run == 0)
+          throw new IndexOutOfBoundsException("Section ends before " + count + " ints");
+        window.slice(offset, 4 * run).order(ByteOrder.LITTLE_ENDIAN).asIntBuffer()
+            .get(values, copied, run);
+        copied += run;
+        position += 4L * run;
+      }
+      return values;
+    }
+
+    // Copies count doubles from position on in bulk, one window at a time
+    private double[] getDoubles(long position, int count) {
+      double[] values = new double[count];
+      for (int copied = 0; copied < count;) {
+        ByteBuffer window = windowAt(position);
+        int offset = offsetIn(position);
+        int run = Math.min(count - copied, (window.limit() - offset) / 8);
+        if (run == 0)
+          throw new IndexOutOfBoundsException("Section ends before " + count + " doubles");
+        window.slice(offset, 8 * run).order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer()
+            .get(values, copied, run);
+        copied += run;
+        position += 8L * run;
+      }
+      return values;
+    }
+
+    private ByteBuffer windowAt(long position) {
+      return windows[(int) (position >>> windowBits)];
+    }
+
+    private int offsetIn(long position) {
+      return (int) (position & ((1L << windowBits) - 1));
+    }
+  }
+
+  /**
+   * The sections of a memory mapped snapshot, each mapped on its own with little endian windows.
+   * Readers like OffHeapGraph use these sections in place, without copying them onto the heap.
+   */
+  public static class Sections {
+    public final int nodeCount;
+    public final int edgeCount;
+    public final Section nameOffsets; // int[nodeCount + 1] position of each name in names
+    public final Section sortedIds; // int[nodeCount] node ids in order of their names
+    public final Section names; // UTF-8 bytes of every name, one after the other
+    public final Section offsets; // int[nodeCount + 1] first edge leaving each node
+    public final Section targets; // int[edgeCount] successor of each edge
+    public final Section weights; // double[edgeCount] weight of each edge
+    private final int flags;
+    private final Section rest; // the optional landmark and hierarchy sections
+    private long position = HEADER_SIZE; // file position of the next section while mapping
+
+    private Sections(FileChannel channel, ByteBuffer header, int windowBits) throws IOException {
+      flags = header.getInt(8);
+      nodeCount = header.getInt(12);
+      edgeCount = header.getInt(16);
+      int nameBytes = header.getInt(20);
+      if (nodeCount < 0 || edgeCount < 0 || nameBytes < 0)
+        throw new IllegalArgumentException("Negative count in header");
+      nameOffsets = next(channel, 4L * (nodeCount + 1), windowBits);
+      sortedIds = next(channel, 4L * nodeCount, windowBits);
+      names = next(channel, nameBytes, windowBits);
+      offsets = next(channel, 4L * (nodeCount + 1), windowBits);
+      targets = next(channel, 4L * edgeCount, windowBits);
+      weights = next(channel, 8L * edgeCount, windowBits);
+      rest = new Section(channel, position, Math.max(0, channel.size() - position), windowBits);
+    }
+
+    // Maps the next length bytes of the file as a section, and skips past them and any padding
+    private Section next(FileChannel channel, long length, int windowBits) throws IOException {
+      if (position + length > channel.size())
+        throw new BufferUnderflowException();
+      Section section = new Section(channel, position, length, windowBits);
+      position = (position + length + 7) & ~7L;
+      return section;
+    }
+  }
+
+  // Reads the values of a section one after another
+  private static class SectionReader {
+    private final Section section;
+    private long position = 0;
+
+    private SectionReader(Section section) {
+      this.section = section;
+    }
+
+    private int getInt() {
+      int value = section.getInt(position);
+      position += 4;
+      return value;
+    }
+
+    private long getLong() {
+      long value = section.getLong(position);
+      position += 8;
+      return value;
+    }
+
+    private int[] getInts(int count) {
+      int[] values = section.getInts(position, count);
+      position += 4L * count;
+      return values;
+    }
+
+    private double[] getDoubles(int count) {
+      double[] values = section.getDoubles(position, count);
+      position += 8L * count;
+      return values;
+    }
+
+    // Skips the padding up to the next multiple of 8 bytes
+    private void align() {
+      position = (position + 7) & ~7L;
+    }
+  }
+
+  /**
+   * Memory maps a snapshot and verifies its header and checksum, without copying any of it. Each
+   * section is mapped separately, in windows of up to 1 GB, so snapshots may be larger than 2 GB.
+   *
+   * @param filename the snapshot file to map
+   * @return the sections of the mapped file
+   * @throws IOException if reading fails, or the file is not a valid snapshot of this version
+   */
+  public static Sections map(String filename) throws IOException {
+    return map(filename, WINDOW_BITS);
+  }
+
+  // Maps a snapshot with windows of 2^windowBits bytes, which tests make small to cross windows
+  static Sections map(String filename, int windowBits) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE)
+        throw new IOException(filename + " is not a graph snapshot");
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+      while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+      }
+      if (header.getInt(0) != MAGIC)
+        throw new IOException(filename + " is not a graph snapshot");
+      if (header.getInt(4) != VERSION)
+        throw new IOException(filename + " has unsupported snapshot version " + header.getInt(4));
+      CRC32 checksum = new CRC32();
+      for (long position = HEADER_SIZE; position < size; position += 1L << WINDOW_BITS)
+        checksum.update(channel.map(FileChannel.MapMode.READ_ONLY, position,
+            Math.min(1L << WINDOW_BITS, size - position)));
+      if (checksum.getValue() != header.getLong(40))
+        throw new IOException(filename + " is corrupt (checksum mismatch)");
+      // the mappings stay valid after their channel is closed
+      try {
+        return new Sections(channel, header, windowBits);
+      } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+        throw new IOException(filename + " is truncated or inconsistent", e);
+      }
+    }
+  }
+
+  /**
+   * Loads a snapshot by memory mapping it. The checksum of the whole file is verified before any of
+   * it is used.
+   *
+   * @param filename the snapshot file to load
+   * @return the graph and precomputed search data stored in the file
+   * @throws IOException if reading fails, or the file is not a valid snapshot of this version
+   */
+  public static Snapshot load(String filename) throws IOException {
+    Sections sections = map(filename);
+    int nodeCount = sections.nodeCount;
+    int flags = sections.flags;
+    try {
+      MappedGraph graph = new MappedGraph(sections.names,
+          sections.nameOffsets.getInts(0, nodeCount + 1), sections.sortedIds.getInts(0, nodeCount),
+          sections.offsets.getInts(0, nodeCount + 1),
+          sections.targets.getInts(0, sections.edgeCount),
+          sections.weights.getDoubles(0, sections.edgeCount));
+
+      SectionReader in = new SectionReader(sections.rest);
+      Landmarks landmarks = null;
+      if ((flags & HAS_LANDMARKS) != 0) {
+        long fingerprint = in.getLong();
+        int count = in.getInt();
+        int[] ids = in.getInts(count);
+        in.align();
+        double[][] fromLandmark = new double[count][];
+        double[][] toLandmark = new double[count][];
+        for (int i = 0; i < count; i++) {
+          fromLandmark[i] = in.getDoubles(nodeCount);
+          toLandmark[i] = in.getDoubles(nodeCount);
+        }
+        landmarks = new Landmarks(fingerprint, ids, fromLandmark, toLandmark);
+      }
+      ContractionHierarchy hierarchy = null;
+      if ((flags & HAS_HIERARCHY) != 0) {
+        long fingerprint = in.getLong();
+        int shortcutCount = in.getInt();
+        int upCount = in.getInt();
+        int downCount = in.getInt();
+        int[] rank = in.getInts(nodeCount);
+        int[] upOffsets = in.getInts(nodeCount + 1);
+        int[] upTargets = in.getInts(upCount);
+        int[] upMiddle = in.getInts(upCount);
+        in.align();
+        double[] upWeights = in.getDoubles(upCount);
+        int[] downOffsets = in.getInts(nodeCount + 1);
+        int[] downSources = in.getInts(downCount);
+        int[] downMiddle = in.getInts(downCount);
+        in.align();
+        double[] downWeights = in.getDoubles(downCount);
+        hierarchy = new ContractionHierarchy(fingerprint, rank, shortcutCount, upOffsets,
+            upTargets, upWeights, upMiddle, downOffsets, downSources, downWeights, downMiddle);
+      }
+      return new Snapshot(graph, landmarks, hierarchy);
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      throw new IOException(filename + " is truncated or inconsistent", e);
+    }
+  }
+
+  // Writes the sections after the header through a buffer, and keeps a checksum of their bytes
+  private static class SectionWriter {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 checksum = new CRC32();
+    private long position = HEADER_SIZE; // file position of the start of buffer
+
+    private SectionWriter(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    private void putInt(int value) throws IOException {
+      if (buffer.remaining() < 4)
+        flush();
+      buffer.putInt(value);
+    }
+
+    private void putLong(long value) throws IOException {
+      if (buffer.remaining() < 8)
+        flush();
+      buffer.putLong(value);
+    }
+
+    private void putInts(int[] values) throws IOException {
+      for (int value : values)
+        putInt(value);
+    }
+
+    private void putDoubles(double[] values) throws IOException {
+      for (double value : values) {
+        if (buffer.remaining() < 8)
+          flush();
+        buffer.putDouble(value);
+      }
+    }
+
+    private void putBytes(byte[] values) throws IOException {
+      for (int start = 0; start < values.length;) {
+        if (!buffer.hasRemaining())
+          flush();
+        int count = Math.min(buffer.remaining(), values.length - start);
+        buffer.put(values, start, count);
+        start += count;
+      }
+    }
+
+    // Pads the output with zeros up to the next multiple of 8 bytes
+    private void align() throws IOException {
+      while (((position + buffer.position()) & 7) != 0) {
+        if (!buffer.hasRemaining())
+          flush();
+        buffer.put((byte) 0);
+      }
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      checksum.update(buffer.array(), 0, buffer.limit());
+      while (buffer.hasRemaining())
+        position += channel.write(buffer, position);
+      buffer.clear();
+    }
+  }
+
+  /**
+   * Reads a DOT file and writes its snapshot, optionally with landmarks for ALT search and a
+   * contraction hierarchy.
+   *
+   * @param args the DOT file, then optionally the snapshot file (source.snap by default), the
+   *             number of landmarks to store (none by default), and "hierarchy" to also store a
+   *             contraction hierarchy
+   * @throws IOException if reading the DOT file or writing the snapshot fails
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println(
+          "Usage: java GraphSnapshotFile source.dot [snapshot] [landmarkCount] [hierarchy]");
+      System.exit(1);
+    }
+    String source = args[0];
+    String filename = args.length > 1 ? args[1] : snapshotFor(source);
+    int landmarkCount = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+    boolean withHierarchy = args.length > 3 && args[3].equals("hierarchy");
+
+    long start = System.nanoTime();
+    CsrGraph<String> graph = new ParallelGraphLoader().load(source).toCsr();
+    System.out.printf("read %d nodes and %d edges in %.1f ms%n", graph.getNodeCount(),
+        graph.getEdgeCount(), (System.nanoTime() - start) / 1e6);
+    Landmarks landmarks = landmarkCount > 0 ? Landmarks.select(graph, landmarkCount) : null;
+    ContractionHierarchy hierarchy = withHierarchy ? ContractionHierarchy.build(graph) : null;
+    write(filename, source, graph, landmarks, hierarchy);
+    System.out.printf("wrote %s (%d bytes) in %.1f ms%n", filename, new File(filename).length(),
+        (System.nanoTime() - start) / 1e6);
+
+    start = System.nanoTime();
+    Snapshot snapshot = load(filename);
+    System.out.printf("loaded %d nodes back in %.1f ms%n", snapshot.getGraph().getNodeCount(),
+        (System.nanoTime() - start) / 1e6);
+  }
+
+  /**
+   * Tests that a snapshot of campus.dot loads back into the same graph, with the same names, paths,
+   * landmarks and hierarchy, and that stale or damaged snapshots are detected.
+   */
+  @Test
+  public void testRoundTrip() throws IOException {
+    DijkstraGraph<String, Double> original = new DijkstraGraph<>();
+    new ParallelGraphLoader().load("campus.dot").insertInto(original);
+    original.freeze();
+    CsrGraph<String> graph = original.snapshot;
+    Landmarks landmarks = original.prepareLandmarks(4);
+    ContractionHierarchy hierarchy = ContractionHierarchy.build(graph);
+
+    File source = File.createTempFile("campus", ".dot");
+    File file = new File(snapshotFor(source.getPath()));
+    try {
+      Files.copy(Paths.get("campus.dot"), source.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      Assertions.assertFalse(isFresh(file.getPath(), source.getPath()));
+      write(file.getPath(), source.getPath(), graph, landmarks, hierarchy);
+      Assertions.assertTrue(isFresh(file.getPath(), source.getPath()));
+
+      Snapshot snapshot = load(file.getPath());
+      CsrGraph<String> loaded = snapshot.getGraph();
+      Assertions.assertEquals(graph.fingerprint(), loaded.fingerprint());
+      for (int id = 0; id < graph.getNodeCount(); id++) {
+        Assertions.assertEquals(graph.data(id), loaded.data(id));
+        Assertions.assertEquals(id, loaded.idOf(graph.data(id)));
+        Assertions.assertEquals(id, loaded.reversed().idOf(graph.data(id)));
+      }
+      Assertions.assertEquals(-1, loaded.idOf("Nowhere"));
+      Assertions.assertEquals(graph.getNodeCount(), snapshot.getNames().size());
+      Assertions.assertTrue(snapshot.getLandmarks().matches(graph));
+      Assertions.assertEquals(landmarks.lowerBound(3, 7), snapshot.getLandmarks().lowerBound(3, 7));
+      Assertions.assertTrue(snapshot.getHierarchy().matches(graph));
+      Assertions.assertEquals(hierarchy.getShortcutCount(),
+          snapshot.getHierarchy().getShortcutCount());
+      // sections mapped in windows of 64 bytes read the same values across window boundaries
+      Sections small = map(file.getPath(), 6);
+      Assertions.assertArrayEquals(graph.offsets,
+          small.offsets.getInts(0, graph.getNodeCount() + 1));
+      Assertions.assertArrayEquals(graph.weights,
+          small.weights.getDoubles(0, graph.getEdgeCount()));
+
+      // a graph that adopts the snapshot answers queries without building its nodes, until changed
+      DijkstraGraph<String, Double> adopted = new DijkstraGraph<>();
+      adopted.adoptSnapshot(loaded, snapshot.getLandmarks());
+      adopted.setSearchMode(DijkstraGraph.SearchMode.ALT);
+      String first = graph.data(0);
+      String last = graph.data(graph.getNodeCount() - 1);
+      Assertions.assertEquals(original.shortestPathData(first, last),
+          adopted.shortestPathData(first, last));
+      Assertions.assertEquals(original.getNodeCount(), adopted.getNodeCount());
+      Assertions.assertEquals(original.getEdgeCount(), adopted.getEdgeCount());
+      Assertions.assertTrue(adopted.containsNode(last));
+      String next = graph.data(graph.target(graph.firstEdge(0)));
+      Assertions.assertTrue(adopted.containsEdge(first, next));
+      Assertions.assertEquals(original.getEdge(first, next), adopted.getEdge(first, next));
+      Assertions.assertFalse(adopted.containsEdge(first, "Nowhere"));
+      Assertions.assertThrows(NoSuchElementException.class, () -> adopted.getEdge(first, first));
+      Assertions.assertEquals(original.shortestPathCost(first, last),
+          adopted.shortestRoute(first, last).getTotalCost(), 1e-9);
+      Assertions.assertTrue(adopted.nodeList.isEmpty());
+      Assertions.assertTrue(adopted.insertNode("New Building"));
+      Assertions.assertEquals(original.getNodeCount() + 1, adopted.getNodeCount());
+      Assertions.assertEquals(original.getEdgeCount(), adopted.getEdgeCount());
+      Assertions.assertEquals(original.shortestPathCost(first, last),
+          adopted.shortestPathCost(first, last));
+
+      // a changed source makes the snapshot stale, and a damaged snapshot fails to load
+      Files.write(source.toPath(), "a -> b [seconds=1]\n".getBytes(),
+          StandardOpenOption.APPEND);
+      Assertions.assertFalse(isFresh(file.getPath(), source.getPath()));
+      byte[] bytes = Files.readAllBytes(file.toPath());
+      bytes[bytes.length / 2] ^= 1;
+      Files.write(file.toPath(), bytes);
+      Assertions.assertThrows(IOException.class, () -> load(file.getPath()));
+    } finally {
+      source.delete();
+      file.delete();
+    }
+  }
+}
@@ -1,31 +1,48 @@
+import java.util.Arrays;
 import java.util.NoSuchElementException;
-import org.junit.jupiter.api.Assertions;
-import org.junit.jupiter.api.Test;
 import java.util.LinkedList;
-import java.util.List;
 
 public class HashtableMap<KeyType, ValueType> {
 
-  // Instance field to store key-value pairs using chaining
+  // Number of old buckets moved into the new table by each operation during an incremental resize.
+  // A resize starts when the table is 80% full and the next one at 160% of the old capacity, so any
+  // value above 1.25 finishes each resize before the next one is due.
+  private static final int MIGRATE_PER_OPERATION = 4;
+
+  // Instance field to store key-value pairs using chaining. Buckets are created on first use, so
+  // empty buckets are null.
   protected LinkedList<Pair>[] table = null;
   protected int size = 0;
   protected int capacity = 64;
 
+  // In incremental mode, a resize keeps the previous table until all of its buckets have moved
+  protected final boolean incrementalResize;
+  protected LinkedList<Pair>[] oldTable = null; // previous table, or null when not resizing
+  protected int migrated = 0; // old buckets below this index have moved into table
+
   // Constructor with default capacity = 64
   public HashtableMap() {
     this(64);
   }
 
   // Constructor with specified capacity
-  @SuppressWarnings("unchecked")
   public HashtableMap(int capacity) {
-    // Initialize the table with the specified capacity
+    this(capacity, false);
+  }
+
+  /**
+   * Constructor with specified capacity and resize mode. By default, growing the table moves every
+   * pair at once. In incremental mode, the table grows without moving any pairs, and then every
+   * following put, get, containsKey and remove moves a few buckets of pairs from the old table into
+   * the new one, so that no single operation pays for moving the whole table.
+   *
+   * @param capacity          the initial number of buckets
+   * @param incrementalResize true to spread the work of each resize over the following operations
+   */
+  public HashtableMap(int capacity, boolean incrementalResize) {
     this.capacity = capacity;
-    table = (LinkedList<Pair>[]) new LinkedList<?>[capacity];
-    // Initialize each bucket in the table with an empty LinkedList
-    for (int i = 0; i < capacity; i++) {
-      table[i] = new LinkedList<>();
-    }
+    this.incrementalResize = incrementalResize;
+    table = newTable(capacity);
   }
 
   // Inner class to represent key-value pairs
@@ -52,8 +69,8 @@ public class HashtableMap<KeyType, ValueType> {
     if (key == null) {
       throw new NullPointerException("Key cannot be null");
     }
-    int index = Math.abs(key.hashCode()) % capacity;
-    LinkedList<Pair> list = table[index];
+    migrateBuckets(MIGRATE_PER_OPERATION);
+    LinkedList<Pair> list = bucket(key, true);
     for (Pair pair : list) {
       if (pair.key.equals(key)) {
         throw new IllegalArgumentException("Key already exists");
@@ -77,11 +94,13 @@ public class HashtableMap<KeyType, ValueType> {
     if (key == null) {
       return false;
     }
-    int index = Math.abs(key.hashCode()) % capacity;
-    LinkedList<Pair> list = table[index];
-    for (Pair pair : list) {
-      if (pair.key.equals(key)) {
-        return true;
+    migrateBuckets(MIGRATE_PER_OPERATION);
+    LinkedList<Pair> list = bucket(key, false);
+    if (list != null) {
+      for (Pair pair : list) {
+        if (pair.key.equals(key)) {
+          return true;
+        }
       }
     }
     return false;
@@ -99,11 +118,13 @@ public class HashtableMap<KeyType, ValueType> {
     if (key == null) {
       throw new NoSuchElementException("Key cannot be null");
     }
-    int index = Math.abs(key.hashCode()) % capacity;
-    LinkedList<Pair> list = table[index];
-    for (Pair pair : list) {
-      if (pair.key.equals(key)) {
-        return pair.value;
+    migrateBuckets(MIGRATE_PER_OPERATION);
+    LinkedList<Pair> list = bucket(key, false);
+    if (list != null) {
+      for (Pair pair : list) {
+        if (pair.key.equals(key)) {
+          return pair.value;
+        }
       }
     }
     throw new NoSuchElementException("Key not found");
@@ -121,13 +142,15 @@ public class HashtableMap<KeyType, ValueType> {
     if (key == null) {
       throw new NoSuchElementException("Key cannot be null");
     }
-    int index = Math.abs(key.hashCode()) % capacity;
-    LinkedList<Pair> list = table[index];
-    for (Pair pair : list) {
-      if (pair.key.equals(key)) {
-        list.remove(pair);
-        size--;
-        return pair.value;
+    migrateBuckets(MIGRATE_PER_OPERATION);
+    LinkedList<Pair> list = bucket(key, false);
+    if (list != null) {
+      for (Pair pair : list) {
+        if (pair.key.equals(key)) {
+          list.remove(pair);
+          size--;
+          return pair.value;
+        }
       }
     }
     throw new NoSuchElementException("Key not found");
@@ -138,9 +161,8 @@ public class HashtableMap<KeyType, ValueType> {
    */
   @Override
   public void clear() {
-    for (int i = 0; i < capacity; i++) {
-      table[i].clear();
-    }
+    Arrays.fill(table, null);
+    oldTable = null;
     size = 0;
   }
 
@@ -167,136 +189,74 @@ public class HashtableMap<KeyType, ValueType> {
   /**
    * Helper method to increase the capacity of the hashtable and rehash the key-value pairs. It
    * doubles the capacity of the hashtable and redistributes the key-value pairs to new indices
-   * based on the updated capacity.
+   * based on the updated capacity. In incremental mode, the key-value pairs stay in the old table
+   * and are redistributed a few buckets at a time by the following operations.
    */
-  @SuppressWarnings("unchecked")
   private void growAndRehash() {
-    int newCapacity = capacity * 2;
-    LinkedList<Pair>[] newTable = (LinkedList<Pair>[]) new LinkedList<?>[newCapacity];
-    for (int i = 0; i < newCapacity; i++) {
-      newTable[i] = new LinkedList<>();
+    // finish any resize that is still underway, so that there are never more than two tables
+    migrateBuckets(Integer.MAX_VALUE);
+    oldTable = table;
+    migrated = 0;
+    capacity = capacity * 2;
+    table = newTable(capacity);
+    if (!incrementalResize) {
+      migrateBuckets(Integer.MAX_VALUE);
     }
-    for (int i = 0; i < capacity; i++) {
-      LinkedList<Pair> list = table[i];
-      for (Pair pair : list) {
-        int newIndex = Math.abs(pair.key.hashCode()) % newCapacity;
-        newTable[newIndex].add(pair);
-      }
-    }
-    table = newTable;
-    capacity = newCapacity;
-  }
-
-  /**
-   * Test case to verify the functionality of the put and get methods. Ensures that the put method
-   * correctly adds key-value pairs to the hashtable, and the get method retrieves the correct value
-   * for a given key. Also, checks behavior when adding duplicate keys.
-   */
-  @Test
-  public void testPutAndGet() {
-    HashtableMap<String, Integer> hashtable = new HashtableMap<>();
-    // Add key-value pairs
-    hashtable.put("key1", 10);
-    hashtable.put("key2", 20);
-    hashtable.put("key3", 40);
-    hashtable.put("key4", 40);
-
-    // Retrieve values using keys
-    Assertions.assertEquals(10, hashtable.get("key1").intValue());
-    Assertions.assertEquals(20, hashtable.get("key2").intValue()); // Value overridden
-    Assertions.assertEquals(40, hashtable.get("key3").intValue());
-    Assertions.assertEquals(40, hashtable.get("key4").intValue()); // Value overridden
   }
 
   /**
-   * Test case to verify the functionality of the containsKey method. Verifies that the containsKey
-   * method correctly identifies whether a key is present in the hashtable or not. Also, checks
-   * behavior when the hashtable is empty.
+   * Helper method that moves up to count buckets of the old table into the current table during a
+   * resize, and drops the old table once all of its buckets have moved.
+   *
+   * @param count the maximum number of old buckets to move
    */
-  @Test
-  public void testContainsKey() {
-    HashtableMap<String, Integer> hashtable = new HashtableMap<>();
-    // Add key-value pairs
-    hashtable.put("key1", 10);
-    hashtable.put("key2", 20);
-    hashtable.put("key3", 30);
-
-    // Check if keys are present
-    Assertions.assertTrue(hashtable.containsKey("key1"));
-    Assertions.assertTrue(hashtable.containsKey("key2"));
-    Assertions.assertTrue(hashtable.containsKey("key3"));
-    Assertions.assertFalse(hashtable.containsKey("key4"));
-
-    // Check behavior when hashtable is empty
-    HashtableMap<String, Integer> emptyHashtable = new HashtableMap<>();
-    Assertions.assertFalse(emptyHashtable.containsKey("key1"));
-  }
-
-  /**
-   * Test case to verify the functionality of the remove method. Ensures that the remove method
-   * correctly removes a key-value pair from the hashtable. Also, checks behavior when removing a
-   * non-existent key.
-   */
-  @Test
-  public void testRemove() {
-    HashtableMap<String, Integer> hashtable = new HashtableMap<>();
-    // Add key-value pairs
-    hashtable.put("key1", 10);
-    hashtable.put("key2", 20);
-    hashtable.put("key3", 30);
-
-    // Remove a key-value pair
-    hashtable.remove("key1");
-    Assertions.assertFalse(hashtable.containsKey("key1"));
-    Assertions.assertThrows(NoSuchElementException.class, () -> hashtable.get("key1"));
-
-    // Try to remove a non-existent key
-    Assertions.assertThrows(NoSuchElementException.class, () -> hashtable.remove("key4"));
+  private void migrateBuckets(int count) {
+    while (oldTable != null && count-- > 0) {
+      LinkedList<Pair> list = oldTable[migrated];
+      if (list != null) {
+        for (Pair pair : list) {
+          int newIndex = Math.floorMod(pair.key.hashCode(), capacity);
+          if (table[newIndex] == null) {
+            table[newIndex] = new LinkedList<>();
+          }
+          table[newIndex].add(pair);
+        }
+        oldTable[migrated] = null;
+      }
+      if (++migrated == oldTable.length) {
+        oldTable = null;
+      }
+    }
   }
 
   /**
-   * Test case to verify the functionality of the clear method. Verifies that the clear method
-   * removes all key-value pairs from the hashtable. Also, checks behavior when clearing an empty
-   * hashtable.
+   * Helper method that finds the bucket a key belongs in. During an incremental resize, that is the
+   * key's bucket in the old table until that bucket has moved, and its bucket in the current table
+   * afterwards.
+   *
+   * @param key    the key to find the bucket of
+   * @param create true to create the bucket if it does not exist yet
+   * @return the bucket for key, or null if it does not exist and create is false
    */
-  @Test
-  public void testClear() {
-    HashtableMap<String, Integer> hashtable = new HashtableMap<>();
-    // Add key-value pairs
-    hashtable.put("key1", 10);
-    hashtable.put("key2", 20);
-    hashtable.put("key3", 30);
-
-    // Clear the hashtable
-    hashtable.clear();
-    Assertions.assertEquals(0, hashtable.getSize());
-
-    // Check behavior when hashtable is empty
-    HashtableMap<String, Integer> emptyHashtable = new HashtableMap<>();
-    emptyHashtable.clear();
-    Assertions.assertEquals(0, emptyHashtable.getSize());
+  private LinkedList<Pair> bucket(KeyType key, boolean create) {
+    LinkedList<Pair>[] buckets = table;
+    int index = Math.floorMod(key.hashCode(), capacity);
+    if (oldTable != null) {
+      int oldIndex = Math.floorMod(key.hashCode(), oldTable.length);
+      if (oldIndex >= migrated) {
+        buckets = oldTable;
+        index = oldIndex;
+      }
+    }
+    if (buckets[index] == null && create) {
+      buckets[index] = new LinkedList<>();
+    }
+    return buckets[index];
   }
 
-  /**
-   * Test case to verify the functionality of the getSize method. Ensures that the getSize method
-   * returns the correct number of key-value pairs in the hashtable. Also, checks behavior when the
-   * hashtable is empty.
-   */
-  @Test
-  public void testGetSize() {
-    HashtableMap<String, Integer> hashtable = new HashtableMap<>();
-    // Add key-value pairs
-    hashtable.put("key1", 10);
-    hashtable.put("key2", 20);
-    hashtable.put("key3", 30);
-
-    // Check the size of the hashtable
-    Assertions.assertEquals(3, hashtable.getSize());
-
-    // Check behavior when hashtable is empty
-    HashtableMap<String, Integer> emptyHashtable = new HashtableMap<>();
-    Assertions.assertEquals(0, emptyHashtable.getSize());
+  // Allocates an array of empty (null) buckets
+  @SuppressWarnings("unchecked")
+  private LinkedList<Pair>[] newTable(int capacity) {
+    return (LinkedList<Pair>[]) new LinkedList<?>[capacity];
   }
-
-
 }
@@ -0,0 +1,60 @@
+import java.util.Arrays;
+
+/**
+ * Measures the latency of every single put while bulk inserting keys into a HashtableMap, once with
+ * stop-the-world resizing and once with incremental resizing, and prints latency percentiles for
+ * both. Stop-the-world resizing shows up as a handful of very slow puts at the top percentiles.
+ *
+ * Usage: java HashtableMapBenchmark [keys] [rounds]
+ */
+public class HashtableMapBenchmark {
+
+  private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99, 100};
+
+  public static void main(String[] args) {
+    int keys = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+    int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+    long[] latencies = new long[keys];
+    String[] names = new String[keys];
+    for (int i = 0; i < keys; i++)
+      names[i] = "location" + i;
+
+    System.out.printf("%-14s", "mode");
+    for (double percentile : PERCENTILES)
+      System.out.printf("%12s", percentile == 100 ? "max" : "p" + percentile);
+    System.out.println("   (nanoseconds per put, " + keys + " keys)");
+    for (int round = 0; round < rounds; round++) {
+      // alternate the modes so that both see the same JIT and heap conditions
+      for (boolean incremental : new boolean[] {false, true}) {
+        insertAll(names, latencies, incremental);
+        // the first round only warms up the JIT
+        if (round > 0)
+          report(incremental ? "incremental" : "stop-the-world", latencies);
+      }
+    }
+  }
+
+  // Puts every name into a new map, recording how long each put took
+  private static void insertAll(String[] names, long[] latencies, boolean incremental) {
+    HashtableMap<String, Integer> map = new HashtableMap<>(64, incremental);
+    for (int i = 0; i < names.length; i++) {
+      long start = System.nanoTime();
+      map.put(names[i], i);
+      latencies[i] = System.nanoTime() - start;
+    }
+    if (map.getSize() != names.length)
+      throw new IllegalStateException("Lost keys during insertion");
+  }
+
+  // Prints one row of percentiles
+  private static void report(String mode, long[] latencies) {
+    long[] sorted = latencies.clone();
+    Arrays.sort(sorted);
+    System.out.printf("%-14s", mode);
+    for (double percentile : PERCENTILES) {
+      int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+      System.out.printf("%12d", sorted[Math.max(0, index)]);
+    }
+    System.out.println();
+  }
+}
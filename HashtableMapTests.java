@@ -0,0 +1,165 @@
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for HashtableMap, including the incremental resize that moves a few buckets per operation.
+ */
+public class HashtableMapTests {
+
+  /**
+   * Test case to verify the functionality of the put and get methods. Ensures that the put method
+   * correctly adds key-value pairs to the hashtable, and the get method retrieves the correct value
+   * for a given key. Also, checks behavior when adding duplicate keys.
+   */
+  @Test
+  public void testPutAndGet() {
+    HashtableMap<String, Integer> hashtable = new HashtableMap<>();
+    // Add key-value pairs
+    hashtable.put("key1", 10);
+    hashtable.put("key2", 20);
+    hashtable.put("key3", 40);
+    hashtable.put("key4", 40);
+
+    // Retrieve values using keys
+    Assertions.assertEquals(10, hashtable.get("key1").intValue());
+    Assertions.assertEquals(20, hashtable.get("key2").intValue()); // Value overridden
+    Assertions.assertEquals(40, hashtable.get("key3").intValue());
+    Assertions.assertEquals(40, hashtable.get("key4").intValue()); // Value overridden
+  }
+
+  /**
+   * Test case to verify the functionality of the containsKey method. Verifies that the containsKey
+   * method correctly identifies whether a key is present in the hashtable or not. Also, checks
+   * behavior when the hashtable is empty.
+   */
+  @Test
+  public void testContainsKey() {
+    HashtableMap<String, Integer> hashtable = new HashtableMap<>();
+    // Add key-value pairs
+    hashtable.put("key1", 10);
+    hashtable.put("key2", 20);
+    hashtable.put("key3", 30);
+
+    // Check if keys are present
+    Assertions.assertTrue(hashtable.containsKey("key1"));
+    Assertions.assertTrue(hashtable.containsKey("key2"));
+    Assertions.assertTrue(hashtable.containsKey("key3"));
+    Assertions.assertFalse(hashtable.containsKey("key4"));
+
+    // Check behavior when hashtable is empty
+    HashtableMap<String, Integer> emptyHashtable = new HashtableMap<>();
+    Assertions.assertFalse(emptyHashtable.containsKey("key1"));
+  }
+
+  /**
+   * Test case to verify the functionality of the remove method. Ensures that the remove method
+   * correctly removes a key-value pair from the hashtable. Also, checks behavior when removing a
+   * non-existent key.
+   */
+  @Test
+  public void testRemove() {
+    HashtableMap<String, Integer> hashtable = new HashtableMap<>();
+    // Add key-value pairs
+    hashtable.put("key1", 10);
+    hashtable.put("key2", 20);
+    hashtable.put("key3", 30);
+
+    // Remove a key-value pair
+    hashtable.remove("key1");
+    Assertions.assertFalse(hashtable.containsKey("key1"));
+    Assertions.assertThrows(NoSuchElementException.class, () -> hashtable.get("key1"));
+
+    // Try to remove a non-existent key
+    Assertions.assertThrows(NoSuchElementException.class, () -> hashtable.remove("key4"));
+  }
+
+  /**
+   * Test case to verify the functionality of the clear method. Verifies that the clear method
+   * removes all key-value pairs from the hashtable. Also, checks behavior when clearing an empty
+   * hashtable.
+   */
+  @Test
+  public void testClear() {
+    HashtableMap<String, Integer> hashtable = new HashtableMap<>();
+    // Add key-value pairs
+    hashtable.put("key1", 10);
+    hashtable.put("key2", 20);
+    hashtable.put("key3", 30);
+
+    // Clear the hashtable
+    hashtable.clear();
+    Assertions.assertEquals(0, hashtable.getSize());
+
+    // Check behavior when hashtable is empty
+    HashtableMap<String, Integer> emptyHashtable = new HashtableMap<>();
+    emptyHashtable.clear();
+    Assertions.assertEquals(0, emptyHashtable.getSize());
+  }
+
+  /**
+   * Test case to verify the functionality of the getSize method. Ensures that the getSize method
+   * returns the correct number of key-value pairs in the hashtable. Also, checks behavior when the
+   * hashtable is empty.
+   */
+  @Test
+  public void testGetSize() {
+    HashtableMap<String, Integer> hashtable = new HashtableMap<>();
+    // Add key-value pairs
+    hashtable.put("key1", 10);
+    hashtable.put("key2", 20);
+    hashtable.put("key3", 30);
+
+    // Check the size of the hashtable
+    Assertions.assertEquals(3, hashtable.getSize());
+
+    // Check behavior when hashtable is empty
+    HashtableMap<String, Integer> emptyHashtable = new HashtableMap<>();
+    Assertions.assertEquals(0, emptyHashtable.getSize());
+  }
+
+  /**
+   * Test case to verify that keys with a hash code of Integer.MIN_VALUE, whose absolute value is
+   * still negative, map to a valid bucket when the capacity is not a power of two.
+   */
+  @Test
+  public void testMinValueHashCode() {
+    HashtableMap<String, Integer> hashtable = new HashtableMap<>(100);
+    // "polygenelubricants".hashCode() is Integer.MIN_VALUE
+    hashtable.put("polygenelubricants", 10);
+    Assertions.assertTrue(hashtable.containsKey("polygenelubricants"));
+    Assertions.assertEquals(10, hashtable.remove("polygenelubricants").intValue());
+  }
+
+  /**
+   * Test case to verify that an incremental resize keeps every key reachable while its buckets are
+   * moved into the new table, including keys that are put into or removed from buckets that have
+   * not moved yet.
+   */
+  @Test
+  public void testIncrementalResize() {
+    HashtableMap<Integer, Integer> hashtable = new HashtableMap<>(10, true);
+    for (int i = 0; i < 1000; i++) {
+      hashtable.put(i, i * 2);
+      // check a key in a bucket that may or may not have moved yet
+      Assertions.assertEquals((i / 2) % 3 != 0 || i / 2 == i, hashtable.containsKey(i / 2));
+      if (i % 3 == 0) {
+        Assertions.assertEquals(i * 2, hashtable.remove(i).intValue());
+        Assertions.assertFalse(hashtable.containsKey(i));
+      }
+    }
+    Assertions.assertEquals(666, hashtable.getSize());
+    for (int i = 0; i < 1000; i++) {
+      int key = i;
+      if (i % 3 == 0) {
+        Assertions.assertThrows(NoSuchElementException.class, () -> hashtable.get(key));
+      } else {
+        Assertions.assertEquals(i * 2, hashtable.get(i).intValue());
+      }
+    }
+    Assertions.assertThrows(IllegalArgumentException.class, () -> hashtable.put(1, 1));
+    hashtable.clear();
+    Assertions.assertEquals(0, hashtable.getSize());
+    Assertions.assertFalse(hashtable.containsKey(1));
+  }
+}
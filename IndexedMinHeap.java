@@ -0,0 +1,204 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A binary min-heap of dense integer ids, each with a double priority. Unlike a
+ * java.util.PriorityQueue of search entries, this heap holds each id at most once, supports
+ * lowering the priority of an id that is already queued (decrease-key), and stores everything in
+ * primitive arrays so that inserting and removing ids allocates nothing.
+ */
+public class IndexedMinHeap {
+
+  protected int[] heap; // ids in heap order, heap[0] has the lowest priority
+  protected int[] position; // index of each id within heap, or -1 when that id is not queued
+  protected double[] priority; // priority of each queued id
+  protected int size = 0;
+
+  /**
+   * Creates an empty heap with a small default capacity, that can be grown with ensureCapacity.
+   */
+  public IndexedMinHeap() {
+    this(16);
+  }
+
+  /**
+   * Creates an empty heap that can hold the ids 0 through capacity - 1.
+   *
+   * @param capacity the number of distinct ids this heap can hold
+   */
+  public IndexedMinHeap(int capacity) {
+    heap = new int[capacity];
+    position = new int[capacity];
+    priority = new double[capacity];
+    Arrays.fill(position, -1);
+  }
+
+  /**
+   * Grows this heap, if needed, so that it can hold the ids 0 through capacity - 1.
+   *
+   * @param capacity the number of distinct ids this heap must be able to hold
+   */
+  public void ensureCapacity(int capacity) {
+    int oldCapacity = position.length;
+    if (capacity <= oldCapacity)
+      return;
+    heap = Arrays.copyOf(heap, capacity);
+    position = Arrays.copyOf(position, capacity);
+    priority = Arrays.copyOf(priority, capacity);
+    Arrays.fill(position, oldCapacity, capacity, -1);
+  }
+
+  /**
+   * Return the number of ids this heap can hold.
+   *
+   * @return the number of distinct ids this heap can hold
+   */
+  public int getCapacity() {
+    return position.length;
+  }
+
+  /**
+   * Return the number of ids that are currently queued.
+   *
+   * @return the number of ids in this heap
+   */
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Check whether this heap is empty.
+   *
+   * @return true if no ids are queued, or false otherwise
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Check whether an id is currently queued.
+   *
+   * @param id the id to check for
+   * @return true if this id is in the heap, or false otherwise
+   */
+  public boolean contains(int id) {
+    return position[id] >= 0;
+  }
+
+  /**
+   * Return the priority of a queued id.
+   *
+   * @param id the queued id
+   * @return the current priority of this id
+   */
+  public double getPriority(int id) {
+    return priority[id];
+  }
+
+  /**
+   * Return the lowest priority in this heap.
+   *
+   * @return the priority of the id that poll would remove next
+   * @throws NoSuchElementException if this heap is empty
+   */
+  public double peekPriority() {
+    if (size == 0)
+      throw new NoSuchElementException("Heap is empty");
+    return priority[heap[0]];
+  }
+
+  /**
+   * Queue an id with the provided priority, or lower the priority of an id that is already queued.
+   * When the id is already queued with a priority that is not higher than the provided one, the
+   * heap is left unchanged.
+   *
+   * @param id    the id to queue
+   * @param value the priority of this id
+   * @return true if the id was queued or its priority decreased, or false otherwise
+   */
+  public boolean insertOrDecrease(int id, double value) {
+    int index = position[id];
+    if (index < 0) {
+      // append the new id at the end of the heap
+      index = size++;
+      heap[index] = id;
+      position[id] = index;
+    } else if (value >= priority[id]) {
+      return false;
+    }
+    priority[id] = value;
+    siftUp(index);
+    return true;
+  }
+
+  /**
+   * Remove and return the id with the lowest priority.
+   *
+   * @return the id with the lowest priority
+   * @throws NoSuchElementException if this heap is empty
+   */
+  public int poll() {
+    if (size == 0)
+      throw new NoSuchElementException("Heap is empty");
+    int top = heap[0];
+    position[top] = -1;
+    size--;
+    if (size > 0) {
+      // move the last id to the root and let it sink back into place
+      int last = heap[size];
+      heap[0] = last;
+      position[last] = 0;
+      siftDown(0);
+    }
+    return top;
+  }
+
+  /**
+   * Remove all ids from this heap. This takes time proportional to the number of queued ids, not to
+   * the capacity of the heap.
+   */
+  public void clear() {
+    for (int i = 0; i < size; i++)
+      position[heap[i]] = -1;
+    size = 0;
+  }
+
+  private void siftUp(int index) {
+    int id = heap[index];
+    double value = priority[id];
+    while (index > 0) {
+      int parentIndex = (index - 1) >>> 1;
+      int parent = heap[parentIndex];
+      if (priority[parent] <= value)
+        break;
+      heap[index] = parent;
+      position[parent] = index;
+      index = parentIndex;
+    }
+    heap[index] = id;
+    position[id] = index;
+  }
+
+  private void siftDown(int index) {
+    int id = heap[index];
+    double value = priority[id];
+    int half = size >>> 1;
+    while (index < half) {
+      // pick the smaller of the one or two children
+      int childIndex = 2 * index + 1;
+      int child = heap[childIndex];
+      int rightIndex = childIndex + 1;
+      if (rightIndex < size && priority[heap[rightIndex]] < priority[child]) {
+        childIndex = rightIndex;
+        child = heap[rightIndex];
+      }
+      if (value <= priority[child])
+        break;
+      heap[index] = child;
+      position[child] = index;
+      index = childIndex;
+    }
+    heap[index] = id;
+    position[id] = index;
+  }
+}
@@ -0,0 +1,52 @@
+import java.util.NoSuchElementException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for IndexedMinHeap, covering poll order, decrease-key, clearing and growing the heap.
+ */
+public class IndexedMinHeapTests {
+
+  /**
+   * Tests that ids are polled in priority order, and that decreasing the priority of a queued id
+   * moves it ahead of others without queueing it twice.
+   */
+  @Test
+  public void testPollOrderAndDecreaseKey() {
+    IndexedMinHeap test = new IndexedMinHeap(6);
+    test.insertOrDecrease(0, 5.0);
+    test.insertOrDecrease(1, 3.0);
+    test.insertOrDecrease(2, 8.0);
+    test.insertOrDecrease(3, 1.0);
+    test.insertOrDecrease(4, 7.0);
+    Assertions.assertTrue(test.insertOrDecrease(2, 2.0));
+    Assertions.assertFalse(test.insertOrDecrease(0, 6.0));
+    Assertions.assertEquals(5, test.getSize());
+    Assertions.assertEquals(1.0, test.peekPriority());
+    int[] order = new int[5];
+    for (int i = 0; i < order.length; i++)
+      order[i] = test.poll();
+    Assertions.assertArrayEquals(new int[] {3, 2, 1, 0, 4}, order);
+    Assertions.assertTrue(test.isEmpty());
+    Assertions.assertThrows(NoSuchElementException.class, () -> test.poll());
+  }
+
+  /**
+   * Tests that clearing the heap and growing its capacity leave every id unqueued.
+   */
+  @Test
+  public void testClearAndEnsureCapacity() {
+    IndexedMinHeap test = new IndexedMinHeap(2);
+    test.insertOrDecrease(0, 1.0);
+    test.insertOrDecrease(1, 1.0);
+    test.clear();
+    Assertions.assertFalse(test.contains(0));
+    Assertions.assertFalse(test.contains(1));
+    test.ensureCapacity(4);
+    Assertions.assertEquals(4, test.getCapacity());
+    test.insertOrDecrease(3, 4.0);
+    test.insertOrDecrease(0, 2.0);
+    Assertions.assertEquals(0, test.poll());
+    Assertions.assertEquals(3, test.poll());
+  }
+}
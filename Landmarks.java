@@ -0,0 +1,212 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Precomputed shortest path costs between a few landmark nodes and every node of a frozen CSR
+ * graph, used by ALT search (A* with Landmarks and the Triangle inequality). For any landmark L and
+ * nodes v and t, the triangle inequality gives two lower bounds on the cost from v to t:
+ * dist(L, t) - dist(L, v) and dist(v, L) - dist(t, L). The largest of these bounds over all
+ * landmarks is an admissible and consistent A* heuristic that needs no node coordinates.
+ *
+ * Landmarks are Serializable, so they can be computed once and saved alongside the graph.
+ */
+public class Landmarks implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  protected final long graphFingerprint; // fingerprint of the graph these costs were computed for
+  protected final int[] landmarks; // node id of each landmark
+  protected final double[][] fromLandmark; // fromLandmark[i][v] is the cost from landmark i to v
+  protected final double[][] toLandmark; // toLandmark[i][v] is the cost from v to landmark i
+
+  /**
+   * Creates landmarks from already computed costs, such as costs read back from a graph snapshot.
+   *
+   * @param graphFingerprint fingerprint of the graph the costs were computed for
+   * @param landmarks        node id of each landmark
+   * @param fromLandmark     the cost from each landmark to every node
+   * @param toLandmark       the cost from every node to each landmark
+   */
+  protected Landmarks(long graphFingerprint, int[] landmarks, double[][] fromLandmark,
+      double[][] toLandmark) {
+    this.graphFingerprint = graphFingerprint;
+    this.landmarks = landmarks;
+    this.fromLandmark = fromLandmark;
+    this.toLandmark = toLandmark;
+  }
+
+  /**
+   * Picks up to count landmarks for a graph and computes the shortest path costs from and to each
+   * of them. Landmarks are chosen by farthest selection: each new landmark is the node whose round
+   * trip to the closest landmark chosen so far is the most expensive, preferring nodes that no
+   * landmark reaches at all so that every disconnected part of the graph gets a landmark.
+   *
+   * @param graph the frozen graph to compute landmark costs for
+   * @param count the number of landmarks to pick
+   * @return the landmarks and their precomputed costs
+   */
+  public static Landmarks select(CsrGraph<?> graph, int count) {
+    int nodeCount = graph.getNodeCount();
+    count = Math.min(count, nodeCount);
+    CsrGraph<?> reverse = graph.reversed();
+    int[] landmarks = new int[count];
+    double[][] fromLandmark = new double[count][];
+    double[][] toLandmark = new double[count][];
+    // closest round trip cost from each node to any chosen landmark
+    double[] closest = new double[nodeCount];
+    Arrays.fill(closest, Double.POSITIVE_INFINITY);
+    // start from the node farthest away from node 0, which is likely on the edge of the graph
+    int next = count == 0 ? 0 : farthest(distancesFrom(graph, 0));
+    for (int i = 0; i < count; i++) {
+      landmarks[i] = next;
+      fromLandmark[i] = distancesFrom(graph, next);
+      toLandmark[i] = distancesFrom(reverse, next);
+      next = -1;
+      boolean nextUnreached = false;
+      for (int v = 0; v < nodeCount; v++) {
+        closest[v] = Math.min(closest[v], fromLandmark[i][v] + toLandmark[i][v]);
+        boolean unreached = closest[v] == Double.POSITIVE_INFINITY;
+        if (closest[v] == 0 || isLandmark(landmarks, i, v))
+          continue;
+        if (next < 0 || (unreached && !nextUnreached)
+            || (unreached == nextUnreached && closest[v] > closest[next])) {
+          next = v;
+          nextUnreached = unreached;
+        }
+      }
+      if (next < 0) {
+        // every node is already a landmark or at zero cost from one
+        landmarks = Arrays.copyOf(landmarks, i + 1);
+        fromLandmark = Arrays.copyOf(fromLandmark, i + 1);
+        toLandmark = Arrays.copyOf(toLandmark, i + 1);
+        break;
+      }
+    }
+    return new Landmarks(graph.fingerprint(), landmarks, fromLandmark, toLandmark);
+  }
+
+  /**
+   * Return the number of landmarks.
+   *
+   * @return the number of landmarks
+   */
+  public int getCount() {
+    return landmarks.length;
+  }
+
+  /**
+   * Return the node id of one landmark.
+   *
+   * @param index which landmark, between 0 and getCount() - 1
+   * @return the node id of that landmark
+   */
+  public int getLandmark(int index) {
+    return landmarks[index];
+  }
+
+  /**
+   * Check whether these landmark costs were computed for the provided graph.
+   *
+   * @param graph the frozen graph to check
+   * @return true if graph has the same nodes, edges and weights as the graph these landmarks were
+   *         computed for, or false otherwise
+   */
+  public boolean matches(CsrGraph<?> graph) {
+    return graph.fingerprint() == graphFingerprint
+        && (landmarks.length == 0 || fromLandmark[0].length == graph.getNodeCount());
+  }
+
+  /**
+   * Returns the triangle inequality lower bound on the cost of the shortest path from v to t. The
+   * bound is positive infinity when some landmark proves that t cannot be reached from v.
+   *
+   * @param v the id of the node the path starts from
+   * @param t the id of the destination node for the path
+   * @return an admissible estimate of the cost from v to t
+   */
+  public double lowerBound(int v, int t) {
+    double bound = 0;
+    for (int i = 0; i < landmarks.length; i++) {
+      // differences of two infinite costs are NaN, which never compare greater than the bound
+      double[] from = fromLandmark[i];
+      double[] to = toLandmark[i];
+      double forwardBound = from[t] - from[v];
+      if (forwardBound > bound)
+        bound = forwardBound;
+      double backwardBound = to[v] - to[t];
+      if (backwardBound > bound)
+        bound = backwardBound;
+    }
+    return bound;
+  }
+
+  /**
+   * Writes these landmarks to a stream, so that they can be saved next to the graph they belong to.
+   *
+   * @param out the stream to write to
+   * @throws IOException if writing to the stream fails
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    ObjectOutputStream objects = new ObjectOutputStream(out);
+    objects.writeObject(this);
+    objects.flush();
+  }
+
+  /**
+   * Reads landmarks that were previously written with writeTo.
+   *
+   * @param in the stream to read from
+   * @return the landmarks read from the stream
+   * @throws IOException if reading fails or the stream does not contain landmarks
+   */
+  public static Landmarks readFrom(InputStream in) throws IOException {
+    try {
+      return (Landmarks) new ObjectInputStream(in).readObject();
+    } catch (ClassNotFoundException | ClassCastException e) {
+      throw new IOException("Stream does not contain landmarks", e);
+    }
+  }
+
+  // Return the costs of the shortest paths from source to every node, or infinity if unreachable
+  private static double[] distancesFrom(CsrGraph<?> graph, int source) {
+    double[] dist = new double[graph.getNodeCount()];
+    Arrays.fill(dist, Double.POSITIVE_INFINITY);
+    IndexedMinHeap frontier = new IndexedMinHeap(dist.length);
+    dist[source] = 0;
+    frontier.insertOrDecrease(source, 0);
+    while (!frontier.isEmpty()) {
+      int u = frontier.poll();
+      for (int e = graph.offsets[u], last = graph.offsets[u + 1]; e < last; e++) {
+        int v = graph.targets[e];
+        double cost = dist[u] + graph.weights[e];
+        if (cost < dist[v]) {
+          dist[v] = cost;
+          frontier.insertOrDecrease(v, cost);
+        }
+      }
+    }
+    return dist;
+  }
+
+  // Return the id of the node with the highest finite cost
+  private static int farthest(double[] dist) {
+    int result = 0;
+    for (int v = 0; v < dist.length; v++)
+      if (dist[v] != Double.POSITIVE_INFINITY && dist[v] > dist[result])
+        result = v;
+    return result;
+  }
+
+  // Check whether v is one of the first count landmarks
+  private static boolean isLandmark(int[] landmarks, int count, int v) {
+    for (int i = 0; i <= count; i++)
+      if (landmarks[i] == v)
+        return true;
+    return false;
+  }
+}
@@ -0,0 +1,372 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A read only graph whose nodes, edges and names all stay in a memory mapped GraphSnapshotFile,
+ * for graphs too large to hold comfortably in the heap as Node and Edge objects. Edges are read
+ * straight from the mapped CSR sections, and node names are looked up by binary search over the
+ * mapped sorted string table, so the heap only holds this object no matter how large the graph is.
+ * Since the file is mapped rather than read, the operating system pages in just the parts that
+ * searches touch. Each section of the snapshot is mapped in windows of up to 1 GB, so snapshots
+ * may be larger than 2 GB.
+ *
+ * Searches run Dijkstra's algorithm with their costs in a small hash table of the nodes they reach,
+ * instead of arrays with one slot per node, so a query also only uses heap in proportion to the
+ * part of the graph it explores, and a thread gives back what a very large query grew. Methods
+ * that would change the graph throw UnsupportedOperationException; write a new snapshot with
+ * GraphSnapshotFile to change it.
+ */
+public class OffHeapGraph implements GraphADT<String, Double> {
+
+  private final GraphSnapshotFile.Sections sections;
+  private final int nodeCount;
+  private final int edgeCount;
+
+  // searches that reach more nodes than this release their tables once they are answered
+  static final int MAX_KEPT_ENTRIES = 1 << 15;
+
+  // each thread reuses one search, so that queries do not allocate a new one every time
+  private final ThreadLocal<Search> searches = ThreadLocal.withInitial(Search::new);
+
+  /**
+   * Maps a snapshot written by GraphSnapshotFile. Landmarks and hierarchies in the snapshot are not
+   * used, and are never paged in.
+   *
+   * @param filename the snapshot file to map
+   * @throws IOException if reading fails, or the file is not a valid snapshot
+   */
+  public OffHeapGraph(String filename) throws IOException {
+    this(GraphSnapshotFile.map(filename));
+  }
+
+  /**
+   * Constructor for a graph over the sections of an already mapped snapshot.
+   *
+   * @param sections the mapped sections, from GraphSnapshotFile.map
+   */
+  public OffHeapGraph(GraphSnapshotFile.Sections sections) {
+    this.sections = sections;
+    this.nodeCount = sections.nodeCount;
+    this.edgeCount = sections.edgeCount;
+  }
+
+  /**
+   * Return the dense id of the node with a name.
+   *
+   * @param name the name to look up
+   * @return the id of that node, or -1 when no node has this name
+   */
+  public int idOf(String name) {
+    if (name == null)
+      return -1;
+    byte[] key = name.getBytes(StandardCharsets.UTF_8);
+    int low = 0;
+    int high = nodeCount - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int id = sections.sortedIds.getInt(4L * middle);
+      int comparison = compareName(id, key);
+      if (comparison < 0)
+        low = middle + 1;
+      else if (comparison > 0)
+        high = middle - 1;
+      else
+        return id;
+    }
+    return -1;
+  }
+
+  /**
+   * Return the name of the node with an id, decoded from the mapped string table.
+   *
+   * @param id the dense id of the node
+   * @return the name of that node
+   */
+  public String nameOf(int id) {
+    int start = sections.nameOffsets.getInt(4L * id);
+    byte[] bytes = new byte[sections.nameOffsets.getInt(4L * id + 4) - start];
+    sections.names.get(start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  // Compares the name of node id to key, by their unsigned bytes
+  private int compareName(int id, byte[] key) {
+    int start = sections.nameOffsets.getInt(4L * id);
+    int length = sections.nameOffsets.getInt(4L * id + 4) - start;
+    for (int i = 0, shared = Math.min(length, key.length); i < shared; i++) {
+      int comparison = (sections.names.get(start + i) & 0xff) - (key[i] & 0xff);
+      if (comparison != 0)
+        return comparison;
+    }
+    return length - key.length;
+  }
+
+  @Override
+  public boolean insertNode(String data) {
+    throw new UnsupportedOperationException("OffHeapGraph is read only");
+  }
+
+  @Override
+  public boolean removeNode(String data) {
+    throw new UnsupportedOperationException("OffHeapGraph is read only");
+  }
+
+  @Override
+  public boolean containsNode(String data) {
+    return idOf(data) >= 0;
+  }
+
+  @Override
+  public int getNodeCount() {
+    return nodeCount;
+  }
+
+  @Override
+  public boolean insertEdge(String pred, String succ, Double weight) {
+    throw new UnsupportedOperationException("OffHeapGraph is read only");
+  }
+
+  @Override
+  public boolean removeEdge(String pred, String succ) {
+    throw new UnsupportedOperationException("OffHeapGraph is read only");
+  }
+
+  @Override
+  public boolean containsEdge(String pred, String succ) {
+    return findEdge(idOf(pred), idOf(succ)) >= 0;
+  }
+
+  @Override
+  public Double getEdge(String pred, String succ) {
+    int edge = findEdge(idOf(pred), idOf(succ));
+    if (edge < 0)
+      throw new NoSuchElementException("No edge from " + pred + " to " + succ);
+    return sections.weights.getDouble(8L * edge);
+  }
+
+  // Return the index of the edge from u to v, or -1 when either is missing or there is no edge
+  private int findEdge(int u, int v) {
+    if (u < 0 || v < 0)
+      return -1;
+    for (int e = firstEdge(u), last = firstEdge(u + 1); e < last; e++)
+      if (sections.targets.getInt(4L * e) == v)
+        return e;
+    return -1;
+  }
+
+  private int firstEdge(int u) {
+    return sections.offsets.getInt(4L * u);
+  }
+
+  @Override
+  public int getEdgeCount() {
+    return edgeCount;
+  }
+
+  /**
+   * Returns the list of names of the nodes along the shortest path from the node named start to the
+   * node named end.
+   *
+   * @param start the name of the starting node for the path
+   * @param end   the name of the destination node for the path
+   * @return list of the names of the nodes along this shortest path
+   * @throws NoSuchElementException when either node is missing or no path from start to end exists
+   */
+  @Override
+  public List<String> shortestPathData(String start, String end) {
+    Search search = searches.get();
+    try {
+      int entry = search.run(idOf(start), idOf(end));
+      if (entry < 0)
+        throw new NoSuchElementException("Invalid Path");
+      List<String> path = new ArrayList<>();
+      for (; entry >= 0; entry = search.parent[entry])
+        path.add(nameOf(search.node[entry]));
+      Collections.reverse(path);
+      return path;
+    } finally {
+      search.shrink();
+    }
+  }
+
+  /**
+   * Returns the cost of the shortest path from the node named start to the node named end.
+   *
+   * @param start the name of the starting node for the path
+   * @param end   the name of the destination node for the path
+   * @return the cost of the shortest path between these nodes, or -1 when there is no such path
+   */
+  @Override
+  public double shortestPathCost(String start, String end) {
+    Search search = searches.get();
+    try {
+      int entry = search.run(idOf(start), idOf(end));
+      return entry < 0 ? -1 : search.dist[entry];
+    } finally {
+      search.shrink();
+    }
+  }
+
+  // Returns how many entries the calling thread's search currently has room for
+  int searchCapacity() {
+    return searches.get().node.length;
+  }
+
+  // The state of one run of Dijkstra's algorithm, kept only for the nodes it reaches. Each reached
+  // node gets a dense entry index, found through an open addressing table of node ids, and the
+  // frontier is a binary heap of entry indexes.
+  private class Search {
+    private int[] table = new int[64]; // entry index + 1 of the node hashed to each slot, or 0
+    private int[] node = new int[32]; // node id of each entry
+    private double[] dist = new double[32]; // best known cost to each entry's node
+    private int[] parent = new int[32]; // entry of the node before each entry's node, or -1
+    private int[] heapIndex = new int[32]; // position of each entry in heap, or -1 once settled
+    private int[] heap = new int[32]; // entries in the frontier, ordered by dist
+    private int entryCount = 0;
+    private int heapSize = 0;
+
+    // Runs Dijkstra's algorithm from node start until node end is settled, and return the entry of
+    // end, or -1 when either node is missing or end cannot be reached
+    private int run(int start, int end) {
+      if (start < 0 || end < 0)
+        return -1;
+      // clear the entries of the previous search
+      Arrays.fill(table, 0);
+      entryCount = 0;
+      heapSize = 0;
+      reach(start, 0, -1);
+      while (heapSize > 0) {
+        int entry = poll();
+        int u = node[entry];
+        if (u == end)
+          return entry;
+        double costU = dist[entry];
+        for (int e = firstEdge(u), last = firstEdge(u + 1); e < last; e++)
+          reach(sections.targets.getInt(4L * e), costU + sections.weights.getDouble(8L * e),
+              entry);
+      }
+      return -1;
+    }
+
+    // Replaces the tables of a search that reached more than MAX_KEPT_ENTRIES nodes with small
+    // ones, once its result has been read, so that an idle thread does not keep them
+    private void shrink() {
+      if (node.length <= MAX_KEPT_ENTRIES)
+        return;
+      table = new int[64];
+      node = new int[32];
+      dist = new double[32];
+      parent = new int[32];
+      heapIndex = new int[32];
+      heap = new int[32];
+      entryCount = 0;
+      heapSize = 0;
+    }
+
+    // Records a path to v with the provided cost, if it is cheaper than v's best known path
+    private void reach(int v, double cost, int from) {
+      int mask = table.length - 1;
+      int slot = slotOf(v, mask);
+      while (table[slot] != 0 && node[table[slot] - 1] != v)
+        slot = (slot + 1) & mask;
+      int entry = table[slot] - 1;
+      if (entry < 0) {
+        entry = addEntry(v);
+        table[slot] = entry + 1;
+        if (2 * entryCount > table.length)
+          rehash();
+      } else if (heapIndex[entry] < 0 || cost >= dist[entry]) {
+        return; // already settled, or not an improvement
+      }
+      dist[entry] = cost;
+      parent[entry] = from;
+      if (heapIndex[entry] == Integer.MAX_VALUE) {
+        heapIndex[entry] = heapSize;
+        heap[heapSize++] = entry;
+      }
+      siftUp(heapIndex[entry]);
+    }
+
+    // Spreads the bits of node ids, since nearby nodes often have consecutive ids
+    private int slotOf(int v, int mask) {
+      int h = v * 0x9E3779B9;
+      return (h ^ (h >>> 16)) & mask;
+    }
+
+    private int addEntry(int v) {
+      if (entryCount == node.length) {
+        int capacity = 2 * node.length;
+        node = Arrays.copyOf(node, capacity);
+        dist = Arrays.copyOf(dist, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        heapIndex = Arrays.copyOf(heapIndex, capacity);
+        heap = Arrays.copyOf(heap, capacity);
+      }
+      node[entryCount] = v;
+      heapIndex[entryCount] = Integer.MAX_VALUE; // not in the heap yet
+      return entryCount++;
+    }
+
+    private void rehash() {
+      table = new int[2 * table.length];
+      int mask = table.length - 1;
+      for (int entry = 0; entry < entryCount; entry++) {
+        int slot = slotOf(node[entry], mask);
+        while (table[slot] != 0)
+          slot = (slot + 1) & mask;
+        table[slot] = entry + 1;
+      }
+    }
+
+    // Removes and return the frontier entry with the lowest cost, marking it settled
+    private int poll() {
+      int top = heap[0];
+      heapIndex[top] = -1;
+      int last = heap[--heapSize];
+      if (heapSize > 0) {
+        heap[0] = last;
+        heapIndex[last] = 0;
+        siftDown(0);
+      }
+      return top;
+    }
+
+    private void siftUp(int index) {
+      int entry = heap[index];
+      while (index > 0) {
+        int parentIndex = (index - 1) >>> 1;
+        int above = heap[parentIndex];
+        if (dist[above] <= dist[entry])
+          break;
+        heap[index] = above;
+        heapIndex[above] = index;
+        index = parentIndex;
+      }
+      heap[index] = entry;
+      heapIndex[entry] = index;
+    }
+
+    private void siftDown(int index) {
+      int entry = heap[index];
+      while (true) {
+        int child = 2 * index + 1;
+        if (child >= heapSize)
+          break;
+        if (child + 1 < heapSize && dist[heap[child + 1]] < dist[heap[child]])
+          child++;
+        if (dist[heap[child]] >= dist[entry])
+          break;
+        heap[index] = heap[child];
+        heapIndex[heap[index]] = index;
+        index = child;
+      }
+      heap[index] = entry;
+      heapIndex[entry] = index;
+    }
+  }
+}
@@ -0,0 +1,103 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for OffHeapGraph over snapshots written by GraphSnapshotFile, including sections mapped
+ * in windows much smaller than the snapshot.
+ */
+public class OffHeapGraphTests {
+
+  /**
+   * Tests that an OffHeapGraph over a mapped snapshot of campus.dot finds the same paths and costs
+   * as DijkstraGraph, also when its sections are mapped in tiny windows, and that the graph cannot
+   * be changed.
+   */
+  @Test
+  public void testMatchesDijkstraGraph() throws IOException {
+    DijkstraGraph<String, Double> expected = new DijkstraGraph<>();
+    new ParallelGraphLoader().load("campus.dot").insertInto(expected);
+    expected.freeze();
+    File file = File.createTempFile("campus", ".snap");
+    try {
+      GraphSnapshotFile.write(file.getPath(), "campus.dot", expected.snapshot, null, null);
+      // windows of 64 bytes split names and sections many times over
+      for (OffHeapGraph graph : List.of(new OffHeapGraph(file.getPath()),
+          new OffHeapGraph(GraphSnapshotFile.map(file.getPath(), 6)))) {
+        Assertions.assertEquals(expected.getNodeCount(), graph.getNodeCount());
+        Assertions.assertEquals(expected.getEdgeCount(), graph.getEdgeCount());
+
+        List<String> names = new ArrayList<>();
+        for (int id = 0; id < graph.getNodeCount(); id++) {
+          names.add(graph.nameOf(id));
+          Assertions.assertEquals(expected.snapshot.data(id), names.get(id));
+          Assertions.assertEquals(id, graph.idOf(names.get(id)));
+        }
+        Random rng = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+          String start = names.get(rng.nextInt(names.size()));
+          String end = names.get(rng.nextInt(names.size()));
+          Assertions.assertEquals(expected.shortestPathCost(start, end),
+              graph.shortestPathCost(start, end), 1e-9);
+          if (expected.shortestPathCost(start, end) >= 0) {
+            // ties between equally cheap paths may be broken differently, so compare path costs
+            List<String> path = graph.shortestPathData(start, end);
+            double cost = 0;
+            for (int j = 0; j + 1 < path.size(); j++)
+              cost += graph.getEdge(path.get(j), path.get(j + 1));
+            Assertions.assertEquals(expected.shortestPathCost(start, end), cost, 1e-9);
+            Assertions.assertEquals(start, path.get(0));
+            Assertions.assertEquals(end, path.get(path.size() - 1));
+          }
+        }
+        String first = names.get(0);
+        String second = names.get(1);
+        Assertions.assertEquals(expected.containsEdge(first, second),
+            graph.containsEdge(first, second));
+        Assertions.assertFalse(graph.containsNode("Nowhere"));
+        Assertions.assertEquals(-1, graph.shortestPathCost("Nowhere", first));
+        Assertions.assertThrows(NoSuchElementException.class,
+            () -> graph.shortestPathData(first, "Nowhere"));
+        Assertions.assertThrows(NoSuchElementException.class, () -> graph.getEdge(first, first));
+        Assertions.assertThrows(UnsupportedOperationException.class,
+            () -> graph.insertEdge(first, second, 1.0));
+        Assertions.assertThrows(UnsupportedOperationException.class,
+            () -> graph.removeNode(first));
+      }
+    } finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Tests that a search through more nodes than a thread keeps tables for gives its tables back
+   * once it is answered.
+   */
+  @Test
+  public void testLargeSearchShrinks() throws IOException {
+    DijkstraGraph<String, Double> chain = new DijkstraGraph<>();
+    int length = 2 * OffHeapGraph.MAX_KEPT_ENTRIES;
+    chain.insertNode("0");
+    for (int i = 1; i < length; i++) {
+      chain.insertNode(Integer.toString(i));
+      chain.insertEdge(Integer.toString(i - 1), Integer.toString(i), 1.0);
+    }
+    chain.freeze();
+    File file = File.createTempFile("chain", ".snap");
+    try {
+      GraphSnapshotFile.write(file.getPath(), file.getPath(), chain.snapshot, null, null);
+      OffHeapGraph graph = new OffHeapGraph(file.getPath());
+      Assertions.assertEquals(length - 1,
+          graph.shortestPathCost("0", Integer.toString(length - 1)));
+      Assertions.assertEquals(32, graph.searchCapacity());
+      Assertions.assertEquals(List.of("0", "1", "2"), graph.shortestPathData("0", "2"));
+    } finally {
+      file.delete();
+    }
+  }
+}
@@ -0,0 +1,240 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A MapADT that stores its keys and values directly in flat arrays, using open addressing with
+ * Robin Hood linear probing instead of a list of pairs per bucket. The table's capacity is always a
+ * power of two, so a key's home slot is its spread hash masked by capacity - 1. When an inserted
+ * key has probed further from its home slot than the key occupying a slot, the two swap places,
+ * which keeps every probe sequence short. Removing a key shifts the keys that follow it back by one
+ * slot, so no tombstones are ever left behind.
+ *
+ * @param KeyType   is the type of the keys, which must not be null
+ * @param ValueType is the type of the values
+ */
+public class OpenAddressingMap<KeyType, ValueType> implements MapADT<KeyType, ValueType> {
+
+  // grow once more than three quarters of the slots are in use
+  private static final double MAX_LOAD = 0.75;
+
+  protected Object[] keys; // key in each slot, or null when the slot is empty
+  protected Object[] values; // value of the key in each slot
+  protected int[] hashes; // spread hash of the key in each slot
+  protected int mask; // capacity - 1, where capacity is a power of two
+  protected int size = 0;
+  protected int threshold; // size at which the table grows
+
+  // Constructor with default capacity = 64
+  public OpenAddressingMap() {
+    this(64);
+  }
+
+  /**
+   * Creates a map whose table has at least the specified capacity, rounded up to a power of two.
+   *
+   * @param capacity the minimum number of slots in the initial table
+   */
+  public OpenAddressingMap(int capacity) {
+    if (capacity < 0)
+      throw new IllegalArgumentException("Capacity cannot be negative: " + capacity);
+    int slots = 2;
+    while (slots < capacity)
+      slots <<= 1;
+    allocate(slots);
+  }
+
+  /**
+   * Adds a new key,value pair/mapping to this collection.
+   *
+   * @param key   the key of the key,value pair
+   * @param value the value that key maps to
+   * @throws IllegalArgumentException if key already maps to a value
+   * @throws NullPointerException     if key is null
+   */
+  @Override
+  public void put(KeyType key, ValueType value) throws IllegalArgumentException {
+    if (key == null)
+      throw new NullPointerException("Key cannot be null");
+    int hash = spread(key.hashCode());
+    if (indexOf(key, hash) >= 0)
+      throw new IllegalArgumentException("Key already exists");
+    if (size >= threshold)
+      allocateAndRehash(keys.length << 1);
+    insert(key, value, hash);
+    size++;
+  }
+
+  /**
+   * Checks whether a key maps to a value in this collection.
+   *
+   * @param key the key to check
+   * @return true if the key maps to a value, and false is the key doesn't map to a value
+   */
+  @Override
+  public boolean containsKey(KeyType key) {
+    return key != null && indexOf(key, spread(key.hashCode())) >= 0;
+  }
+
+  /**
+   * Retrieves the specific value that a key maps to.
+   *
+   * @param key the key to look up
+   * @return the value that key maps to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public ValueType get(KeyType key) throws NoSuchElementException {
+    int slot = key == null ? -1 : indexOf(key, spread(key.hashCode()));
+    if (slot < 0)
+      throw new NoSuchElementException("Key not found");
+    return (ValueType) values[slot];
+  }
+
+  /**
+   * Retrieves the value that a key maps to, without throwing when the key is missing.
+   *
+   * @param key          the key to look up
+   * @param defaultValue the value to return when key is not stored in this collection
+   * @return the value that key maps to, or defaultValue when there is no such key
+   */
+  @SuppressWarnings("unchecked")
+  public ValueType getOrDefault(KeyType key, ValueType defaultValue) {
+    int slot = key == null ? -1 : indexOf(key, spread(key.hashCode()));
+    return slot < 0 ? defaultValue : (ValueType) values[slot];
+  }
+
+  /**
+   * Remove the mapping for a key from this collection.
+   *
+   * @param key the key whose mapping to remove
+   * @return the value that the removed key mapped to
+   * @throws NoSuchElementException when key is not stored in this collection
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public ValueType remove(KeyType key) throws NoSuchElementException {
+    int slot = key == null ? -1 : indexOf(key, spread(key.hashCode()));
+    if (slot < 0)
+      throw new NoSuchElementException("Key not found");
+    ValueType removed = (ValueType) values[slot];
+    // backward shift: pull each following key one slot closer to home, until reaching an empty slot
+    // or a key that is already in its home slot
+    int next = (slot + 1) & mask;
+    while (keys[next] != null && probeDistance(next) > 0) {
+      keys[slot] = keys[next];
+      values[slot] = values[next];
+      hashes[slot] = hashes[next];
+      slot = next;
+      next = (next + 1) & mask;
+    }
+    keys[slot] = null;
+    values[slot] = null;
+    size--;
+    return removed;
+  }
+
+  /**
+   * Removes all key,value pairs from this collection.
+   */
+  @Override
+  public void clear() {
+    Arrays.fill(keys, null);
+    Arrays.fill(values, null);
+    size = 0;
+  }
+
+  /**
+   * Retrieves the number of keys stored in this collection.
+   *
+   * @return the number of keys stored in this collection
+   */
+  @Override
+  public int getSize() {
+    return size;
+  }
+
+  /**
+   * Retrieves this collection's capacity.
+   *
+   * @return the number of slots in the underlying arrays for this collection
+   */
+  @Override
+  public int getCapacity() {
+    return keys.length;
+  }
+
+  // Mixes the high bits of a hash code into the low bits that select a slot, so that keys whose
+  // hash codes only differ in their high bits (like many Doubles) do not all collide
+  private static int spread(int hashCode) {
+    int h = hashCode * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  // Return the slot that holds key, or -1 if it is not in the table
+  private int indexOf(Object key, int hash) {
+    int slot = hash & mask;
+    for (int distance = 0;; distance++) {
+      Object occupant = keys[slot];
+      // a key is never further from home than the keys it passed, so an empty slot or a key that is
+      // closer to its own home slot means the search key is absent
+      if (occupant == null || probeDistance(slot) < distance)
+        return -1;
+      if (hashes[slot] == hash && occupant.equals(key))
+        return slot;
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  // Places a key that is not yet in the table, displacing keys that are closer to their home slot
+  private void insert(Object key, Object value, int hash) {
+    int slot = hash & mask;
+    for (int distance = 0;; distance++) {
+      if (keys[slot] == null) {
+        keys[slot] = key;
+        values[slot] = value;
+        hashes[slot] = hash;
+        return;
+      }
+      int occupantDistance = probeDistance(slot);
+      if (occupantDistance < distance) {
+        // take this slot and carry on placing the displaced key
+        Object displacedKey = keys[slot];
+        Object displacedValue = values[slot];
+        int displacedHash = hashes[slot];
+        keys[slot] = key;
+        values[slot] = value;
+        hashes[slot] = hash;
+        key = displacedKey;
+        value = displacedValue;
+        hash = displacedHash;
+        distance = occupantDistance;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  // Return how many slots the key in an occupied slot is from its home slot
+  private int probeDistance(int slot) {
+    return (slot - (hashes[slot] & mask)) & mask;
+  }
+
+  private void allocate(int slots) {
+    keys = new Object[slots];
+    values = new Object[slots];
+    hashes = new int[slots];
+    mask = slots - 1;
+    threshold = (int) (slots * MAX_LOAD);
+  }
+
+  // Moves every key into new arrays with the provided number of slots
+  private void allocateAndRehash(int slots) {
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    int[] oldHashes = hashes;
+    allocate(slots);
+    for (int i = 0; i < oldKeys.length; i++)
+      if (oldKeys[i] != null)
+        insert(oldKeys[i], oldValues[i], oldHashes[i]);
+  }
+}
@@ -0,0 +1,86 @@
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for OpenAddressingMap, including the Robin Hood probing and backward shift deletion paths
+ * that only colliding keys reach.
+ */
+public class OpenAddressingMapTests {
+
+  /**
+   * Tests put, get, containsKey and getOrDefault, including duplicate and null keys.
+   */
+  @Test
+  public void testPutAndGet() {
+    OpenAddressingMap<String, Integer> map = new OpenAddressingMap<>();
+    map.put("key1", 10);
+    map.put("key2", 20);
+    map.put("key3", 40);
+    Assertions.assertEquals(10, map.get("key1").intValue());
+    Assertions.assertEquals(20, map.get("key2").intValue());
+    Assertions.assertEquals(40, map.get("key3").intValue());
+    Assertions.assertTrue(map.containsKey("key2"));
+    Assertions.assertFalse(map.containsKey("key4"));
+    Assertions.assertFalse(map.containsKey(null));
+    Assertions.assertEquals(-1, map.getOrDefault("key4", -1).intValue());
+    Assertions.assertEquals(3, map.getSize());
+    Assertions.assertThrows(IllegalArgumentException.class, () -> map.put("key1", 11));
+    Assertions.assertThrows(NullPointerException.class, () -> map.put(null, 11));
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.get("key4"));
+    // "polygenelubricants".hashCode() is Integer.MIN_VALUE
+    map.put("polygenelubricants", 50);
+    Assertions.assertEquals(50, map.get("polygenelubricants").intValue());
+  }
+
+  /**
+   * Tests remove and clear, and that the capacity is a power of two that grows with the size.
+   */
+  @Test
+  public void testRemoveAndClear() {
+    OpenAddressingMap<Integer, Integer> map = new OpenAddressingMap<>(3);
+    Assertions.assertEquals(4, map.getCapacity());
+    for (int i = 0; i < 100; i++)
+      map.put(i, -i);
+    Assertions.assertEquals(256, map.getCapacity());
+    for (int i = 0; i < 100; i += 2)
+      Assertions.assertEquals(-i, map.remove(i).intValue());
+    Assertions.assertThrows(NoSuchElementException.class, () -> map.remove(0));
+    Assertions.assertEquals(50, map.getSize());
+    for (int i = 0; i < 100; i++)
+      Assertions.assertEquals(i % 2 == 1, map.containsKey(i));
+    map.clear();
+    Assertions.assertEquals(0, map.getSize());
+    Assertions.assertFalse(map.containsKey(1));
+  }
+
+  /**
+   * Tests a long random sequence of puts and removes on keys with many colliding hash codes against
+   * java.util.HashMap, so that every branch of Robin Hood insertion and backward shift deletion
+   * runs.
+   */
+  @Test
+  public void testMatchesHashMap() {
+    OpenAddressingMap<Long, Integer> map = new OpenAddressingMap<>();
+    HashMap<Long, Integer> expected = new HashMap<>();
+    Random rng = new Random(5);
+    for (int i = 0; i < 20000; i++) {
+      // Long keys that differ only in their high 32 bits share a hash code
+      Long key = ((long) rng.nextInt(40) << 32) | rng.nextInt(400);
+      if (expected.containsKey(key)) {
+        Assertions.assertEquals(expected.remove(key), map.remove(key));
+      } else {
+        expected.put(key, i);
+        map.put(key, i);
+      }
+      Assertions.assertEquals(expected.size(), map.getSize());
+    }
+    for (long high = 0; high < 40; high++)
+      for (int low = 0; low < 400; low++) {
+        Long key = (high << 32) | low;
+        Assertions.assertEquals(expected.get(key), map.getOrDefault(key, null));
+      }
+  }
+}
@@ -0,0 +1,330 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads large DOT files on several cores at once. The file is split into chunks that end at line
+ * breaks, and each chunk is memory mapped with FileChannel.map and parsed by its own fork-join task
+ * into a local buffer of edges, with node names numbered by a table local to that chunk. Once every
+ * chunk is parsed, one pass over the buffers (in file order) gives each name its global id, and the
+ * combined edges can then be inserted into a graph or turned directly into a CSR snapshot.
+ *
+ * Because chunks are split at line breaks, every statement of the file must be on a single line (as
+ * in campus.dot and other exports), and an edge [seconds=...] default only applies within its
+ * chunk. The graph header and closing brace are skipped like any other statement, wherever they end
+ * up. Files that break these rules make a chunk fail to parse, and BackendImplementation then reads
+ * them sequentially with DotReader instead.
+ */
+public class ParallelGraphLoader {
+
+  protected final ForkJoinPool pool;
+  protected final long chunkSize;
+  protected final String weightAttribute;
+
+  /**
+   * Creates a loader that reads the seconds attribute of each edge in chunks of 64 MB, on the
+   * common fork-join pool.
+   */
+  public ParallelGraphLoader() {
+    this(ForkJoinPool.commonPool(), 64 << 20, "seconds");
+  }
+
+  /**
+   * Creates a loader.
+   *
+   * @param pool            the pool to parse chunks on
+   * @param chunkSize       the number of bytes in each chunk, before extending it to a line break
+   * @param weightAttribute the name of the attribute that holds each edge's weight
+   */
+  public ParallelGraphLoader(ForkJoinPool pool, long chunkSize, String weightAttribute) {
+    if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE / 2)
+      throw new IllegalArgumentException("Chunk size must be between 1 and 1 GB: " + chunkSize);
+    this.pool = pool;
+    this.chunkSize = chunkSize;
+    this.weightAttribute = weightAttribute;
+  }
+
+  /**
+   * Reads every node and edge of a DOT file.
+   *
+   * @param filename the path of the file to read
+   * @return the nodes and edges of the file, in the order they appear in the file
+   * @throws IOException if the file cannot be read or is not valid DOT
+   */
+  public LoadedGraph load(String filename) throws IOException {
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      long[] boundaries = chunkBoundaries(channel);
+      List<ChunkTask> tasks = new ArrayList<>();
+      for (int i = 0; i + 1 < boundaries.length; i++)
+        tasks.add(new ChunkTask(channel, boundaries[i], boundaries[i + 1], weightAttribute));
+      for (ChunkTask task : tasks)
+        pool.execute(task);
+      List<EdgeBuffer> chunks = new ArrayList<>();
+      try {
+        for (ChunkTask task : tasks)
+          chunks.add(task.join());
+      } catch (RuntimeException | Error e) {
+        // stop the chunks that have not started, and let the others finish mapping before the
+        // channel closes
+        for (ChunkTask task : tasks)
+          task.cancel(true);
+        for (ChunkTask task : tasks)
+          task.quietlyJoin();
+        if (e instanceof UncheckedIOException)
+          throw ((UncheckedIOException) e).getCause();
+        throw e;
+      }
+      return merge(chunks);
+    }
+  }
+
+  // Return the offsets where chunks start (and the file's length at the end), each one just after a
+  // line break
+  private long[] chunkBoundaries(FileChannel channel) throws IOException {
+    long length = channel.size();
+    List<Long> boundaries = new ArrayList<>();
+    boundaries.add(0L);
+    ByteBuffer window = ByteBuffer.allocate(4096);
+    long next = chunkSize;
+    while (next < length) {
+      // scan forward from the tentative boundary to the end of its line
+      long position = next;
+      long boundary = length;
+      search: while (position < length) {
+        window.clear();
+        int read = channel.read(window, position);
+        if (read <= 0)
+          break;
+        for (int i = 0; i < read; i++) {
+          if (window.get(i) == '\n') {
+            boundary = position + i + 1;
+            break search;
+          }
+        }
+        position += read;
+      }
+      if (boundary >= length)
+        break;
+      boundaries.add(boundary);
+      next = boundary + chunkSize;
+    }
+    boundaries.add(length);
+    long[] result = new long[boundaries.size()];
+    for (int i = 0; i < result.length; i++)
+      result[i] = boundaries.get(i);
+    return result;
+  }
+
+  // Gives every name a global id in order of first appearance, and rewrites each chunk's edges
+  // with those ids in place
+  private static LoadedGraph merge(List<EdgeBuffer> chunks) {
+    OpenAddressingMap<String, Integer> ids = new OpenAddressingMap<>();
+    List<String> names = new ArrayList<>();
+    int edgeCount = 0;
+    for (EdgeBuffer chunk : chunks) {
+      int[] global = new int[chunk.names.getSize()];
+      Arrays.fill(global, -1);
+      for (int i = 0; i < chunk.count; i++) {
+        chunk.sources[i] = globalId(chunk.sources[i], global, chunk.names, ids, names);
+        if (chunk.targets[i] >= 0) {
+          chunk.targets[i] = globalId(chunk.targets[i], global, chunk.names, ids, names);
+          edgeCount++;
+        }
+      }
+    }
+    // concatenate the edges of every chunk, leaving out node statements
+    int[] sources = new int[edgeCount];
+    int[] targets = new int[edgeCount];
+    double[] weights = new double[edgeCount];
+    int edge = 0;
+    for (EdgeBuffer chunk : chunks) {
+      for (int i = 0; i < chunk.count; i++) {
+        if (chunk.targets[i] < 0)
+          continue;
+        sources[edge] = chunk.sources[i];
+        targets[edge] = chunk.targets[i];
+        weights[edge++] = chunk.weights[i];
+      }
+    }
+    return new LoadedGraph(names.toArray(new String[0]), sources, targets, weights);
+  }
+
+  // Return the global id of a chunk's local name, assigning the next id if the name is new
+  private static int globalId(int local, int[] global, DotReader.NameTable localNames,
+      OpenAddressingMap<String, Integer> ids, List<String> names) {
+    if (global[local] < 0) {
+      String name = localNames.getName(local);
+      Integer id = ids.getOrDefault(name, null);
+      if (id == null) {
+        id = names.size();
+        ids.put(name, id);
+        names.add(name);
+      }
+      global[local] = id;
+    }
+    return global[local];
+  }
+
+  // Parses one chunk of the file. Tasks are never serialized, so the channel is transient.
+  private static class ChunkTask extends RecursiveTask<EdgeBuffer> {
+    private static final long serialVersionUID = 1L;
+    private final transient FileChannel channel;
+    private final long start;
+    private final long end;
+    private final String weightAttribute;
+
+    ChunkTask(FileChannel channel, long start, long end, String weightAttribute) {
+      this.channel = channel;
+      this.start = start;
+      this.end = end;
+      this.weightAttribute = weightAttribute;
+    }
+
+    @Override
+    protected EdgeBuffer compute() {
+      try {
+        MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        EdgeBuffer buffer = new EdgeBuffer();
+        new DotReader(weightAttribute).read(bytes, buffer.names, buffer);
+        return buffer;
+      } catch (IOException e) {
+        throw new UncheckedIOException(
+            new IOException("Error in bytes " + start + " to " + end + ": " + e.getMessage(), e));
+      }
+    }
+  }
+
+  // The nodes and edges of one chunk, in the order they appear. A node statement is stored as an
+  // edge whose target is -1.
+  private static class EdgeBuffer implements DotReader.IndexListener {
+    final DotReader.NameTable names = new DotReader.NameTable();
+    int[] sources = new int[1024];
+    int[] targets = new int[1024];
+    double[] weights = new double[1024];
+    int count = 0;
+
+    @Override
+    public void node(int node) {
+      edge(node, -1, 0);
+    }
+
+    @Override
+    public void edge(int source, int target, double weight) {
+      if (count == sources.length) {
+        sources = Arrays.copyOf(sources, count * 2);
+        targets = Arrays.copyOf(targets, count * 2);
+        weights = Arrays.copyOf(weights, count * 2);
+      }
+      sources[count] = source;
+      targets[count] = target;
+      weights[count++] = weight;
+    }
+  }
+
+  /**
+   * The nodes and edges read from a file: node names by global id, in order of first appearance,
+   * and parallel arrays with the source id, target id and weight of every edge in file order.
+   */
+  public static class LoadedGraph {
+    protected final String[] names;
+    protected final int[] sources;
+    protected final int[] targets;
+    protected final double[] weights;
+
+    public LoadedGraph(String[] names, int[] sources, int[] targets, double[] weights) {
+      this.names = names;
+      this.sources = sources;
+      this.targets = targets;
+      this.weights = weights;
+    }
+
+    /**
+     * Return the names of the nodes, in order of first appearance in the file.
+     *
+     * @return the list of node names
+     */
+    public List<String> getNames() {
+      return Arrays.asList(names);
+    }
+
+    /**
+     * Return the number of edges read, counting repeated edges between the same nodes separately.
+     *
+     * @return the number of edges in the file
+     */
+    public int getEdgeCount() {
+      return sources.length;
+    }
+
+    /**
+     * Inserts every node (in order of first appearance) and then every edge into a graph, exactly
+     * as reading the file statement by statement would. When an edge appears more than once, the
+     * weight of its last appearance wins.
+     *
+     * @param graph the graph to insert into
+     */
+    public void insertInto(BaseGraph<String, Double> graph) {
+      for (String name : names)
+        graph.insertNode(name);
+      for (int i = 0; i < sources.length; i++)
+        graph.insertEdge(names[sources[i]], names[targets[i]], weights[i]);
+    }
+
+    /**
+     * Builds a CSR snapshot of the nodes and edges, without building Node and Edge objects. Node
+     * ids follow the order of first appearance, and each node's leaving edges follow the order they
+     * first appear in, just like freezing a graph that insertInto filled. When an edge appears more
+     * than once, the weight of its last appearance wins.
+     *
+     * @return the CSR snapshot of the nodes and edges read
+     */
+    public CsrGraph<String> toCsr() {
+      int nodeCount = names.length;
+      int[] offsets = new int[nodeCount + 1];
+      for (int source : sources)
+        offsets[source + 1]++;
+      for (int v = 0; v < nodeCount; v++)
+        offsets[v + 1] += offsets[v];
+      // counting sort of the edges by source, keeping the file order within each source
+      int[] fill = Arrays.copyOf(offsets, nodeCount);
+      int[] sortedTargets = new int[sources.length];
+      double[] sortedWeights = new double[sources.length];
+      for (int i = 0; i < sources.length; i++) {
+        int slot = fill[sources[i]]++;
+        sortedTargets[slot] = targets[i];
+        sortedWeights[slot] = weights[i];
+      }
+      // merge repeated edges, keeping the first position and the last weight of each one
+      int[] position = new int[nodeCount]; // where each target was written for the current source
+      int[] stamp = new int[nodeCount]; // source + 1 for which position is valid
+      int[] csrOffsets = new int[nodeCount + 1];
+      int written = 0;
+      for (int v = 0; v < nodeCount; v++) {
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+          int target = sortedTargets[e];
+          if (stamp[target] == v + 1) {
+            sortedWeights[position[target]] = sortedWeights[e];
+          } else {
+            stamp[target] = v + 1;
+            position[target] = written;
+            sortedTargets[written] = target;
+            sortedWeights[written++] = sortedWeights[e];
+          }
+        }
+        csrOffsets[v + 1] = written;
+      }
+      return new CsrGraph<>(Arrays.copyOf(names, nodeCount, Object[].class),
+          csrOffsets, Arrays.copyOf(sortedTargets, written), Arrays.copyOf(sortedWeights, written));
+    }
+  }
+}
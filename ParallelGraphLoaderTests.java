@@ -0,0 +1,79 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for ParallelGraphLoader, which must load a DOT file in chunks exactly as DotReader reads it
+ * in one pass.
+ */
+public class ParallelGraphLoaderTests {
+
+  /**
+   * Tests that loading campus.dot in many small chunks finds the same nodes, in the same order, and
+   * the same edges as reading it sequentially, both when inserting into a graph and when building a
+   * CSR snapshot directly.
+   */
+  @Test
+  public void testMatchesSequentialLoad() throws IOException {
+    DijkstraGraph<String, Double> sequential = new DijkstraGraph<>();
+    List<String> sequentialNames = new ArrayList<>();
+    new DotReader().read("campus.dot", new DotReader.Listener() {
+      @Override
+      public void node(String name) {
+        if (sequential.insertNode(name))
+          sequentialNames.add(name);
+      }
+
+      @Override
+      public void edge(String source, String target, double weight) {
+        node(source);
+        node(target);
+        sequential.insertEdge(source, target, weight);
+      }
+    });
+    sequential.freeze();
+
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      ParallelGraphLoader.LoadedGraph loaded =
+          new ParallelGraphLoader(pool, 1000, "seconds").load("campus.dot");
+      Assertions.assertEquals(sequentialNames, loaded.getNames());
+      DijkstraGraph<String, Double> parallel = new DijkstraGraph<>();
+      loaded.insertInto(parallel);
+      parallel.freeze();
+      Assertions.assertEquals(sequential.getEdgeCount(), parallel.getEdgeCount());
+      Assertions.assertEquals(sequential.snapshot.fingerprint(), parallel.snapshot.fingerprint());
+      Assertions.assertEquals(sequential.snapshot.fingerprint(), loaded.toCsr().fingerprint());
+    } finally {
+      pool.shutdown();
+    }
+
+    // a repeated edge keeps its first position and its last weight, and errors name their chunk
+    File file = File.createTempFile("repeated", ".dot");
+    try {
+      Files.write(file.toPath(), "a -> b [seconds=1]\na -> c [seconds=2]\na -> b [seconds=3]\n"
+          .getBytes());
+      CsrGraph<String> csr = new ParallelGraphLoader(ForkJoinPool.commonPool(), 1, "seconds")
+          .load(file.getPath()).toCsr();
+      Assertions.assertEquals(2, csr.getEdgeCount());
+      Assertions.assertEquals("b", csr.data(csr.target(csr.firstEdge(0))));
+      Assertions.assertEquals(3.0, csr.weight(csr.firstEdge(0)));
+      Files.write(file.toPath(), "a -> b [seconds=1]\na -> b [color=red]\n".getBytes());
+      Assertions.assertThrows(IOException.class,
+          () -> new ParallelGraphLoader(ForkJoinPool.commonPool(), 1, "seconds")
+              .load(file.getPath()));
+      // a default from an earlier chunk does not reach later ones, which then fail to parse
+      Files.write(file.toPath(), "edge [seconds=5]\na -> b\nc -> d\n".getBytes());
+      Assertions.assertThrows(IOException.class,
+          () -> new ParallelGraphLoader(ForkJoinPool.commonPool(), 1, "seconds")
+              .load(file.getPath()));
+    } finally {
+      file.delete();
+    }
+  }
+}
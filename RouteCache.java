@@ -0,0 +1,264 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+
+/**
+ * A bounded cache of computed routes, where each route holds the path between two nodes together
+ * with the cost of each leg and the total cost, so that one search answers both path and travel
+ * time queries. It keeps the most recently used routes, up to its capacity, and routes older than
+ * its maximum age are computed again.
+ *
+ * Each lookup passes the modification count of the graph the routes come from, such as
+ * BaseGraph.getModificationCount. When the count differs from the one the cached routes were
+ * computed at, the whole cache is invalidated first. Concurrent lookups of the same missing route
+ * share a single computation: the first one computes it, and the others wait for its result.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class RouteCache<NodeType> {
+
+  private static final int DEFAULT_CAPACITY = 1024;
+  private static final long DEFAULT_MAX_AGE_MILLIS = 10 * 60 * 1000;
+
+  /**
+   * One computed route: the nodes along a shortest path, the cost of each edge along it, and their
+   * total. Routes are immutable.
+   *
+   * @param NodeType is the data type stored at each graph node
+   */
+  public static class Route<NodeType> {
+    private final List<NodeType> path;
+    private final List<Double> legCosts;
+    private final double totalCost;
+
+    /**
+     * Creates a route from a path and the costs of the edges along it.
+     *
+     * @param path     the data items along the path, from its start to its end
+     * @param legCosts the cost of each edge of the path, one fewer than the nodes of the path
+     */
+    public Route(List<NodeType> path, List<Double> legCosts) {
+      if (legCosts.size() != path.size() - 1)
+        throw new IllegalArgumentException("A path needs one leg cost per edge");
+      this.path = Collections.unmodifiableList(path);
+      this.legCosts = Collections.unmodifiableList(legCosts);
+      double total = 0;
+      for (double cost : legCosts)
+        total += cost;
+      this.totalCost = total;
+    }
+
+    /**
+     * Return the data items along this route.
+     *
+     * @return a read only list of the nodes from the start to the end of the route
+     */
+    public List<NodeType> getPath() {
+      return path;
+    }
+
+    /**
+     * Return the cost of each edge along this route.
+     *
+     * @return a read only list of costs, where cost i is the cost from node i to node i + 1
+     */
+    public List<Double> getLegCosts() {
+      return legCosts;
+    }
+
+    /**
+     * Return the total cost of this route.
+     *
+     * @return the sum of the leg costs
+     */
+    public double getTotalCost() {
+      return totalCost;
+    }
+  }
+
+  // a cached route, or the pending computation of one, with the time its computation began
+  private static class Entry<NodeType> {
+    private final CompletableFuture<Route<NodeType>> route = new CompletableFuture<>();
+    private final long created;
+
+    private Entry(long created) {
+      this.created = created;
+    }
+  }
+
+  private final int capacity;
+  private final long maxAgeNanos;
+  private long modificationCount = Long.MIN_VALUE; // modification count of the cached routes
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+  private long invalidations = 0;
+
+  // most recently used routes by start and end node, guarded by synchronizing on this cache
+  private final LinkedHashMap<List<NodeType>, Entry<NodeType>> entries =
+      new LinkedHashMap<List<NodeType>, Entry<NodeType>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<NodeType>, Entry<NodeType>> eldest) {
+          if (size() <= capacity)
+            return false;
+          evictions++;
+          return true;
+        }
+      };
+
+  /**
+   * Constructor for a cache of up to 1024 routes, which are kept for at most 10 minutes.
+   */
+  public RouteCache() {
+    this(DEFAULT_CAPACITY, DEFAULT_MAX_AGE_MILLIS);
+  }
+
+  /**
+   * Constructor for a cache with the provided limits.
+   *
+   * @param capacity     the most routes kept at once
+   * @param maxAgeMillis how long after its computation a route is computed again
+   */
+  public RouteCache(int capacity, long maxAgeMillis) {
+    if (capacity < 1 || maxAgeMillis < 1)
+      throw new IllegalArgumentException("Capacity and age limits must be positive");
+    this.capacity = capacity;
+    this.maxAgeNanos = maxAgeMillis * 1_000_000;
+  }
+
+  /**
+   * Returns the current time that the ages of routes are measured in.
+   *
+   * @return the time in nanoseconds, from an arbitrary origin
+   */
+  protected long now() {
+    return System.nanoTime();
+  }
+
+  /**
+   * Returns the route from start to end, computing it when it is not cached, has expired, or was
+   * computed before the graph last changed. Only one thread computes a missing route at a time, and
+   * other threads that need the same route wait for that result. A route whose computation throws
+   * is not cached, and the exception is thrown to every lookup that waited for it.
+   *
+   * @param start             the start node of the route
+   * @param end               the end node of the route
+   * @param modificationCount the current modification count of the graph the route comes from
+   * @param compute           computes the route from start to end when needed
+   * @return the route from start to end
+   * @throws NoSuchElementException when compute throws it, for example when there is no route
+   */
+  public Route<NodeType> get(NodeType start, NodeType end, long modificationCount,
+      BiFunction<NodeType, NodeType, Route<NodeType>> compute) {
+    List<NodeType> key = Arrays.asList(start, end);
+    Entry<NodeType> entry;
+    boolean computing = false;
+    synchronized (this) {
+      if (modificationCount != this.modificationCount) {
+        if (!entries.isEmpty())
+          invalidations++;
+        entries.clear();
+        this.modificationCount = modificationCount;
+      }
+      entry = entries.get(key);
+      if (entry != null && now() - entry.created > maxAgeNanos) {
+        entries.remove(key);
+        evictions++;
+        entry = null;
+      }
+      if (entry != null) {
+        hits++;
+      } else {
+        misses++;
+        entry = new Entry<>(now());
+        entries.put(key, entry);
+        computing = true;
+      }
+    }
+    if (computing) {
+      try {
+        entry.route.complete(compute.apply(start, end));
+      } catch (RuntimeException | Error e) {
+        // forget the failed computation, so the next lookup tries again
+        synchronized (this) {
+          if (entries.get(key) == entry)
+            entries.remove(key);
+        }
+        entry.route.completeExceptionally(e);
+      }
+    }
+    try {
+      return entry.route.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      if (e.getCause() instanceof Error)
+        throw (Error) e.getCause();
+      throw e;
+    }
+  }
+
+  /**
+   * Removes every cached route.
+   */
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Return the number of routes in this cache, including routes still being computed.
+   *
+   * @return the number of cached routes
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  /**
+   * Return the number of lookups that found their route in this cache.
+   *
+   * @return the number of cache hits so far
+   */
+  public synchronized long getHitCount() {
+    return hits;
+  }
+
+  /**
+   * Return the number of lookups that computed their route.
+   *
+   * @return the number of cache misses so far
+   */
+  public synchronized long getMissCount() {
+    return misses;
+  }
+
+  /**
+   * Return the number of routes removed because the cache was full or they had expired.
+   *
+   * @return the number of evicted routes so far
+   */
+  public synchronized long getEvictionCount() {
+    return evictions;
+  }
+
+  /**
+   * Return the number of times the cached routes were discarded because the graph changed.
+   *
+   * @return the number of invalidations so far
+   */
+  public synchronized long getInvalidationCount() {
+    return invalidations;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return String.format("RouteCache[size %d, hits %d, misses %d, evictions %d, invalidations %d]",
+        entries.size(), hits, misses, evictions, invalidations);
+  }
+}
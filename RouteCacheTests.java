@@ -0,0 +1,108 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for RouteCache, with a clock the test controls and with lookups that race for one route.
+ */
+public class RouteCacheTests {
+
+  /**
+   * Tests that routes are cached until they are evicted by size or age, or invalidated by a change
+   * of the modification count, and that failed computations are not cached.
+   */
+  @Test
+  public void testEvictionAndInvalidation() {
+    long[] clock = {0};
+    RouteCache<String> cache = new RouteCache<String>(2, 1000) {
+      @Override
+      protected long now() {
+        return clock[0];
+      }
+    };
+    AtomicInteger computed = new AtomicInteger();
+    BiFunction<String, String, RouteCache.Route<String>> compute = (start, end) -> {
+      computed.incrementAndGet();
+      if (start.equals(end))
+        throw new NoSuchElementException("Invalid Path");
+      return new RouteCache.Route<>(List.of(start, end), List.of(2.5));
+    };
+    RouteCache.Route<String> route = cache.get("A", "B", 0, compute);
+    Assertions.assertEquals(List.of("A", "B"), route.getPath());
+    Assertions.assertEquals(2.5, route.getTotalCost());
+    Assertions.assertSame(route, cache.get("A", "B", 0, compute));
+    Assertions.assertEquals(1, cache.getHitCount());
+    Assertions.assertEquals(1, cache.getMissCount());
+
+    // the least recently used route is evicted when a third one is added
+    cache.get("B", "C", 0, compute);
+    cache.get("A", "B", 0, compute);
+    cache.get("C", "D", 0, compute);
+    Assertions.assertEquals(1, cache.getEvictionCount());
+    Assertions.assertEquals(3, computed.get());
+    cache.get("A", "B", 0, compute);
+    Assertions.assertEquals(3, computed.get());
+
+    // routes expire once they are older than the maximum age
+    clock[0] = 1_000_000_001L;
+    cache.get("A", "B", 0, compute);
+    Assertions.assertEquals(4, computed.get());
+    Assertions.assertEquals(2, cache.getEvictionCount());
+
+    // a change to the graph invalidates every route
+    cache.get("A", "B", 1, compute);
+    Assertions.assertEquals(5, computed.get());
+    Assertions.assertEquals(1, cache.getInvalidationCount());
+    Assertions.assertEquals(1, cache.size());
+
+    // failures are passed on, but not cached
+    Assertions.assertThrows(NoSuchElementException.class, () -> cache.get("A", "A", 1, compute));
+    Assertions.assertThrows(NoSuchElementException.class, () -> cache.get("A", "A", 1, compute));
+    Assertions.assertEquals(7, computed.get());
+    Assertions.assertEquals(1, cache.size());
+  }
+
+  /**
+   * Tests that concurrent lookups of the same missing route wait for a single computation.
+   */
+  @Test
+  public void testSingleFlight() throws Exception {
+    RouteCache<String> cache = new RouteCache<>();
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger computed = new AtomicInteger();
+    BiFunction<String, String, RouteCache.Route<String>> compute = (start, end) -> {
+      computed.incrementAndGet();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+      return new RouteCache.Route<>(List.of(start, end), List.of(1.0));
+    };
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<RouteCache.Route<String>>> lookups = new ArrayList<>();
+      for (int i = 0; i < 8; i++)
+        lookups.add(pool.submit(() -> cache.get("A", "B", 0, compute)));
+      while (cache.getHitCount() + cache.getMissCount() < 8)
+        Thread.sleep(5);
+      release.countDown();
+      RouteCache.Route<String> first = lookups.get(0).get();
+      for (Future<RouteCache.Route<String>> lookup : lookups)
+        Assertions.assertSame(first, lookup.get());
+    } finally {
+      pool.shutdown();
+    }
+    Assertions.assertEquals(1, computed.get());
+    Assertions.assertEquals(1, cache.getMissCount());
+    Assertions.assertEquals(7, cache.getHitCount());
+  }
+}
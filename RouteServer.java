@@ -0,0 +1,386 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * A small HTTP server that answers route queries from a BackendImplementation as JSON, so the
+ * campus map can be used without the JavaFX Frontend. It is built on the JDK's
+ * com.sun.net.httpserver, and needs JDK 21 or later: every request is handled on its own virtual
+ * thread, while queries run on a fixed pool of maxInFlight platform threads, so that each of them
+ * keeps reusing the SearchWorkspace of its thread instead of allocating one per request. The
+ * backend must have loaded its graph before the server starts, since loading is not safe while
+ * queries run.
+ *
+ * All endpoints take GET requests with URL encoded parameters:
+ *   /locations                     {"locations": [...]}
+ *   /path?from=A&to=B              {"path": [...]}, the names along the shortest path
+ *   /times?from=A&to=B             {"times": [...]}, the walking time of each leg of that path
+ *   /reachable?from=A&seconds=T    {"locations": [...]}, everything within T seconds of A
+ * Errors are returned as {"error": "..."}, with status 400 for missing or malformed parameters
+ * and 404 for unknown locations or missing paths.
+ *
+ * Two limits protect the server from overload. At most maxInFlight queries run at once, and a
+ * request that arrives while all of them are busy is rejected right away with 503, instead of
+ * queueing without bound. A request whose query takes longer than the timeout gets 504; its query
+ * keeps its slot until it finishes, so slow queries cannot pile up behind the limit either.
+ *
+ * Usage: java RouteServer [graph.dot] [port]
+ */
+public class RouteServer {
+
+  private static final int DEFAULT_MAX_IN_FLIGHT = 256;
+  private static final long DEFAULT_TIMEOUT_MILLIS = 2000;
+
+  private final BackendImplementation backend;
+  private final Semaphore admission; // one permit for each query that may run at once
+  private final int maxInFlight;
+  private final long timeoutMillis;
+  private ExecutorService handlers; // one virtual thread per request
+  private ExecutorService queries; // maxInFlight platform threads, each with its own workspace
+  private HttpServer server;
+
+  /**
+   * Constructor for a server in front of a backend with no locations, which must be filled with
+   * getBackend().loadGraphData before the server starts.
+   */
+  public RouteServer() {
+    this(new BackendImplementation(new DijkstraGraph<String, Double>()));
+  }
+
+  /**
+   * Constructor for a server in front of a backend, with the default limits.
+   *
+   * @param backend the backend that answers queries
+   */
+  public RouteServer(BackendImplementation backend) {
+    this(backend, DEFAULT_MAX_IN_FLIGHT, DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Constructor for a server in front of a backend.
+   *
+   * @param backend       the backend that answers queries
+   * @param maxInFlight   the most queries that may run at once before requests are rejected
+   * @param timeoutMillis how long a request waits for its query before it gets a 504 response
+   */
+  public RouteServer(BackendImplementation backend, int maxInFlight, long timeoutMillis) {
+    if (backend == null)
+      throw new NullPointerException("Backend cannot be null");
+    if (maxInFlight < 1 || timeoutMillis < 1)
+      throw new IllegalArgumentException("Limits must be positive");
+    this.backend = backend;
+    this.admission = new Semaphore(maxInFlight);
+    this.maxInFlight = maxInFlight;
+    this.timeoutMillis = timeoutMillis;
+  }
+
+  /**
+   * Return the backend that answers this server's queries.
+   *
+   * @return the backend of this server
+   */
+  public BackendImplementation getBackend() {
+    return backend;
+  }
+
+  /**
+   * Starts serving requests on a port of every local address. The backend must not load any more
+   * graph data once the server has started.
+   *
+   * @param port the port to listen on, or 0 for any free port
+   * @return the port the server listens on
+   * @throws IOException if the port cannot be opened
+   */
+  public synchronized int start(int port) throws IOException {
+    if (server != null)
+      throw new IllegalStateException("Server is already running");
+    handlers = Executors.newVirtualThreadPerTaskExecutor();
+    queries = Executors.newFixedThreadPool(maxInFlight);
+    server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.setExecutor(handlers);
+    server.createContext("/locations",
+        exchange -> serve(exchange, params -> json("locations", backend.getListOfAllLocations())));
+    server.createContext("/path", exchange -> serve(exchange, params -> json("path",
+        backend.findShortestPath(param(params, "from"), param(params, "to")))));
+    server.createContext("/times", exchange -> serve(exchange, params -> json("times",
+        backend.getTravelTimesOnPath(param(params, "from"), param(params, "to")))));
+    server.createContext("/reachable", exchange -> serve(exchange, params -> json("locations",
+        backend.getReachableLocations(param(params, "from"),
+            Double.parseDouble(param(params, "seconds"))))));
+    server.start();
+    return server.getAddress().getPort();
+  }
+
+  /**
+   * Stops the server, without waiting for requests in progress.
+   */
+  public synchronized void stop() {
+    if (server == null)
+      return;
+    server.stop(0);
+    handlers.shutdownNow();
+    queries.shutdownNow();
+    server = null;
+  }
+
+  // Answers one request: admits it, runs its query on the query pool, and sends the answer or the
+  // error that the query or its limits produced
+  private void serve(HttpExchange exchange, Function<Map<String, String>, String> query)
+      throws IOException {
+    try {
+      if (!exchange.getRequestMethod().equals("GET")) {
+        send(exchange, 405, error("Only GET requests are supported"));
+        return;
+      }
+      Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+      if (!admission.tryAcquire()) {
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        send(exchange, 503, error("Too many requests in progress"));
+        return;
+      }
+      Future<String> answer;
+      try {
+        // the query releases its permit when it ends, even if this request has timed out by then
+        // with a permit taken, one of the maxInFlight query threads is always free to run it
+        answer = queries.submit(() -> {
+          try {
+            return query.apply(params);
+          } finally {
+            admission.release();
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        admission.release();
+        send(exchange, 503, error("Server is shutting down"));
+        return;
+      }
+      try {
+        send(exchange, 200, answer.get(timeoutMillis, TimeUnit.MILLISECONDS));
+      } catch (TimeoutException e) {
+        answer.cancel(true);
+        send(exchange, 504, error("Query took longer than " + timeoutMillis + " ms"));
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof NoSuchElementException)
+          send(exchange, 404, error(cause.getMessage()));
+        else if (cause instanceof IllegalArgumentException)
+          send(exchange, 400, error(cause.getMessage()));
+        else
+          send(exchange, 500, error(String.valueOf(cause)));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        send(exchange, 503, error("Server is shutting down"));
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private static void send(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+    exchange.getResponseBody().write(bytes);
+  }
+
+  // Splits a raw query string into its decoded parameters, keeping the first value of each name
+  private static Map<String, String> parseQuery(String query) {
+    Map<String, String> params = new HashMap<>();
+    if (query == null || query.isEmpty())
+      return params;
+    for (String pair : query.split("&")) {
+      int equals = pair.indexOf('=');
+      String name = equals < 0 ? pair : pair.substring(0, equals);
+      String value = equals < 0 ? "" : pair.substring(equals + 1);
+      params.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8),
+          URLDecoder.decode(value, StandardCharsets.UTF_8));
+    }
+    return params;
+  }
+
+  private static String param(Map<String, String> params, String name) {
+    String value = params.get(name);
+    if (value == null)
+      throw new IllegalArgumentException("Missing parameter " + name);
+    return value;
+  }
+
+  // Return a JSON object with one field holding a list of strings or numbers
+  static String json(String field, List<?> values) {
+    StringBuilder json = new StringBuilder("{");
+    appendString(json, field);
+    json.append(":[");
+    for (int i = 0; i < values.size(); i++) {
+      if (i > 0)
+        json.append(',');
+      Object value = values.get(i);
+      if (value instanceof Number)
+        json.append(value);
+      else
+        appendString(json, String.valueOf(value));
+    }
+    return json.append("]}").toString();
+  }
+
+  private static String error(String message) {
+    StringBuilder json = new StringBuilder("{");
+    appendString(json, "error");
+    json.append(':');
+    appendString(json, String.valueOf(message));
+    return json.append('}').toString();
+  }
+
+  private static void appendString(StringBuilder json, String value) {
+    json.append('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\')
+        json.append('\\').append(c);
+      else if (c < 0x20)
+        json.append(String.format("\\u%04x", (int) c));
+      else
+        json.append(c);
+    }
+    json.append('"');
+  }
+
+  /**
+   * Sends requests to a running server from many concurrent clients, and measures the latency of
+   * each request from the client's side.
+   */
+  public static class LoadGenerator {
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+        .executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+    private final URI base;
+
+    /**
+     * Constructor for a load generator that sends requests to one server.
+     *
+     * @param base the address of the server, like http://localhost:8080
+     */
+    public LoadGenerator(URI base) {
+      this.base = base;
+    }
+
+    /**
+     * Sends one GET request and waits for its response.
+     *
+     * @param pathAndQuery the path of the request, with its already encoded query
+     * @return the response to the request
+     * @throws IOException          if the request cannot be sent
+     * @throws InterruptedException if this thread is interrupted while waiting
+     */
+    public HttpResponse<String> get(String pathAndQuery) throws IOException, InterruptedException {
+      HttpRequest request = HttpRequest.newBuilder(base.resolve(pathAndQuery)).GET().build();
+      return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Sends requests from clients threads at once, where each client sends requestsPerClient
+     * requests one after another, cycling through the provided paths.
+     *
+     * @param paths             the paths and queries to request
+     * @param clients           the number of concurrent clients
+     * @param requestsPerClient the number of requests each client sends
+     * @return the latencies and status codes of all requests
+     * @throws InterruptedException if this thread is interrupted while waiting for the clients
+     */
+    public Report run(List<String> paths, int clients, int requestsPerClient)
+        throws InterruptedException {
+      long[] latencies = new long[clients * requestsPerClient];
+      int[] statuses = new int[latencies.length];
+      List<Thread> threads = new ArrayList<>();
+      for (int c = 0; c < clients; c++) {
+        int first = c * requestsPerClient;
+        threads.add(Thread.ofVirtual().start(() -> {
+          for (int i = first; i < first + requestsPerClient; i++) {
+            long begin = System.nanoTime();
+            try {
+              statuses[i] = get(paths.get(i % paths.size())).statusCode();
+            } catch (IOException e) {
+              statuses[i] = -1; // the connection failed
+            } catch (InterruptedException e) {
+              return;
+            }
+            latencies[i] = System.nanoTime() - begin;
+          }
+        }));
+      }
+      for (Thread thread : threads)
+        thread.join();
+      return new Report(latencies, statuses);
+    }
+  }
+
+  /**
+   * The latencies and status codes of the requests sent by one LoadGenerator run.
+   */
+  public static class Report {
+    private final long[] sortedLatencies; // in nanoseconds
+    private final Map<Integer, Integer> statusCounts = new HashMap<>();
+
+    private Report(long[] latencies, int[] statuses) {
+      this.sortedLatencies = latencies.clone();
+      Arrays.sort(sortedLatencies);
+      for (int status : statuses)
+        statusCounts.merge(status, 1, Integer::sum);
+    }
+
+    /**
+     * Return the latency that the provided fraction of requests did not exceed.
+     *
+     * @param fraction a fraction between 0 and 1, like 0.99 for the 99th percentile
+     * @return that latency in milliseconds
+     */
+    public double percentileMillis(double fraction) {
+      int index = (int) Math.ceil(fraction * sortedLatencies.length) - 1;
+      return sortedLatencies[Math.max(0, index)] / 1e6;
+    }
+
+    /**
+     * Return how many requests received a status code.
+     *
+     * @param status the HTTP status code, or -1 for requests whose connection failed
+     * @return the number of requests with that status
+     */
+    public int count(int status) {
+      return statusCounts.getOrDefault(status, 0);
+    }
+
+    @Override
+    public String toString() {
+      return String.format("%d requests, p50 %.2f ms, p99 %.2f ms, status counts %s",
+          sortedLatencies.length, percentileMillis(0.5), percentileMillis(0.99), statusCounts);
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    String filename = args.length > 0 ? args[0] : "campus.dot";
+    int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+    RouteServer server = new RouteServer();
+    server.getBackend().loadGraphData(filename);
+    System.out.println("Serving " + filename + " on port " + server.start(port));
+  }
+}
@@ -0,0 +1,122 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for RouteServer, against the campus map and against a backend whose queries only finish
+ * when the test lets them.
+ */
+public class RouteServerTests {
+
+  // Return a URL encoded query with parameters from and to
+  private static String pairQuery(String from, String to) {
+    return "?from=" + URLEncoder.encode(from, StandardCharsets.UTF_8) + "&to="
+        + URLEncoder.encode(to, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Tests every endpoint against the campus map, then runs a load test against a local server and
+   * reports its p50 and p99 latencies.
+   */
+  @Test
+  public void testServesCampusRoutes() throws IOException, InterruptedException {
+    // a generous timeout, so that a slow machine does not turn the load test into 504s
+    RouteServer server = new RouteServer(
+        new BackendImplementation(new DijkstraGraph<String, Double>()), 256, 30000);
+    server.getBackend().loadGraphData("campus.dot");
+    int port = server.start(0);
+    try {
+      RouteServer.LoadGenerator load =
+          new RouteServer.LoadGenerator(URI.create("http://localhost:" + port));
+      HttpResponse<String> response = load.get("/locations");
+      Assertions.assertEquals(200, response.statusCode());
+      Assertions.assertTrue(response.body().contains("\"Union South\""));
+      response = load.get("/path" + pairQuery("Union South", "Memorial Union"));
+      Assertions.assertEquals(200, response.statusCode());
+      Assertions.assertEquals(RouteServer.json("path",
+          server.getBackend().findShortestPath("Union South", "Memorial Union")), response.body());
+      response = load.get("/times" + pairQuery("Union South", "Memorial Union"));
+      Assertions.assertEquals(RouteServer.json("times",
+          server.getBackend().getTravelTimesOnPath("Union South", "Memorial Union")),
+          response.body());
+      response = load.get("/reachable?from=Union+South&seconds=200");
+      Assertions.assertEquals(RouteServer.json("locations",
+          server.getBackend().getReachableLocations("Union South", 200)), response.body());
+      Assertions.assertEquals(404, load.get("/path" + pairQuery("Nowhere", "Union South"))
+          .statusCode());
+      Assertions.assertEquals(400, load.get("/path?from=Union+South").statusCode());
+      Assertions.assertEquals(400, load.get("/reachable?from=Union+South&seconds=x").statusCode());
+
+      // many clients asking for routes between random locations
+      List<String> locations = server.getBackend().getListOfAllLocations();
+      Random rng = new Random(22);
+      List<String> paths = new ArrayList<>();
+      for (int i = 0; i < 500; i++) {
+        String from = locations.get(rng.nextInt(locations.size()));
+        String to = locations.get(rng.nextInt(locations.size()));
+        paths.add((i % 2 == 0 ? "/path" : "/times") + pairQuery(from, to));
+      }
+      RouteServer.Report report = load.run(paths, 64, 20);
+      System.out.println("RouteServer load test: " + report);
+      Assertions.assertEquals(64 * 20, report.count(200) + report.count(404));
+    } finally {
+      server.stop();
+    }
+  }
+
+  /**
+   * Tests that slow queries time out with 504 while still holding their slots, that requests are
+   * rejected with 503 while every slot is taken, and that the server recovers once they finish.
+   */
+  @Test
+  public void testTimeoutAndAdmission() throws IOException, InterruptedException {
+    CountDownLatch slow = new CountDownLatch(1);
+    AtomicInteger finished = new AtomicInteger();
+    BackendImplementation backend = new BackendImplementation(new DijkstraGraph<String, Double>()) {
+      @Override
+      public List<String> findShortestPath(String startLocation, String endLocation) {
+        // like a long search, this ignores the interrupt of a timed out request
+        boolean waiting = true;
+        while (waiting) {
+          try {
+            slow.await();
+            waiting = false;
+          } catch (InterruptedException e) {
+            // keep waiting
+          }
+        }
+        finished.incrementAndGet();
+        return List.of(startLocation, endLocation);
+      }
+    };
+    RouteServer server = new RouteServer(backend, 2, 200);
+    int port = server.start(0);
+    try {
+      RouteServer.LoadGenerator load =
+          new RouteServer.LoadGenerator(URI.create("http://localhost:" + port));
+      Assertions.assertEquals(504, load.get("/path?from=A&to=B").statusCode());
+      Assertions.assertEquals(504, load.get("/path?from=A&to=B").statusCode());
+      // both timed out queries still run, so there is no slot for a third
+      HttpResponse<String> rejected = load.get("/path?from=A&to=B");
+      Assertions.assertEquals(503, rejected.statusCode());
+      Assertions.assertEquals("1", rejected.headers().firstValue("Retry-After").orElse(null));
+      slow.countDown();
+      while (finished.get() < 2)
+        Thread.sleep(10);
+      HttpResponse<String> response = load.get("/path?from=A&to=B");
+      Assertions.assertEquals(200, response.statusCode());
+      Assertions.assertEquals("{\"path\":[\"A\",\"B\"]}", response.body());
+    } finally {
+      server.stop();
+    }
+  }
+}
@@ -0,0 +1,192 @@
+import java.util.Arrays;
+
+/**
+ * The per-node working memory of a shortest path search: the best known cost (dist) and
+ * predecessor (pred) of every node, along with the frontier of queued nodes. A workspace is reused
+ * by back-to-back searches instead of being allocated for each one. Rather than clearing its arrays
+ * between searches, each search starts a new generation, and a node's dist and pred entries only
+ * count as set when that node's stamp matches the current generation. Starting a search therefore
+ * takes time proportional to the number of nodes the previous search touched, not to the size of
+ * the graph.
+ *
+ * Each thread has its own pooled workspace, which is returned by forCurrentThread.
+ */
+public class SearchWorkspace {
+
+  // one workspace per thread, so that concurrent searches never share working memory
+  private static final ThreadLocal<SearchWorkspace> POOL =
+      ThreadLocal.withInitial(SearchWorkspace::new);
+
+  protected double[] dist; // cost of the best known path to each node
+  protected int[] pred; // predecessor id along that path, or -1 at the start node
+  protected int[] stamp; // generation in which each node's dist and pred were last set
+  protected int generation = 0;
+  protected int settledCount = 0; // number of nodes settled by the current search
+  protected IndexedMinHeap frontier;
+  protected SearchWorkspace companion = null; // second workspace for two-frontier searches
+
+  /**
+   * Creates a workspace with a small default capacity, that grows as larger graphs are searched.
+   */
+  public SearchWorkspace() {
+    this(16);
+  }
+
+  /**
+   * Creates a workspace for graphs with up to capacity nodes.
+   *
+   * @param capacity the number of node ids this workspace initially holds entries for
+   */
+  public SearchWorkspace(int capacity) {
+    dist = new double[capacity];
+    pred = new int[capacity];
+    stamp = new int[capacity];
+    frontier = new IndexedMinHeap(capacity);
+  }
+
+  /**
+   * Return the pooled workspace of the calling thread.
+   *
+   * @return the workspace owned by the current thread
+   */
+  public static SearchWorkspace forCurrentThread() {
+    return POOL.get();
+  }
+
+  /**
+   * Return a second workspace that belongs to the same thread as this one, for searches that grow
+   * two frontiers at once (like bidirectional search, which searches backwards from the end node).
+   *
+   * @return the companion of this workspace
+   */
+  public SearchWorkspace companion() {
+    if (companion == null)
+      companion = new SearchWorkspace(stamp.length);
+    return companion;
+  }
+
+  /**
+   * Prepares this workspace for a new search over a graph with nodeCount nodes: afterwards no node
+   * is reached and the frontier is empty.
+   *
+   * @param nodeCount the number of node ids in the graph that will be searched
+   */
+  public void begin(int nodeCount) {
+    if (nodeCount > stamp.length) {
+      // grow by at least half so that slowly growing graphs do not reallocate on every search
+      int capacity = Math.max(nodeCount, stamp.length + (stamp.length >> 1));
+      dist = new double[capacity];
+      pred = new int[capacity];
+      stamp = new int[capacity];
+      generation = 0;
+    }
+    frontier.ensureCapacity(nodeCount);
+    frontier.clear();
+    settledCount = 0;
+    if (++generation == Integer.MAX_VALUE) {
+      // after about two billion searches, wipe the stamps once instead of letting them wrap around
+      Arrays.fill(stamp, 0);
+      generation = 1;
+    }
+  }
+
+  /**
+   * Check whether a path to a node has been found during the current search.
+   *
+   * @param id the id of the node
+   * @return true if this node has been reached, or false otherwise
+   */
+  public boolean isReached(int id) {
+    return stamp[id] == generation;
+  }
+
+  /**
+   * Return the cost of the best known path to a node during the current search.
+   *
+   * @param id the id of the node
+   * @return the cost of the best path to this node, or positive infinity when it is not reached
+   */
+  public double dist(int id) {
+    return stamp[id] == generation ? dist[id] : Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Return the predecessor of a reached node along the best known path to it.
+   *
+   * @param id the id of a reached node
+   * @return the id of its predecessor, or -1 when it is the start node
+   */
+  public int pred(int id) {
+    return pred[id];
+  }
+
+  /**
+   * Records a new best path to a node, and queues or re-prioritizes that node in the frontier.
+   *
+   * @param id          the id of the node
+   * @param cost        the cost of the new best path to this node
+   * @param predecessor the id of this node's predecessor along that path, or -1 at the start node
+   */
+  public void reach(int id, double cost, int predecessor) {
+    stamp[id] = generation;
+    dist[id] = cost;
+    pred[id] = predecessor;
+    frontier.insertOrDecrease(id, cost);
+  }
+
+  /**
+   * Records a new best path to a node, and queues or re-prioritizes that node in the frontier with
+   * a priority that differs from its cost, such as the cost plus an A* estimate of the remaining
+   * cost.
+   *
+   * @param id          the id of the node
+   * @param cost        the cost of the new best path to this node
+   * @param predecessor the id of this node's predecessor along that path, or -1 at the start node
+   * @param priority    the priority of this node within the frontier
+   */
+  public void reach(int id, double cost, int predecessor, double priority) {
+    stamp[id] = generation;
+    dist[id] = cost;
+    pred[id] = predecessor;
+    frontier.insertOrDecrease(id, priority);
+  }
+
+  /**
+   * Removes the node with the lowest priority from the frontier, and counts it as settled.
+   *
+   * @return the id of the settled node
+   */
+  public int settle() {
+    settledCount++;
+    return frontier.poll();
+  }
+
+  /**
+   * Return the number of nodes the current (or most recent) search has settled. Searches that use
+   * this workspace's companion count the nodes settled by both workspaces here.
+   *
+   * @return the number of settled nodes
+   */
+  public int getSettledCount() {
+    return settledCount;
+  }
+
+  /**
+   * Return the array of predecessor ids. Entries are only meaningful for reached nodes, and the
+   * chain of predecessors from any reached node only passes through reached nodes.
+   *
+   * @return the predecessor array of this workspace
+   */
+  public int[] predecessors() {
+    return pred;
+  }
+
+  /**
+   * Return the frontier of nodes queued during the current search.
+   *
+   * @return the frontier of this workspace
+   */
+  public IndexedMinHeap frontier() {
+    return frontier;
+  }
+}
@@ -0,0 +1,29 @@
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for SearchWorkspace, which resets its arrays between searches by generation stamps.
+ */
+public class SearchWorkspaceTests {
+
+  /**
+   * Tests that beginning a new search forgets every node reached by the previous one, without the
+   * workspace clearing its arrays.
+   */
+  @Test
+  public void testGenerationsReset() {
+    SearchWorkspace test = new SearchWorkspace(2);
+    test.begin(3);
+    test.reach(0, 0.0, -1);
+    test.reach(2, 5.0, 0);
+    Assertions.assertTrue(test.isReached(2));
+    Assertions.assertEquals(5.0, test.dist(2));
+    Assertions.assertEquals(0, test.pred(2));
+    Assertions.assertEquals(2, test.frontier().getSize());
+    test.begin(3);
+    Assertions.assertFalse(test.isReached(0));
+    Assertions.assertFalse(test.isReached(2));
+    Assertions.assertEquals(Double.POSITIVE_INFINITY, test.dist(2));
+    Assertions.assertTrue(test.frontier().isEmpty());
+  }
+}
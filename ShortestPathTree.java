@@ -0,0 +1,86 @@
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The result of one complete run of Dijkstra's algorithm from a single source node: the cost of the
+ * shortest path from the source to every node of a frozen graph, and each node's predecessor along
+ * that path. Looking up the path or cost to any target takes time proportional to the length of the
+ * path, without searching the graph again.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class ShortestPathTree<NodeType> {
+
+  protected final CsrGraph<NodeType> graph;
+  protected final int source;
+  protected final double[] dist; // cost from source to each node, or infinity when unreachable
+  protected final int[] pred; // predecessor of each node on its shortest path, or -1
+
+  /**
+   * Creates a tree from the results of a complete search.
+   *
+   * @param graph  the frozen graph that was searched
+   * @param source the id of the node the search started from
+   * @param dist   the cost of the shortest path to each node, or infinity when unreachable
+   * @param pred   the predecessor id of each node, or -1 for the source and unreachable nodes
+   */
+  public ShortestPathTree(CsrGraph<NodeType> graph, int source, double[] dist, int[] pred) {
+    this.graph = graph;
+    this.source = source;
+    this.dist = dist;
+    this.pred = pred;
+  }
+
+  /**
+   * Return the data in the source node of this tree.
+   *
+   * @return the data item in the node every path in this tree starts from
+   */
+  public NodeType getSource() {
+    return graph.data(source);
+  }
+
+  /**
+   * Check whether the source can reach a node.
+   *
+   * @param target the data item in the destination node
+   * @return true if there is a path from the source to target, or false otherwise
+   */
+  public boolean isReachable(NodeType target) {
+    int id = graph.idOf(target);
+    return id >= 0 && dist[id] != Double.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Returns the cost of the shortest path from the source to a node.
+   *
+   * @param target the data item in the destination node for the path
+   * @return the cost of that path, or -1 when there is no such path
+   */
+  public double costTo(NodeType target) {
+    int id = graph.idOf(target);
+    if (id < 0 || dist[id] == Double.POSITIVE_INFINITY)
+      return -1;
+    return dist[id];
+  }
+
+  /**
+   * Returns the list of data values from nodes along the shortest path from the source to a node.
+   *
+   * @param target the data item in the destination node for the path
+   * @return list of data items from nodes along this path, starting with the source
+   * @throws NoSuchElementException when there is no path from the source to target
+   */
+  public List<NodeType> pathTo(NodeType target) {
+    int id = graph.idOf(target);
+    if (id < 0 || dist[id] == Double.POSITIVE_INFINITY)
+      throw new NoSuchElementException("Invalid Path");
+    int length = 0;
+    for (int node = id; node != -1; node = pred[node])
+      length++;
+    int[] path = new int[length];
+    for (int node = id; node != -1; node = pred[node])
+      path[--length] = node;
+    return graph.pathData(path);
+  }
+}
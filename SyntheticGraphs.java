@@ -0,0 +1,123 @@
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Generators for large synthetic graphs that resemble a campus or city walking network, for
+ * benchmarks that need more nodes than campus.dot has.
+ */
+public class SyntheticGraphs {
+
+  private SyntheticGraphs() {
+  }
+
+  /**
+   * Generates a random geometric graph: nodeCount nodes placed uniformly at random in a square,
+   * with a pair of opposite edges between every two nodes that are closer than a radius chosen to
+   * give each node about averageDegree neighbors. Each edge's weight is the distance between its
+   * nodes, in units where the square is sqrt(nodeCount) wide, so that typical edge weights stay
+   * near 1 regardless of the size of the graph.
+   *
+   * @param nodeCount     the number of nodes, stored as the Integers 0 to nodeCount - 1
+   * @param averageDegree the expected number of neighbors of each node
+   * @param seed          the seed of the random placement, so that runs are repeatable
+   * @return the generated graph
+   */
+  public static DijkstraGraph<Integer, Double> randomGeometric(int nodeCount, double averageDegree,
+      long seed) {
+    return randomGeometric(new DijkstraGraph<Integer, Double>(), nodeCount, averageDegree, seed);
+  }
+
+  /**
+   * Generates a random geometric graph like randomGeometric(nodeCount, averageDegree, seed), into
+   * the provided (empty) graph.
+   *
+   * @param graph         the graph to insert nodes and edges into
+   * @param nodeCount     the number of nodes, stored as the Integers 0 to nodeCount - 1
+   * @param averageDegree the expected number of neighbors of each node
+   * @param seed          the seed of the random placement, so that runs are repeatable
+   * @return graph, after inserting the generated nodes and edges
+   */
+  public static <G extends GraphADT<Integer, Double>> G randomGeometric(G graph, int nodeCount,
+      double averageDegree, long seed) {
+    Random rng = new Random(seed);
+    double side = Math.sqrt(nodeCount);
+    double[] x = new double[nodeCount];
+    double[] y = new double[nodeCount];
+    for (int i = 0; i < nodeCount; i++) {
+      x[i] = rng.nextDouble() * side;
+      y[i] = rng.nextDouble() * side;
+      graph.insertNode(i);
+    }
+    // with one node per unit of area, a circle of this radius holds averageDegree nodes on average
+    double radius = Math.sqrt(averageDegree / Math.PI);
+    // bucket the nodes into a grid of radius-sized cells, so only neighboring cells are compared
+    int cells = Math.max(1, (int) (side / radius));
+    ArrayList<ArrayList<Integer>> grid = new ArrayList<>(cells * cells);
+    for (int c = 0; c < cells * cells; c++)
+      grid.add(new ArrayList<>());
+    for (int i = 0; i < nodeCount; i++)
+      grid.get(cell(x[i], side, cells) * cells + cell(y[i], side, cells)).add(i);
+    for (int i = 0; i < nodeCount; i++) {
+      int cx = cell(x[i], side, cells);
+      int cy = cell(y[i], side, cells);
+      for (int gx = Math.max(0, cx - 1); gx <= Math.min(cells - 1, cx + 1); gx++)
+        for (int gy = Math.max(0, cy - 1); gy <= Math.min(cells - 1, cy + 1); gy++)
+          for (int j : grid.get(gx * cells + gy)) {
+            double distance = Math.hypot(x[i] - x[j], y[i] - y[j]);
+            if (j != i && distance < radius)
+              graph.insertEdge(i, j, distance);
+          }
+    }
+    return graph;
+  }
+
+  /**
+   * Generates a square grid graph, like the streets of a city laid out in blocks: nodeCount nodes
+   * (rounded down to a square number) with a pair of opposite edges between every two horizontally
+   * or vertically adjacent nodes. Each edge's weight is random between 1 and 2, so that shortest
+   * paths are unique and searches do not degenerate into ties.
+   *
+   * @param nodeCount the number of nodes, stored as the Integers 0 to side * side - 1 in row order
+   * @param seed      the seed of the random weights, so that runs are repeatable
+   * @return the generated graph
+   */
+  public static DijkstraGraph<Integer, Double> grid(int nodeCount, long seed) {
+    return grid(new DijkstraGraph<Integer, Double>(), nodeCount, seed);
+  }
+
+  /**
+   * Generates a square grid graph like grid(nodeCount, seed), into the provided (empty) graph.
+   *
+   * @param graph     the graph to insert nodes and edges into
+   * @param nodeCount the number of nodes, stored as the Integers 0 to side * side - 1 in row order
+   * @param seed      the seed of the random weights, so that runs are repeatable
+   * @return graph, after inserting the generated nodes and edges
+   */
+  public static <G extends GraphADT<Integer, Double>> G grid(G graph, int nodeCount, long seed) {
+    Random rng = new Random(seed);
+    int side = (int) Math.sqrt(nodeCount);
+    for (int i = 0; i < side * side; i++)
+      graph.insertNode(i);
+    for (int row = 0; row < side; row++) {
+      for (int column = 0; column < side; column++) {
+        int i = row * side + column;
+        if (column + 1 < side) {
+          double weight = 1 + rng.nextDouble();
+          graph.insertEdge(i, i + 1, weight);
+          graph.insertEdge(i + 1, i, weight);
+        }
+        if (row + 1 < side) {
+          double weight = 1 + rng.nextDouble();
+          graph.insertEdge(i, i + side, weight);
+          graph.insertEdge(i + side, i, weight);
+        }
+      }
+    }
+    return graph;
+  }
+
+  // Return the grid cell that a coordinate falls into
+  private static int cell(double coordinate, double side, int cells) {
+    return Math.min(cells - 1, (int) (coordinate / side * cells));
+  }
+}
@@ -160,8 +160,9 @@ public class Tester extends ApplicationTest {
     Assertions.assertEquals(expected.toString(), actual.toString());
 
     // Test reachable locations from "Atmospheric, Oceanic and Space Sciences" within 150 seconds
+    // (locations are listed in order of arrival time)
     expected = Arrays.asList(
-        "Computer Sciences and Statistics, Rust-Schreiner Hall, Weeks Hall for Geological Sciences, Vantage Point");
+        "Rust-Schreiner Hall, Weeks Hall for Geological Sciences, Computer Sciences and Statistics, Vantage Point");
     actual = backend.getReachableLocations("Atmospheric, Oceanic and Space Sciences", 150);
     Assertions.assertEquals(expected.toString(), actual.toString());
   }
@@ -0,0 +1,111 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A table of shortest path costs from each of a list of source nodes (rows) to each of a list of
+ * target nodes (columns). Costs are stored in a primitive double[][] indexed by row and column, and
+ * pairs with no path between them have a cost of -1.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class TravelTimeMatrix<NodeType> {
+
+  protected final List<NodeType> rows;
+  protected final List<NodeType> columns;
+  // values[row][column] is the cost from rows[row] to columns[column]
+  protected final double[][] values;
+
+  /**
+   * Creates a matrix of costs.
+   *
+   * @param rows    the source node of each row
+   * @param columns the target node of each column
+   * @param values  the cost from each row's source to each column's target, or -1 when unreachable
+   */
+  public TravelTimeMatrix(List<NodeType> rows, List<NodeType> columns, double[][] values) {
+    this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+    this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+    this.values = values;
+  }
+
+  /**
+   * Return the source nodes, in row order.
+   *
+   * @return the data item in the source node of each row
+   */
+  public List<NodeType> getRows() {
+    return rows;
+  }
+
+  /**
+   * Return the target nodes, in column order.
+   *
+   * @return the data item in the target node of each column
+   */
+  public List<NodeType> getColumns() {
+    return columns;
+  }
+
+  /**
+   * Return the row of a source node.
+   *
+   * @param source the data item in a source node
+   * @return the index of the first row for that source
+   * @throws NoSuchElementException if source is not one of the rows
+   */
+  public int rowIndex(NodeType source) {
+    int index = rows.indexOf(source);
+    if (index < 0)
+      throw new NoSuchElementException("No row for " + source);
+    return index;
+  }
+
+  /**
+   * Return the column of a target node.
+   *
+   * @param target the data item in a target node
+   * @return the index of the first column for that target
+   * @throws NoSuchElementException if target is not one of the columns
+   */
+  public int columnIndex(NodeType target) {
+    int index = columns.indexOf(target);
+    if (index < 0)
+      throw new NoSuchElementException("No column for " + target);
+    return index;
+  }
+
+  /**
+   * Return the cost of the shortest path for one row and column.
+   *
+   * @param row    the index of the source's row
+   * @param column the index of the target's column
+   * @return the cost from that source to that target, or -1 when there is no path
+   */
+  public double get(int row, int column) {
+    return values[row][column];
+  }
+
+  /**
+   * Return the cost of the shortest path between a source and a target.
+   *
+   * @param source the data item in a source node
+   * @param target the data item in a target node
+   * @return the cost from source to target, or -1 when there is no path
+   * @throws NoSuchElementException if source is not a row or target is not a column
+   */
+  public double get(NodeType source, NodeType target) {
+    return values[rowIndex(source)][columnIndex(target)];
+  }
+
+  /**
+   * Return the underlying array of costs, indexed by row and then column. This array is shared with
+   * the matrix and should not be modified.
+   *
+   * @return the cost array of this matrix
+   */
+  public double[][] getValues() {
+    return values;
+  }
+}
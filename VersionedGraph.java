@@ -0,0 +1,678 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * A directed graph with Double edge weights that many threads can search while another thread
+ * changes it, for example to close paths on a live campus map. The graph is a sequence of
+ * immutable versions, and the current version is published through an AtomicReference. A reader
+ * pins the version that is current when its query starts and searches it to the end without
+ * taking any lock, so queries never wait for writers and never see half of an update.
+ *
+ * Writers take turns, and each one builds the next version from the current one by copy on write.
+ * Nodes are stored in chunks of CHUNK_SIZE, and every node holds immutable arrays of its
+ * successors, weights and predecessors. A change copies only the nodes it touches, the chunks that
+ * hold them and the small array of chunks, so the new version shares every other chunk with the
+ * versions before it. Several changes can be published together as one version with update.
+ *
+ * Each data item keeps the id its node first got, even after that node is removed, so every
+ * version shares one ConcurrentHashtableMap from data items to ids. A version only counts a node
+ * as present when its own chunks hold that id.
+ *
+ * @param NodeType is the data type stored at each graph node
+ */
+public class VersionedGraph<NodeType> implements GraphADT<NodeType, Double> {
+
+  private static final int CHUNK_BITS = 10;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+  // id of the node each data item was first inserted as, shared by every version
+  protected final MapADT<NodeType, Integer> ids = new ConcurrentHashtableMap<>();
+  protected final AtomicReference<Version<NodeType>> current;
+  private final Object writeLock = new Object();
+  private int nextId = 0; // the id the next new data item gets, guarded by writeLock
+
+  /**
+   * Constructor for an empty graph.
+   */
+  public VersionedGraph() {
+    current = new AtomicReference<>(new Version<>(ids, new Node[0][], 0, 0, 0));
+  }
+
+  /**
+   * Return the current version of this graph. The version never changes, so a caller can run any
+   * number of queries against it and get answers that agree with each other.
+   *
+   * @return the most recently published version
+   */
+  public Version<NodeType> currentVersion() {
+    return current.get();
+  }
+
+  /**
+   * Applies a group of changes to this graph and publishes them as a single version, so readers
+   * see either none or all of them. Other writers wait until the changes are published. If changes
+   * throws an exception nothing is published, and the exception is passed on.
+   *
+   * @param changes makes its changes through the Editor it is given, which is only valid until
+   *                changes returns
+   * @return the version holding these changes, which is the previous version if nothing changed
+   */
+  public Version<NodeType> update(Consumer<Editor> changes) {
+    synchronized (writeLock) {
+      Editor editor = new Editor(current.get());
+      changes.accept(editor);
+      return editor.publish();
+    }
+  }
+
+  // Applies one change, publishing a new version when the graph changed
+  private boolean apply(Predicate<Editor> change) {
+    synchronized (writeLock) {
+      Editor editor = new Editor(current.get());
+      boolean result = change.test(editor);
+      editor.publish();
+      return result;
+    }
+  }
+
+  @Override
+  public boolean insertNode(NodeType data) {
+    return apply(editor -> editor.insertNode(data));
+  }
+
+  @Override
+  public boolean removeNode(NodeType data) {
+    return apply(editor -> editor.removeNode(data));
+  }
+
+  @Override
+  public boolean containsNode(NodeType data) {
+    return current.get().containsNode(data);
+  }
+
+  @Override
+  public int getNodeCount() {
+    return current.get().getNodeCount();
+  }
+
+  @Override
+  public boolean insertEdge(NodeType pred, NodeType succ, Double weight) {
+    return apply(editor -> editor.insertEdge(pred, succ, weight));
+  }
+
+  @Override
+  public boolean removeEdge(NodeType pred, NodeType succ) {
+    return apply(editor -> editor.removeEdge(pred, succ));
+  }
+
+  @Override
+  public boolean containsEdge(NodeType pred, NodeType succ) {
+    return current.get().containsEdge(pred, succ);
+  }
+
+  @Override
+  public Double getEdge(NodeType pred, NodeType succ) {
+    return current.get().getEdge(pred, succ);
+  }
+
+  @Override
+  public int getEdgeCount() {
+    return current.get().getEdgeCount();
+  }
+
+  /**
+   * Returns the list of data values from nodes along the shortest path from the node with the
+   * provided start value through the node with the provided end value, in the current version.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end   the data item in the destination node for the path
+   * @return list of data item from node along this shortest path
+   * @throws NoSuchElementException when no path from start to end is found or when either start or
+   *                                end data do not correspond to a graph node
+   */
+  @Override
+  public List<NodeType> shortestPathData(NodeType start, NodeType end) {
+    return current.get().shortestPathData(start, end);
+  }
+
+  /**
+   * Returns the cost of the shortest path from the node containing the start data to the node
+   * containing the end data, in the current version.
+   *
+   * @param start the data item in the starting node for the path
+   * @param end   the data item in the destination node for the path
+   * @return the cost of the shortest path between these nodes, or -1 when there is no such path
+   */
+  @Override
+  public double shortestPathCost(NodeType start, NodeType end) {
+    return current.get().shortestPathCost(start, end);
+  }
+
+  // One node of a version: its data and the edges leaving and entering it. Nodes are never changed
+  // once a version holding them is published; a change replaces the node with a modified copy.
+  private static final class Node {
+    private static final int[] NO_IDS = new int[0];
+    private static final double[] NO_WEIGHTS = new double[0];
+
+    private final Object data;
+    private final int[] successors;
+    private final double[] weights; // weight of the edge to each successor
+    private final int[] predecessors;
+
+    private Node(Object data, int[] successors, double[] weights, int[] predecessors) {
+      this.data = data;
+      this.successors = successors;
+      this.weights = weights;
+      this.predecessors = predecessors;
+    }
+
+    private Node(Object data) {
+      this(data, NO_IDS, NO_WEIGHTS, NO_IDS);
+    }
+
+    // Return the position of v among the successors, or -1 if there is no edge to v
+    private int findSuccessor(int v) {
+      for (int i = 0; i < successors.length; i++)
+        if (successors[i] == v)
+          return i;
+      return -1;
+    }
+
+    private Node withSuccessor(int v, double weight) {
+      int edge = findSuccessor(v);
+      if (edge >= 0) {
+        double[] changed = weights.clone();
+        changed[edge] = weight;
+        return new Node(data, successors, changed, predecessors);
+      }
+      int[] targets = Arrays.copyOf(successors, successors.length + 1);
+      double[] costs = Arrays.copyOf(weights, weights.length + 1);
+      targets[successors.length] = v;
+      costs[weights.length] = weight;
+      return new Node(data, targets, costs, predecessors);
+    }
+
+    private Node withoutSuccessor(int v) {
+      int edge = findSuccessor(v);
+      int last = successors.length - 1;
+      int[] targets = Arrays.copyOf(successors, last);
+      double[] costs = Arrays.copyOf(weights, last);
+      if (edge < last) {
+        targets[edge] = successors[last];
+        costs[edge] = weights[last];
+      }
+      return new Node(data, targets, costs, predecessors);
+    }
+
+    private Node withPredecessor(int u) {
+      int[] sources = Arrays.copyOf(predecessors, predecessors.length + 1);
+      sources[predecessors.length] = u;
+      return new Node(data, successors, weights, sources);
+    }
+
+    private Node withoutPredecessor(int u) {
+      int last = predecessors.length - 1;
+      int[] sources = Arrays.copyOf(predecessors, last);
+      for (int i = 0; i < last; i++)
+        if (predecessors[i] == u)
+          sources[i] = predecessors[last];
+      return new Node(data, successors, weights, sources);
+    }
+  }
+
+  /**
+   * One immutable version of a VersionedGraph. Every method of a version answers from that version
+   * alone, however the graph has changed since it was published, and any number of threads can
+   * search a version at once. Methods that would change the graph throw
+   * UnsupportedOperationException; change the VersionedGraph it came from instead.
+   *
+   * @param NodeType is the data type stored at each graph node
+   */
+  public static final class Version<NodeType> implements GraphADT<NodeType, Double> {
+    private final MapADT<NodeType, Integer> ids;
+    private final Node[][] chunks; // node with each id, or null when that id is not in this version
+    private final int idLimit; // every node of this version has an id below idLimit
+    private final int nodeCount;
+    private final int edgeCount;
+    private final long number;
+
+    private Version(MapADT<NodeType, Integer> ids, Node[][] chunks, int nodeCount, int edgeCount,
+        long number) {
+      this.ids = ids;
+      this.chunks = chunks;
+      this.idLimit = chunks.length << CHUNK_BITS;
+      this.nodeCount = nodeCount;
+      this.edgeCount = edgeCount;
+      this.number = number;
+    }
+
+    /**
+     * Return the number of this version, which counts the versions published before it.
+     *
+     * @return 0 for the empty graph, and one more for each version after it
+     */
+    public long getNumber() {
+      return number;
+    }
+
+    private Node node(int id) {
+      return id < 0 || id >= idLimit ? null : chunks[id >>> CHUNK_BITS][id & (CHUNK_SIZE - 1)];
+    }
+
+    // Return the id of the node containing data in this version, or -1 if there is none
+    private int idOf(NodeType data) {
+      // ids are never removed from the map, so a key seen by containsKey can always be read
+      if (data == null || !ids.containsKey(data))
+        return -1;
+      int id = ids.get(data);
+      return node(id) == null ? -1 : id;
+    }
+
+    @Override
+    public boolean insertNode(NodeType data) {
+      throw new UnsupportedOperationException("Graph versions are read only");
+    }
+
+    @Override
+    public boolean removeNode(NodeType data) {
+      throw new UnsupportedOperationException("Graph versions are read only");
+    }
+
+    @Override
+    public boolean containsNode(NodeType data) {
+      return idOf(data) >= 0;
+    }
+
+    @Override
+    public int getNodeCount() {
+      return nodeCount;
+    }
+
+    @Override
+    public boolean insertEdge(NodeType pred, NodeType succ, Double weight) {
+      throw new UnsupportedOperationException("Graph versions are read only");
+    }
+
+    @Override
+    public boolean removeEdge(NodeType pred, NodeType succ) {
+      throw new UnsupportedOperationException("Graph versions are read only");
+    }
+
+    @Override
+    public boolean containsEdge(NodeType pred, NodeType succ) {
+      Node u = node(idOf(pred));
+      return u != null && u.findSuccessor(idOf(succ)) >= 0;
+    }
+
+    @Override
+    public Double getEdge(NodeType pred, NodeType succ) {
+      Node u = node(idOf(pred));
+      int edge = u == null ? -1 : u.findSuccessor(idOf(succ));
+      if (edge < 0)
+        throw new NoSuchElementException("No edge from " + pred + " to " + succ);
+      return u.weights[edge];
+    }
+
+    @Override
+    public int getEdgeCount() {
+      return edgeCount;
+    }
+
+    /**
+     * Returns the list of data values from nodes along the shortest path from the node with the
+     * provided start value through the node with the provided end value.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return list of data item from node along this shortest path
+     * @throws NoSuchElementException when no path from start to end is found or when either start
+     *                                or end data do not correspond to a graph node
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<NodeType> shortestPathData(NodeType start, NodeType end) {
+      SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+      int endId = computeShortestPath(idOf(start), idOf(end), workspace);
+      if (endId < 0)
+        throw new NoSuchElementException("Invalid Path");
+      List<NodeType> path = new ArrayList<>();
+      for (int id = endId; id != -1; id = workspace.pred(id))
+        path.add((NodeType) node(id).data);
+      Collections.reverse(path);
+      return path;
+    }
+
+    /**
+     * Returns the cost of the shortest path from the node containing the start data to the node
+     * containing the end data.
+     *
+     * @param start the data item in the starting node for the path
+     * @param end   the data item in the destination node for the path
+     * @return the cost of the shortest path between these nodes, or -1 when there is no such path
+     */
+    @Override
+    public double shortestPathCost(NodeType start, NodeType end) {
+      SearchWorkspace workspace = SearchWorkspace.forCurrentThread();
+      int endId = computeShortestPath(idOf(start), idOf(end), workspace);
+      return endId < 0 ? -1 : workspace.dist(endId);
+    }
+
+    // Runs Dijkstra's algorithm over this version, from the node with id start until the node with
+    // id end is settled, and return end, or -1 when either is missing or end cannot be reached
+    private int computeShortestPath(int start, int end, SearchWorkspace workspace) {
+      if (start < 0 || end < 0)
+        return -1;
+      workspace.begin(idLimit);
+      IndexedMinHeap frontier = workspace.frontier();
+      workspace.reach(start, 0, -1);
+      while (!frontier.isEmpty()) {
+        int u = workspace.settle();
+        if (u == end)
+          return end;
+        double costU = workspace.dist(u);
+        Node node = node(u);
+        int[] targets = node.successors;
+        double[] costs = node.weights;
+        for (int i = 0; i < targets.length; i++) {
+          double cost = costU + costs[i];
+          if (cost < workspace.dist(targets[i]))
+            workspace.reach(targets[i], cost, u);
+        }
+      }
+      return -1;
+    }
+  }
+
+  /**
+   * Builds the next version of a VersionedGraph from changes passed to update. The first change to
+   * a chunk copies that chunk, and later changes in the same update modify the copy, which no
+   * reader can see until the update is published.
+   */
+  public class Editor {
+    private final Version<NodeType> base;
+    private Node[][] chunks;
+    private final BitSet copied = new BitSet(); // chunks that this editor already copied
+    private boolean copiedChunks = false; // whether chunks is this editor's own array yet
+    private int nodeCount;
+    private int edgeCount;
+    private boolean changed = false;
+    private boolean published = false;
+
+    private Editor(Version<NodeType> base) {
+      this.base = base;
+      this.chunks = base.chunks;
+      this.nodeCount = base.nodeCount;
+      this.edgeCount = base.edgeCount;
+    }
+
+    private Node node(int id) {
+      return id < 0 || id >>> CHUNK_BITS >= chunks.length ? null
+          : chunks[id >>> CHUNK_BITS][id & (CHUNK_SIZE - 1)];
+    }
+
+    private int idOf(NodeType data) {
+      if (data == null || !ids.containsKey(data))
+        return -1;
+      int id = ids.get(data);
+      return node(id) == null ? -1 : id;
+    }
+
+    // Stores node as the node with an id, copying the chunk that holds it first if needed
+    private void set(int id, Node node) {
+      if (published)
+        throw new IllegalStateException("An Editor cannot be used after its update returns");
+      int chunk = id >>> CHUNK_BITS;
+      if (!copiedChunks) {
+        chunks = chunks.clone();
+        copiedChunks = true;
+      }
+      // add empty chunks up to the one holding id (ids of an update that failed leave gaps)
+      while (chunk >= chunks.length) {
+        chunks = Arrays.copyOf(chunks, chunks.length + 1);
+        chunks[chunks.length - 1] = new Node[CHUNK_SIZE];
+        copied.set(chunks.length - 1);
+      }
+      if (!copied.get(chunk)) {
+        chunks[chunk] = chunks[chunk].clone();
+        copied.set(chunk);
+      }
+      chunks[chunk][id & (CHUNK_SIZE - 1)] = node;
+      changed = true;
+    }
+
+    /**
+     * Insert a new node into the next version.
+     *
+     * @param data the data item stored in the new node
+     * @return true if the data is unique and can be inserted into a new node, or false if this data
+     *         is already in the graph
+     * @throws NullPointerException if data is null
+     */
+    public boolean insertNode(NodeType data) {
+      if (data == null)
+        throw new NullPointerException("Cannot insert null data into graph");
+      int id;
+      if (ids.containsKey(data)) {
+        id = ids.get(data);
+        if (node(id) != null)
+          return false;
+      } else {
+        id = nextId++;
+        ids.put(data, id);
+      }
+      set(id, new Node(data));
+      nodeCount++;
+      return true;
+    }
+
+    /**
+     * Remove a node and every edge leaving or entering it from the next version.
+     *
+     * @param data the data item stored in the node to be removed
+     * @return true if a vertex with data is found and removed, or false if that data value is not
+     *         found in the graph
+     */
+    public boolean removeNode(NodeType data) {
+      int v = idOf(data);
+      if (v < 0)
+        return false;
+      Node node = node(v);
+      // self loops appear among both the successors and the predecessors, but count only once
+      int loops = 0;
+      for (int w : node.successors) {
+        if (w == v)
+          loops++;
+        else
+          set(w, node(w).withoutPredecessor(v));
+      }
+      for (int u : node.predecessors)
+        if (u != v)
+          set(u, node(u).withoutSuccessor(v));
+      edgeCount -= node.successors.length + node.predecessors.length - loops;
+      set(v, null);
+      nodeCount--;
+      return true;
+    }
+
+    /**
+     * Insert a new directed edge into the next version, or update the weight of an existing edge.
+     *
+     * @param pred   the data item contained in the source node for the edge
+     * @param succ   the data item contained in the destination node for the edge
+     * @param weight the weight for the edge (has to be a positive value)
+     * @return true if the edge could be inserted or its weight updated, and false if the pred or
+     *         succ data are not found in any graph nodes
+     */
+    public boolean insertEdge(NodeType pred, NodeType succ, double weight) {
+      int u = idOf(pred);
+      int v = idOf(succ);
+      if (u < 0 || v < 0)
+        return false;
+      boolean isNew = node(u).findSuccessor(v) < 0;
+      set(u, node(u).withSuccessor(v, weight));
+      if (isNew) {
+        set(v, node(v).withPredecessor(u));
+        edgeCount++;
+      }
+      return true;
+    }
+
+    /**
+     * Remove an edge from the next version.
+     *
+     * @param pred the data item contained in the source node for the edge
+     * @param succ the data item contained in the destination node for the edge
+     * @return true if the edge could be removed, false if it was not in the graph
+     */
+    public boolean removeEdge(NodeType pred, NodeType succ) {
+      int u = idOf(pred);
+      int v = idOf(succ);
+      if (u < 0 || v < 0 || node(u).findSuccessor(v) < 0)
+        return false;
+      set(u, node(u).withoutSuccessor(v));
+      set(v, node(v).withoutPredecessor(u));
+      edgeCount--;
+      return true;
+    }
+
+    // Publishes the changes as the next version, or keeps the base version when nothing changed
+    private Version<NodeType> publish() {
+      published = true;
+      if (!changed)
+        return base;
+      Version<NodeType> next = new Version<>(ids, chunks, nodeCount, edgeCount, base.number + 1);
+      current.set(next);
+      return next;
+    }
+  }
+
+  /**
+   * Tests that random insertions and removals leave this graph with the same nodes, edges and
+   * shortest paths as a DijkstraGraph that receives the same changes, while an earlier version
+   * keeps answering as it did when it was current.
+   */
+  @Test
+  public void testMatchesDijkstraGraph() {
+    VersionedGraph<Integer> graph = new VersionedGraph<>();
+    DijkstraGraph<Integer, Double> expected = new DijkstraGraph<>();
+    for (int i = 0; i < 2000; i++)
+      Assertions.assertEquals(expected.insertNode(i), graph.insertNode(i));
+    Random rng = new Random(9);
+    Version<Integer> pinned = null;
+    List<double[]> pinnedCosts = new ArrayList<>();
+    for (int round = 0; round < 4000; round++) {
+      int a = rng.nextInt(2100);
+      int b = rng.nextInt(2100);
+      int action = rng.nextInt(10);
+      if (action < 1) {
+        Assertions.assertEquals(expected.insertNode(a), graph.insertNode(a));
+      } else if (action < 2) {
+        Assertions.assertEquals(expected.removeNode(a), graph.removeNode(a));
+      } else if (action < 8) {
+        double weight = rng.nextInt(100) / 4.0;
+        Assertions.assertEquals(expected.insertEdge(a, b, weight), graph.insertEdge(a, b, weight));
+      } else {
+        Assertions.assertEquals(expected.removeEdge(a, b), graph.removeEdge(a, b));
+      }
+      Assertions.assertEquals(expected.getNodeCount(), graph.getNodeCount());
+      Assertions.assertEquals(expected.getEdgeCount(), graph.getEdgeCount());
+      Assertions.assertEquals(expected.containsEdge(a, b), graph.containsEdge(a, b));
+      if (expected.containsEdge(a, b))
+        Assertions.assertEquals(expected.getEdge(a, b), graph.getEdge(a, b));
+      Assertions.assertEquals(expected.shortestPathCost(a, b), graph.shortestPathCost(a, b));
+      // pin a version halfway through, and remember some of its answers
+      if (round == 2000) {
+        pinned = graph.currentVersion();
+        for (int i = 0; i < 200; i++) {
+          int u = rng.nextInt(2100);
+          int v = rng.nextInt(2100);
+          pinnedCosts.add(new double[] {u, v, graph.shortestPathCost(u, v)});
+        }
+      }
+    }
+    for (double[] query : pinnedCosts)
+      Assertions.assertEquals(query[2], pinned.shortestPathCost((int) query[0], (int) query[1]));
+    Assertions.assertThrows(UnsupportedOperationException.class, () -> graph.currentVersion()
+        .insertNode(-1));
+
+    // an update that fails part way publishes none of its changes
+    Version<Integer> before = graph.currentVersion();
+    Assertions.assertThrows(NullPointerException.class, () -> graph.update(editor -> {
+      for (int i = 5000; i < 7000; i++)
+        editor.insertNode(i);
+      editor.insertNode(null);
+    }));
+    Assertions.assertSame(before, graph.currentVersion());
+    Assertions.assertFalse(graph.containsNode(5000));
+    Assertions.assertTrue(graph.insertNode(6999));
+    Assertions.assertTrue(graph.insertNode(7000));
+    Assertions.assertEquals(0.0, graph.shortestPathCost(7000, 7000));
+  }
+
+  /**
+   * Tests that readers searching while a writer repeatedly closes and reopens paths never fail or
+   * see half of an update. The writer closes all edges into one node of a grid in one update and
+   * reopens them in the next, so every version either has no path to that node or a path of the
+   * same cost.
+   */
+  @Test
+  public void testConcurrentReadersDuringUpdates() throws InterruptedException {
+    VersionedGraph<Integer> graph = SyntheticGraphs.grid(new VersionedGraph<Integer>(), 2500, 3);
+    int closed = 1275; // a node in the middle of the 50 by 50 grid
+    List<Integer> neighbors = new ArrayList<>();
+    List<Double> weights = new ArrayList<>();
+    for (int u : new int[] {closed - 1, closed + 1, closed - 50, closed + 50}) {
+      neighbors.add(u);
+      weights.add(graph.getEdge(u, closed));
+    }
+    double open = graph.shortestPathCost(0, closed);
+    int edges = graph.getEdgeCount();
+    long first = graph.currentVersion().getNumber();
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    List<Thread> readers = new ArrayList<>();
+    for (int r = 0; r < 4; r++) {
+      Thread reader = new Thread(() -> {
+        try {
+          while (running.get()) {
+            Version<Integer> version = graph.currentVersion();
+            double cost = version.shortestPathCost(0, closed);
+            boolean reachable = version.containsEdge(closed - 1, closed);
+            Assertions.assertEquals(reachable ? open : -1, cost);
+            Assertions.assertEquals(reachable ? edges : edges - 4, version.getEdgeCount());
+          }
+        } catch (Throwable e) {
+          failure.compareAndSet(null, e);
+        }
+      });
+      readers.add(reader);
+      reader.start();
+    }
+    for (int round = 0; round < 300; round++) {
+      graph.update(editor -> {
+        for (int u : neighbors)
+          editor.removeEdge(u, closed);
+      });
+      graph.update(editor -> {
+        for (int i = 0; i < neighbors.size(); i++)
+          editor.insertEdge(neighbors.get(i), closed, weights.get(i));
+      });
+    }
+    running.set(false);
+    for (Thread reader : readers)
+      reader.join();
+    Assertions.assertNull(failure.get());
+    Assertions.assertEquals(first + 600, graph.currentVersion().getNumber());
+  }
+}
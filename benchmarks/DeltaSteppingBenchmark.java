@@ -0,0 +1,150 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH measurement of how DeltaStepping scales with the number of cores, on synthetic graphs with a
+ * million nodes or more. Every benchmark computes the cost from node 0 to every other node: once
+ * with DeltaStepping on a ForkJoinPool of each size, and once with the sequential Dijkstra search
+ * of DijkstraGraph.shortestPathTree as the baseline.
+ *
+ * main runs the pool sizes 1, 2, 4 and so on up to the number of available cores, unless other
+ * sizes are passed with -p threads=..., and then prints the speedup of each pool size over a pool
+ * of one thread and over the sequential search.
+ *
+ * Usage: java benchmarks.DeltaSteppingBenchmark [JMH options], from the classes that the
+ * benchmarkClasses Makefile target builds
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms16g", "-Xmx16g"})
+public class DeltaSteppingBenchmark {
+
+  /** The graph that every search runs on. */
+  @State(Scope.Benchmark)
+  public static class Graphs {
+    @Param({"1000000", "4000000"})
+    public int nodeCount;
+
+    @Param({"grid", "geometric"})
+    public String shape;
+
+    private DijkstraGraph<Integer, Double> graph;
+
+    @Setup
+    public void setUp() {
+      graph = shape.equals("grid") ? SyntheticGraphs.grid(nodeCount, 5)
+          : SyntheticGraphs.randomGeometric(nodeCount, 6, 5);
+      graph.freeze();
+      // every search should run, rather than return a cached tree
+      graph.setTreeCacheCapacity(0);
+    }
+  }
+
+  /** A delta-stepping engine and the pool it runs on. */
+  @State(Scope.Benchmark)
+  public static class Engine {
+    @Param({"1"})
+    public int threads;
+
+    // delta as a multiple of the average edge weight
+    @Param({"1", "2", "4"})
+    public double deltaFactor;
+
+    private DeltaStepping<Integer> search;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp(Graphs graphs) {
+      CsrGraph<Integer> graph = graphs.graph.snapshot;
+      search = new DeltaStepping<>(graph, deltaFactor * DeltaStepping.averageWeight(graph));
+      pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+      pool.shutdown();
+    }
+  }
+
+  @Benchmark
+  public double[] deltaStepping(Engine engine) {
+    return engine.search.distances(0, engine.pool);
+  }
+
+  @Benchmark
+  public Object dijkstra(Graphs graphs) {
+    return graphs.graph.shortestPathTree(0);
+  }
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    CommandLineOptions options = new CommandLineOptions(args);
+    ChainedOptionsBuilder builder = new OptionsBuilder().parent(options)
+        .include(DeltaSteppingBenchmark.class.getSimpleName());
+    if (!options.getParameter("threads").hasValue()) {
+      List<String> threads = new ArrayList<>();
+      int cores = Runtime.getRuntime().availableProcessors();
+      for (int count = 1; count < cores; count *= 2)
+        threads.add(Integer.toString(count));
+      threads.add(Integer.toString(cores));
+      builder.param("threads", threads.toArray(new String[0]));
+    }
+    Collection<RunResult> results = new Runner(builder.build()).run();
+
+    // the speedup of each delta-stepping run over the run with one thread and the same graph and
+    // delta, and over the sequential search of the same graph
+    System.out.println("\nSpeedup over one thread, and over sequential Dijkstra:");
+    for (RunResult result : results) {
+      if (!result.getParams().getBenchmark().endsWith(".deltaStepping"))
+        continue;
+      double single = Double.NaN;
+      double sequential = Double.NaN;
+      for (RunResult other : results) {
+        if (!sameParams(other, result, "nodeCount", "shape"))
+          continue;
+        if (other.getParams().getBenchmark().endsWith(".dijkstra"))
+          sequential = other.getPrimaryResult().getScore();
+        else if (other.getParams().getParam("threads").equals("1")
+            && sameParams(other, result, "deltaFactor"))
+          single = other.getPrimaryResult().getScore();
+      }
+      double score = result.getPrimaryResult().getScore();
+      System.out.printf("  %s nodes, %s, delta x%s, %s threads: %.2fx, %.2fx%n",
+          result.getParams().getParam("nodeCount"), result.getParams().getParam("shape"),
+          result.getParams().getParam("deltaFactor"), result.getParams().getParam("threads"),
+          single / score, sequential / score);
+    }
+  }
+
+  private static boolean sameParams(RunResult a, RunResult b, String... params) {
+    for (String param : params)
+      if (!a.getParams().getParam(param).equals(b.getParams().getParam(param)))
+        return false;
+    return true;
+  }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH comparison of DoubleDijkstraGraph against the generic DijkstraGraph, on the same random
+ * geometric graph. Each search benchmark runs Dijkstra's algorithm from one node to a node with no
+ * edges, so that every search settles the whole connected graph and relaxes each of its edges once:
+ * edges per second is the edge count divided by the reported time. The build benchmarks insert the
+ * whole graph, so running with -prof gc also reports the bytes allocated per graph.
+ *
+ * Before running JMH, main measures the heap each graph retains per edge, since JMH itself only
+ * reports allocation rates.
+ *
+ * Usage: java benchmarks.DoubleDijkstraGraphBenchmark [JMH options], from the classes that the
+ * benchmarkClasses Makefile target builds
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class DoubleDijkstraGraphBenchmark {
+
+  @Param({"10000", "100000"})
+  public int nodeCount;
+
+  private DijkstraGraph<Integer, Double> generic;
+  private DoubleDijkstraGraph<Integer> primitive;
+
+  @Setup
+  public void setUp() {
+    generic = SyntheticGraphs.randomGeometric(nodeCount, 8, 42);
+    primitive = SyntheticGraphs.randomGeometric(new DoubleDijkstraGraph<>(), nodeCount, 8, 42);
+    // an isolated node that no search can reach, so that every search visits the whole graph
+    generic.insertNode(-1);
+    primitive.insertNode(-1);
+  }
+
+  @Benchmark
+  public double genericSearch() {
+    return generic.shortestPathCost(0, -1);
+  }
+
+  @Benchmark
+  public double primitiveSearch() {
+    return primitive.shortestPathCost(0, -1);
+  }
+
+  @Benchmark
+  public Object genericBuild() {
+    return SyntheticGraphs.randomGeometric(new DijkstraGraph<Integer, Double>(), nodeCount, 8, 42);
+  }
+
+  @Benchmark
+  public Object primitiveBuild() {
+    return SyntheticGraphs.randomGeometric(new DoubleDijkstraGraph<Integer>(), nodeCount, 8, 42);
+  }
+
+  // Return the heap retained by the graph that build returns, divided by its edge count
+  private static double retainedBytesPerEdge(Supplier<GraphADT<Integer, Double>> build) {
+    Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    long before = runtime.totalMemory() - runtime.freeMemory();
+    GraphADT<Integer, Double> graph = build.get();
+    System.gc();
+    long after = runtime.totalMemory() - runtime.freeMemory();
+    // keep graph reachable until after the second measurement
+    return (after - before) / (double) graph.getEdgeCount();
+  }
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    int nodeCount = 100_000;
+    System.out.printf("%d edges for %d nodes%n",
+        SyntheticGraphs.randomGeometric(nodeCount, 8, 42).getEdgeCount(), nodeCount);
+    System.out.printf("retained heap per edge: DijkstraGraph %.1f bytes, "
+        + "DoubleDijkstraGraph %.1f bytes%n",
+        retainedBytesPerEdge(() -> SyntheticGraphs.randomGeometric(nodeCount, 8, 42)),
+        retainedBytesPerEdge(() -> SyntheticGraphs.randomGeometric(
+            new DoubleDijkstraGraph<Integer>(), nodeCount, 8, 42)));
+    new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+        .include(DoubleDijkstraGraphBenchmark.class.getSimpleName()).build()).run();
+  }
+}
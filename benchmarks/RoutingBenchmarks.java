@@ -0,0 +1,338 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmarks for the routing core, grouped by the part of the code they exercise: HashtableMap
+ * operations, BaseGraph edge operations, queries on campus.dot, DOT loading, and shortest path
+ * searches on synthetic grid and random geometric graphs from a thousand to ten million nodes.
+ * Every benchmark reports the average time of one operation.
+ *
+ * Results are compared between versions by exporting them as JSON, which is what the runBenchmarks
+ * Makefile target does: java benchmarks.RoutingBenchmarks -rf json -rff jmh-results.json. Any
+ * other JMH option can be passed the same way, for example -p nodeCount=1000,10000 to skip the
+ * largest graphs, which need about 16 GB of heap.
+ *
+ * JMH only generates code for benchmarks in a named package, so this class is in the benchmarks
+ * package, and the Makefile compiles it together with copies of the routing classes that are
+ * moved into the same package.
+ */
+public class RoutingBenchmarks {
+
+  // number of random keys or node pairs that each benchmark cycles through
+  private static final int SAMPLES = 1 << 12;
+
+  /**
+   * HashtableMap get, put and remove at several sizes, with the table sized up front so that it
+   * stays at a given load factor (the map itself grows at a load factor of 0.8).
+   */
+  @State(Scope.Thread)
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @Warmup(iterations = 3, time = 1)
+  @Measurement(iterations = 5, time = 1)
+  @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+  public static class MapOperations {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"0.25", "0.5", "0.75"})
+    public double loadFactor;
+
+    private HashtableMap<Integer, Integer> map;
+    private Integer[] present = new Integer[SAMPLES];
+    private Integer[] missing = new Integer[SAMPLES];
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+      map = new HashtableMap<>((int) Math.ceil(size / loadFactor));
+      for (int i = 0; i < size; i++)
+        map.put(i, i);
+      Random rng = new Random(1);
+      for (int i = 0; i < SAMPLES; i++) {
+        present[i] = rng.nextInt(size);
+        missing[i] = size + rng.nextInt(size);
+      }
+    }
+
+    @Benchmark
+    public Integer get() {
+      return map.get(present[next++ & (SAMPLES - 1)]);
+    }
+
+    @Benchmark
+    public boolean containsMissing() {
+      return map.containsKey(missing[next++ & (SAMPLES - 1)]);
+    }
+
+    // removes a key and puts it back, so that the size and load factor stay the same
+    @Benchmark
+    public int removeAndPut() {
+      Integer key = present[next++ & (SAMPLES - 1)];
+      Integer value = map.remove(key);
+      map.put(key, value);
+      return map.getSize();
+    }
+  }
+
+  /**
+   * BaseGraph insertEdge and getEdge on random geometric graphs, including a few hub nodes with
+   * hundreds of edges like large buildings.
+   */
+  @State(Scope.Thread)
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  @Warmup(iterations = 3, time = 1)
+  @Measurement(iterations = 5, time = 1)
+  @Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+  public static class GraphEdges {
+    @Param({"1000", "100000", "1000000"})
+    public int nodeCount;
+
+    private BaseGraph<Integer, Double> graph;
+    private Integer[] sources = new Integer[SAMPLES];
+    private Integer[] targets = new Integer[SAMPLES];
+    private Double[] weights = new Double[SAMPLES];
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+      graph = new BaseGraph<>(new OpenAddressingMap<>());
+      DijkstraGraph<Integer, Double> generated = SyntheticGraphs.randomGeometric(nodeCount, 8, 42);
+      Random rng = new Random(2);
+      for (int i = 0; i < nodeCount; i++)
+        graph.insertNode(i);
+      for (BaseGraph<Integer, Double>.Node node : generated.nodeList)
+        for (BaseGraph<Integer, Double>.Edge edge : node.edgesLeaving)
+          graph.insertEdge(node.data, edge.successor.data, edge.data);
+      for (int hub = 0; hub < nodeCount; hub += 1000)
+        for (int i = 0; i < 300; i++)
+          graph.insertEdge(hub, rng.nextInt(nodeCount), 1.0);
+      // sample existing edges, so that getEdge always succeeds and insertEdge updates a weight
+      for (int i = 0; i < SAMPLES; i++) {
+        BaseGraph<Integer, Double>.Node node;
+        do {
+          node = graph.nodeList.get(rng.nextInt(nodeCount));
+        } while (node.edgesLeaving.isEmpty());
+        BaseGraph<Integer, Double>.Edge edge =
+            node.edgesLeaving.get(rng.nextInt(node.edgesLeaving.size()));
+        sources[i] = node.data;
+        targets[i] = edge.successor.data;
+        weights[i] = edge.data;
+      }
+    }
+
+    @Benchmark
+    public Double getEdge() {
+      int i = next++ & (SAMPLES - 1);
+      return graph.getEdge(sources[i], targets[i]);
+    }
+
+    @Benchmark
+    public boolean insertEdge() {
+      int i = next++ & (SAMPLES - 1);
+      return graph.insertEdge(sources[i], targets[i], weights[i]);
+    }
+
+    // removes an edge and inserts it again, so that the graph keeps the same edges
+    @Benchmark
+    public boolean removeAndInsertEdge() {
+      int i = next++ & (SAMPLES - 1);
+      graph.removeEdge(sources[i], targets[i]);
+      return graph.insertEdge(sources[i], targets[i], weights[i]);
+    }
+  }
+
+  /**
+   * The queries the app makes, through BackendImplementation on campus.dot: shortest paths between
+   * random locations, and locations reachable within five minutes.
+   */
+  @State(Scope.Thread)
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 3, time = 1)
+  @Measurement(iterations = 5, time = 1)
+  @Fork(1)
+  public static class CampusQueries {
+    @Param({"DIJKSTRA", "BIDIRECTIONAL", "ALT"})
+    public DijkstraGraph.SearchMode searchMode;
+
+    private BackendImplementation backend;
+    private String[] starts = new String[SAMPLES];
+    private String[] ends = new String[SAMPLES];
+    private int next = 0;
+
+    @Setup
+    public void setUp() throws IOException {
+      DijkstraGraph<String, Double> graph = new DijkstraGraph<>();
+      backend = new BackendImplementation(graph);
+      backend.loadGraphData("campus.dot");
+      graph.setSearchMode(searchMode);
+      List<String> locations = backend.getListOfAllLocations();
+      Random rng = new Random(3);
+      // only sample pairs with a path, since the app never asks for the others
+      for (int i = 0; i < SAMPLES; i++) {
+        do {
+          starts[i] = locations.get(rng.nextInt(locations.size()));
+          ends[i] = locations.get(rng.nextInt(locations.size()));
+        } while (graph.shortestPathCost(starts[i], ends[i]) < 0);
+      }
+    }
+
+    @Benchmark
+    public List<String> findShortestPath() {
+      int i = next++ & (SAMPLES - 1);
+      return backend.findShortestPath(starts[i], ends[i]);
+    }
+
+    @Benchmark
+    public List<String> getReachableLocations() {
+      return backend.getReachableLocations(starts[next++ & (SAMPLES - 1)], 300);
+    }
+  }
+
+  /**
+   * Loading DOT files: campus.dot through BackendImplementation, and a generated file with a
+   * million edges through DotReader alone and through ParallelGraphLoader.
+   */
+  @State(Scope.Benchmark)
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MILLISECONDS)
+  @Warmup(iterations = 3, time = 2)
+  @Measurement(iterations = 5, time = 2)
+  @Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+  public static class DotLoading {
+    private File generated;
+
+    @Setup
+    public void setUp() throws IOException {
+      generated = File.createTempFile("generated", ".dot");
+      Random rng = new Random(4);
+      try (PrintWriter out = new PrintWriter(generated)) {
+        out.println("digraph generated {");
+        for (int i = 0; i < 1_000_000; i++)
+          out.printf("  \"Building %d\" -> \"Building %d\" [seconds=%.1f];%n", rng.nextInt(200_000),
+              rng.nextInt(200_000), 10 + rng.nextDouble() * 200);
+        out.println("}");
+      }
+    }
+
+    @TearDown
+    public void tearDown() {
+      generated.delete();
+    }
+
+    @Benchmark
+    public BackendImplementation loadCampus() throws IOException {
+      BackendImplementation backend = new BackendImplementation(new DijkstraGraph<>());
+      backend.loadGraphData("campus.dot");
+      return backend;
+    }
+
+    @Benchmark
+    public int readGenerated() throws IOException {
+      int[] edges = {0};
+      new DotReader().read(generated.getPath(), new DotReader.Listener() {
+        @Override
+        public void node(String name) {
+        }
+
+        @Override
+        public void edge(String source, String target, double weight) {
+          edges[0]++;
+        }
+      });
+      return edges[0];
+    }
+
+    @Benchmark
+    public ParallelGraphLoader.LoadedGraph loadGeneratedInParallel() throws IOException {
+      return new ParallelGraphLoader().load(generated.getPath());
+    }
+  }
+
+  /**
+   * Shortest path searches between random nodes of synthetic graphs, frozen the way
+   * BackendImplementation freezes campus.dot.
+   */
+  @State(Scope.Benchmark)
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  @Warmup(iterations = 2, time = 2)
+  @Measurement(iterations = 5, time = 2)
+  @Fork(value = 1, jvmArgsAppend = {"-Xms16g", "-Xmx16g"})
+  public static class SyntheticSearch {
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int nodeCount;
+
+    @Param({"grid", "geometric"})
+    public String shape;
+
+    private DijkstraGraph<Integer, Double> graph;
+    private Integer[] starts = new Integer[SAMPLES];
+    private Integer[] ends = new Integer[SAMPLES];
+
+    @Setup
+    public void setUp() {
+      graph = shape.equals("grid") ? SyntheticGraphs.grid(nodeCount, 5)
+          : SyntheticGraphs.randomGeometric(nodeCount, 6, 5);
+      graph.freeze();
+      Random rng = new Random(5);
+      for (int i = 0; i < SAMPLES; i++) {
+        starts[i] = rng.nextInt(graph.getNodeCount());
+        ends[i] = rng.nextInt(graph.getNodeCount());
+      }
+    }
+
+    /** The index of the next node pair, separate for each benchmark thread. */
+    @State(Scope.Thread)
+    public static class Cursor {
+      private int next = 0;
+    }
+
+    @Benchmark
+    public double shortestPathCost(Cursor cursor) {
+      int i = cursor.next++ & (SAMPLES - 1);
+      return graph.shortestPathCost(starts[i], ends[i]);
+    }
+
+    @Benchmark
+    public List<Integer> shortestPathData(Cursor cursor) {
+      int i = cursor.next++ & (SAMPLES - 1);
+      try {
+        return graph.shortestPathData(starts[i], ends[i]);
+      } catch (NoSuchElementException e) {
+        return null; // the few nodes outside the largest connected part have no path
+      }
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+    new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+        .include(RoutingBenchmarks.class.getSimpleName()).build()).run();
+  }
+}